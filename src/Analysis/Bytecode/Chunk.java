@@ -0,0 +1,91 @@
+package Analysis.Bytecode;
+
+import Analysis.IO.OutputSink;
+import Analysis.Syntax.LineMap;
+import Analysis.Type.DataType;
+
+// Compiled form of a program: the instruction stream, its constant pool and
+// the debug information the VirtualMachine needs to report runtime errors.
+public class Chunk {
+    private final int[] code;
+    private final long[] constants; // INT, FLOAT, CHAR and BOOL values in their stack encoding
+    private final String[] texts;   // Literal text fragments written by PRINTTEXT
+    private final byte[][] encodedTexts; // The same fragments, encoded once for the OutputSink
+    private final int[] offsets;    // Source offset of the instruction starting at each index
+    private final LineMap lineMap;  // Resolves offsets to lines and columns for error messages
+    private final String[] slotNames;
+    private final DataType[] slotTypes;
+    private final int maxStack;
+
+    public Chunk(int[] code, long[] constants, String[] texts, int[] offsets, LineMap lineMap,
+                 String[] slotNames, DataType[] slotTypes, int maxStack) {
+        this.code = code;
+        this.constants = constants;
+        this.texts = texts;
+        this.encodedTexts = new byte[texts.length][];
+        for (int i = 0; i < texts.length; i++)
+            this.encodedTexts[i] = OutputSink.encode(texts[i]);
+        this.offsets = offsets;
+        this.lineMap = lineMap;
+        this.slotNames = slotNames;
+        this.slotTypes = slotTypes;
+        this.maxStack = maxStack;
+    }
+
+    public int[] getCode() {
+        return code;
+    }
+
+    public long[] getConstants() {
+        return constants;
+    }
+
+    public String[] getTexts() {
+        return texts;
+    }
+
+    public byte[][] getEncodedTexts() {
+        return encodedTexts;
+    }
+
+    public int getLine(int index) {
+        return lineMap == null ? 0 : lineMap.getLine(offsets[index]);
+    }
+
+    public int getColumn(int index) {
+        return lineMap == null ? 0 : lineMap.getColumn(offsets[index]);
+    }
+
+    public String[] getSlotNames() {
+        return slotNames;
+    }
+
+    public DataType[] getSlotTypes() {
+        return slotTypes;
+    }
+
+    public int getSlotCount() {
+        return slotNames.length;
+    }
+
+    public int getMaxStack() {
+        return maxStack;
+    }
+
+    public String disassemble() {
+        StringBuilder result = new StringBuilder();
+        int index = 0;
+        while (index < code.length) {
+            int opCode = code[index];
+            int operands = OpCode.getOperandCount(opCode, code, index);
+
+            result.append(String.format("%04d %-12s", index, OpCode.getName(opCode)));
+            for (int i = 1; i <= operands; i++)
+                result.append(' ').append(code[index + i]);
+            result.append('\n');
+
+            index += 1 + operands;
+        }
+        return result.toString();
+    }
+}
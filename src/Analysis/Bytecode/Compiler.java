@@ -0,0 +1,452 @@
+package Analysis.Bytecode;
+
+import Analysis.IR.*;
+import Analysis.Syntax.Grammar;
+import Analysis.Syntax.LineMap;
+import Analysis.Type.DataType;
+import Analysis.Type.TokenType;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Lowers an IRProgram that passed the Verifier into a Chunk for the VirtualMachine.
+public class Compiler {
+    private int[] code;
+    private int[] offsets;
+    private int count;
+
+    private final List<Long> constants;
+    private final Map<Long, Integer> constantIndexes;
+    private final List<String> texts;
+    private final Map<String, Integer> textIndexes;
+
+    private int stackDepth;
+    private int maxStack;
+    private int offset; // Source offset of the node being compiled
+    private LineMap lineMap;
+
+    public Compiler() {
+        this.code = new int[64];
+        this.offsets = new int[64];
+        this.constants = new ArrayList<>();
+        this.constantIndexes = new HashMap<>();
+        this.texts = new ArrayList<>();
+        this.textIndexes = new HashMap<>();
+    }
+
+    public Chunk compile(IRProgram program) {
+        lineMap = program.getLineMap();
+        compileBlock(program.getStatements());
+        emit(OpCode.HALT);
+
+        long[] constantPool = new long[constants.size()];
+        for (int i = 0; i < constantPool.length; i++)
+            constantPool[i] = constants.get(i);
+
+        String[] slotNames = new String[program.getSlotCount()];
+        DataType[] slotTypes = new DataType[program.getSlotCount()];
+        for (int slot = 0; slot < slotNames.length; slot++) {
+            slotNames[slot] = program.getSlotName(slot);
+            slotTypes[slot] = program.getSlotType(slot);
+        }
+
+        return new Chunk(Arrays.copyOf(code, count), constantPool, texts.toArray(new String[0]),
+                Arrays.copyOf(offsets, count), lineMap,
+                slotNames, slotTypes, Math.max(maxStack, 1));
+    }
+
+    private void compileBlock(List<Statement> block) {
+        for (int index = 0; index < block.size(); index++) {
+            Statement statement = block.get(index);
+            if (statement instanceof Store)
+                index = compileStores(block, index);
+            else if (statement instanceof Display)
+                compileDisplay((Display) statement);
+            else if (statement instanceof Scan)
+                compileScan((Scan) statement);
+            else if (statement instanceof If)
+                compileIf((If) statement);
+            else if (statement instanceof While)
+                compileWhile((While) statement);
+        }
+    }
+
+    // x = y = value is lowered to a Store of value followed by Stores copying x when
+    // value reads neither target, the copies reuse the value left on the stack
+    // instead of loading x again.
+    // Returns the index of the last Store compiled.
+    private int compileStores(List<Statement> block, int index) {
+        Store store = (Store) block.get(index);
+        compileExpression(store.getValue());
+
+        while (index + 1 < block.size() && isCopyOf(block.get(index + 1), store.getSlot())) {
+            setPosition(store.getOffset());
+            emit(OpCode.DUP);
+            emit(OpCode.STORE, store.getSlot());
+            store = (Store) block.get(++index);
+        }
+
+        setPosition(store.getOffset());
+        emit(OpCode.STORE, store.getSlot());
+        return index;
+    }
+
+    private static boolean isCopyOf(Statement statement, int slot) {
+        return statement instanceof Store && ((Store) statement).getValue() instanceof Load
+                && ((Load) ((Store) statement).getValue()).getSlot() == slot;
+    }
+
+    private void compileDisplay(Display statement) {
+        for (Expression item : statement.getItems()) {
+            // Literal fragments are written straight from the text pool
+            if (item instanceof Text) {
+                setPosition(item.getOffset());
+                emit(OpCode.PRINTTEXT, addText(((Text) item).getText()));
+                continue;
+            }
+
+            compileExpression(item);
+            switch (item.getType()) {
+                case Int:
+                    emit(OpCode.PRINTINT);
+                    break;
+                case Float:
+                    emit(OpCode.PRINTFLOAT);
+                    break;
+                case Char:
+                    emit(OpCode.PRINTCHAR);
+                    break;
+                case Bool:
+                    emit(OpCode.PRINTBOOL);
+                    break;
+                default:
+                    throw error("Unable to display " + item.getType() + ".");
+            }
+        }
+
+        setPosition(statement.getOffset());
+        emit(OpCode.FLUSH);
+    }
+
+    private void compileScan(Scan statement) {
+        int[] slots = statement.getSlots();
+
+        setPosition(statement.getOffset());
+        emit(OpCode.SCAN);
+        emitOperand(slots.length);
+        for (int slot : slots)
+            emitOperand(slot);
+    }
+
+    // ELSE IF ladders are nested Ifs in the else blocks: each failing condition jumps
+    // straight to the next test, and since a nested If ends where its parent does,
+    // every block jumps directly to the end of the whole chain
+    private void compileIf(If statement) {
+        setPosition(statement.getOffset());
+        List<Integer> elseJumps = new ArrayList<>();
+        compileBranch(statement.getCondition(), false, elseJumps);
+        compileBlock(statement.getThenBlock());
+
+        if (statement.getElseBlock().isEmpty()) {
+            patchJumps(elseJumps);
+            return;
+        }
+
+        int exitJump = emitJump(OpCode.JUMP);
+        patchJumps(elseJumps);
+        compileBlock(statement.getElseBlock());
+        patchJump(exitJump);
+    }
+
+    // The condition is tested at the bottom of the loop, so each iteration
+    // costs a single conditional jump back to the body
+    private void compileWhile(While statement) {
+        setPosition(statement.getOffset());
+        int conditionJump = emitJump(OpCode.JUMP);
+
+        int body = count;
+        compileBlock(statement.getBody());
+
+        patchJump(conditionJump);
+        List<Integer> bodyJumps = new ArrayList<>();
+        compileBranch(statement.getCondition(), true, bodyJumps);
+        for (int bodyJump : bodyJumps)
+            code[bodyJump] = body;
+    }
+
+    // Emits code that jumps when the BOOL expression evaluates to jumpWhen and falls
+    // through otherwise. AND / OR short-circuit, so their right side is skipped once
+    // the left side decides the result. The jump operands are added to jumps for patching.
+    private void compileBranch(Expression expression, boolean jumpWhen, List<Integer> jumps) {
+        if (expression instanceof Unary && ((Unary) expression).getOperator() == TokenType.NOT) {
+            compileBranch(((Unary) expression).getOperand(), !jumpWhen, jumps);
+            return;
+        }
+
+        if (expression instanceof Binary) {
+            Binary binary = (Binary) expression;
+            TokenType operatorType = binary.getOperator();
+
+            if (operatorType == TokenType.AND || operatorType == TokenType.OR) {
+                if ((operatorType == TokenType.AND) != jumpWhen) {
+                    // AND jumping on FALSE, OR jumping on TRUE: either side alone decides
+                    compileBranch(binary.getLeft(), jumpWhen, jumps);
+                    compileBranch(binary.getRight(), jumpWhen, jumps);
+                } else {
+                    // AND jumping on TRUE, OR jumping on FALSE: the left side may skip the right side
+                    List<Integer> skipJumps = new ArrayList<>();
+                    compileBranch(binary.getLeft(), !jumpWhen, skipJumps);
+                    compileBranch(binary.getRight(), jumpWhen, jumps);
+                    patchJumps(skipJumps);
+                }
+                return;
+            }
+
+            // INT, CHAR and BOOL comparisons compare and jump in one instruction
+            if (Grammar.isComparisonOperator(operatorType) && isIntegral(binary.getOperandType())) {
+                compileExpression(binary.getLeft());
+                compileExpression(binary.getRight());
+                setPosition(binary.getOffset());
+                jumps.add(emitJump(getCompareJump(jumpWhen ? operatorType : negate(operatorType))));
+                return;
+            }
+        }
+
+        compileExpression(expression);
+        jumps.add(emitJump(jumpWhen ? OpCode.JUMPIFTRUE : OpCode.JUMPIFFALSE));
+    }
+
+    // AND / OR used as a value, e.g. d = (a < b AND c <> 200), push 1 or 0
+    private void compileBooleanValue(Expression expression) {
+        List<Integer> falseJumps = new ArrayList<>();
+        compileBranch(expression, false, falseJumps);
+
+        int depth = stackDepth;
+        emit(OpCode.CONST, addConstant(1));
+        int endJump = emitJump(OpCode.JUMP);
+
+        patchJumps(falseJumps);
+        stackDepth = depth;
+        emit(OpCode.CONST, addConstant(0));
+        patchJump(endJump);
+    }
+
+    private void compileExpression(Expression expression) {
+        if (expression instanceof Binary)
+            compileBinaryExpression((Binary) expression);
+        else if (expression instanceof Unary)
+            compileUnaryExpression((Unary) expression);
+        else if (expression instanceof Convert) {
+            compileExpression(((Convert) expression).getOperand());
+            emit(OpCode.I2F);
+        } else if (expression instanceof Load) {
+            setPosition(expression.getOffset());
+            emit(OpCode.LOAD, ((Load) expression).getSlot());
+        } else if (expression instanceof Constant) {
+            setPosition(expression.getOffset());
+            emit(OpCode.CONST, addConstant(((Constant) expression).getBits()));
+        } else {
+            setPosition(expression.getOffset());
+            throw error("Unable to use " + expression.getType() + " literal in an expression.");
+        }
+    }
+
+    private void compileBinaryExpression(Binary expression) {
+        TokenType operatorType = expression.getOperator();
+
+        // AND / OR work on BOOL operands
+        if (operatorType == TokenType.AND || operatorType == TokenType.OR) {
+            compileBooleanValue(expression);
+            return;
+        }
+
+        boolean isFloat = expression.getOperandType() == DataType.Float;
+        compileExpression(expression.getLeft());
+        compileExpression(expression.getRight());
+        setPosition(expression.getOffset());
+
+        switch (operatorType) {
+            case PLUS:
+                emit(isFloat ? OpCode.FADD : OpCode.IADD);
+                break;
+            case MINUS:
+                emit(isFloat ? OpCode.FSUB : OpCode.ISUB);
+                break;
+            case STAR:
+                emit(isFloat ? OpCode.FMUL : OpCode.IMUL);
+                break;
+            case SLASH:
+                emit(isFloat ? OpCode.FDIV : OpCode.IDIV);
+                break;
+            case PERCENT:
+                emit(isFloat ? OpCode.FMOD : OpCode.IMOD);
+                break;
+            case LESSTHAN:
+                emit(isFloat ? OpCode.FLT : OpCode.ILT);
+                break;
+            case GREATERTHAN:
+                emit(isFloat ? OpCode.FGT : OpCode.IGT);
+                break;
+            case LESSEQUAL:
+                emit(isFloat ? OpCode.FLE : OpCode.ILE);
+                break;
+            case GREATEREQUAL:
+                emit(isFloat ? OpCode.FGE : OpCode.IGE);
+                break;
+            case EQUALTO:
+                emit(isFloat ? OpCode.FEQ : OpCode.IEQ);
+                break;
+            case NOTEQUAL:
+                emit(isFloat ? OpCode.FNE : OpCode.INE);
+                break;
+            default:
+                throw error("Unknown operator.");
+        }
+    }
+
+    private void compileUnaryExpression(Unary expression) {
+        compileExpression(expression.getOperand());
+        setPosition(expression.getOffset());
+
+        if (expression.getOperator() == TokenType.MINUS)
+            emit(expression.getType() == DataType.Float ? OpCode.FNEG : OpCode.INEG);
+        else if (expression.getOperator() == TokenType.NOT)
+            emit(OpCode.NOT);
+    }
+
+    private boolean isIntegral(DataType dataType) {
+        return dataType == DataType.Int || dataType == DataType.Char || dataType == DataType.Bool;
+    }
+
+    private static TokenType negate(TokenType operatorType) {
+        switch (operatorType) {
+            case LESSTHAN:
+                return TokenType.GREATEREQUAL;
+            case GREATERTHAN:
+                return TokenType.LESSEQUAL;
+            case LESSEQUAL:
+                return TokenType.GREATERTHAN;
+            case GREATEREQUAL:
+                return TokenType.LESSTHAN;
+            case EQUALTO:
+                return TokenType.NOTEQUAL;
+            case NOTEQUAL:
+                return TokenType.EQUALTO;
+            default:
+                throw new IllegalArgumentException("Unknown comparison " + operatorType);
+        }
+    }
+
+    private static int getCompareJump(TokenType operatorType) {
+        switch (operatorType) {
+            case LESSTHAN:
+                return OpCode.JUMPIFILT;
+            case GREATERTHAN:
+                return OpCode.JUMPIFIGT;
+            case LESSEQUAL:
+                return OpCode.JUMPIFILE;
+            case GREATEREQUAL:
+                return OpCode.JUMPIFIGE;
+            case EQUALTO:
+                return OpCode.JUMPIFIEQ;
+            case NOTEQUAL:
+                return OpCode.JUMPIFINE;
+            default:
+                throw new IllegalArgumentException("Unknown comparison " + operatorType);
+        }
+    }
+
+    private int addConstant(long value) {
+        Integer index = constantIndexes.get(value);
+        if (index == null) {
+            index = constants.size();
+            constants.add(value);
+            constantIndexes.put(value, index);
+        }
+        return index;
+    }
+
+    private int addText(String text) {
+        Integer index = textIndexes.get(text);
+        if (index == null) {
+            index = texts.size();
+            texts.add(text);
+            textIndexes.put(text, index);
+        }
+        return index;
+    }
+
+    private void setPosition(int offset) {
+        this.offset = offset;
+    }
+
+    private int emitJump(int opCode) {
+        emit(opCode, -1);
+        return count - 1;
+    }
+
+    // Points the jump operand at the next instruction to be emitted
+    private void patchJump(int operandIndex) {
+        code[operandIndex] = count;
+    }
+
+    private void patchJumps(List<Integer> operandIndexes) {
+        for (int operandIndex : operandIndexes)
+            patchJump(operandIndex);
+    }
+
+    private void emit(int opCode, int operand) {
+        emit(opCode);
+        emitOperand(operand);
+    }
+
+    private void emit(int opCode) {
+        stackDepth += getStackEffect(opCode);
+        maxStack = Math.max(maxStack, stackDepth);
+        emitOperand(opCode);
+    }
+
+    private void emitOperand(int value) {
+        if (count == code.length) {
+            code = Arrays.copyOf(code, count * 2);
+            offsets = Arrays.copyOf(offsets, count * 2);
+        }
+        code[count] = value;
+        offsets[count] = offset;
+        count++;
+    }
+
+    private static int getStackEffect(int opCode) {
+        switch (opCode) {
+            case OpCode.CONST:
+            case OpCode.LOAD:
+            case OpCode.DUP:
+                return 1;
+            case OpCode.STORE:
+            case OpCode.IADD: case OpCode.ISUB: case OpCode.IMUL: case OpCode.IDIV: case OpCode.IMOD:
+            case OpCode.FADD: case OpCode.FSUB: case OpCode.FMUL: case OpCode.FDIV: case OpCode.FMOD:
+            case OpCode.ILT: case OpCode.IGT: case OpCode.ILE: case OpCode.IGE: case OpCode.IEQ: case OpCode.INE:
+            case OpCode.FLT: case OpCode.FGT: case OpCode.FLE: case OpCode.FGE: case OpCode.FEQ: case OpCode.FNE:
+            case OpCode.JUMPIFFALSE:
+            case OpCode.JUMPIFTRUE:
+            case OpCode.PRINTINT:
+            case OpCode.PRINTFLOAT:
+            case OpCode.PRINTCHAR:
+            case OpCode.PRINTBOOL:
+                return -1;
+            case OpCode.JUMPIFILT: case OpCode.JUMPIFIGT: case OpCode.JUMPIFILE:
+            case OpCode.JUMPIFIGE: case OpCode.JUMPIFIEQ: case OpCode.JUMPIFINE:
+                return -2;
+            default:
+                return 0;
+        }
+    }
+
+    private RuntimeException error(String message) {
+        if (lineMap == null)
+            return new RuntimeException(message);
+        return new RuntimeException("(" + lineMap.getLine(offset) + "," + lineMap.getColumn(offset) + "): " + message);
+    }
+}
@@ -0,0 +1,113 @@
+package Analysis.Bytecode;
+
+// Instruction set of the VirtualMachine. Each instruction is one int in the
+// code stream, followed by its operands (if any).
+public final class OpCode {
+    // Constants and variables
+    public static final int CONST = 0;          // CONST index        push constant pool entry
+    public static final int LOAD = 1;           // LOAD slot          push variable
+    public static final int STORE = 2;          // STORE slot         pop into variable
+    public static final int DUP = 3;            // DUP                duplicate top of stack
+
+    // INT arithmetic
+    public static final int IADD = 4;
+    public static final int ISUB = 5;
+    public static final int IMUL = 6;
+    public static final int IDIV = 7;
+    public static final int IMOD = 8;
+    public static final int INEG = 9;
+
+    // FLOAT arithmetic
+    public static final int FADD = 10;
+    public static final int FSUB = 11;
+    public static final int FMUL = 12;
+    public static final int FDIV = 13;
+    public static final int FMOD = 14;
+    public static final int FNEG = 15;
+    public static final int I2F = 16;           // I2F                convert INT on top of stack to FLOAT
+
+    // Comparisons on INT, CHAR and BOOL
+    public static final int ILT = 17;
+    public static final int IGT = 18;
+    public static final int ILE = 19;
+    public static final int IGE = 20;
+    public static final int IEQ = 21;
+    public static final int INE = 22;
+
+    // Comparisons on FLOAT
+    public static final int FLT = 23;
+    public static final int FGT = 24;
+    public static final int FLE = 25;
+    public static final int FGE = 26;
+    public static final int FEQ = 27;
+    public static final int FNE = 28;
+
+    // Logic
+    public static final int NOT = 29;
+
+    // Control flow
+    public static final int JUMP = 30;          // JUMP target
+    public static final int JUMPIFFALSE = 31;   // JUMPIFFALSE target pop, jump if FALSE
+    public static final int JUMPIFTRUE = 32;    // JUMPIFTRUE target  pop, jump if TRUE
+
+    // Fused INT, CHAR and BOOL comparisons: pop two values and jump if the comparison holds
+    public static final int JUMPIFILT = 33;
+    public static final int JUMPIFIGT = 34;
+    public static final int JUMPIFILE = 35;
+    public static final int JUMPIFIGE = 36;
+    public static final int JUMPIFIEQ = 37;
+    public static final int JUMPIFINE = 38;
+
+    // Input / output
+    public static final int PRINTINT = 39;
+    public static final int PRINTFLOAT = 40;
+    public static final int PRINTCHAR = 41;
+    public static final int PRINTBOOL = 42;
+    public static final int PRINTTEXT = 43;     // PRINTTEXT index    append text pool entry
+    public static final int FLUSH = 44;         // FLUSH              end of a DISPLAY statement, applies the flush policy
+    public static final int SCAN = 45;          // SCAN count slot*   read one line of comma separated values
+    public static final int HALT = 46;
+
+    private static final String[] NAMES = {
+        "CONST", "LOAD", "STORE", "DUP",
+        "IADD", "ISUB", "IMUL", "IDIV", "IMOD", "INEG",
+        "FADD", "FSUB", "FMUL", "FDIV", "FMOD", "FNEG", "I2F",
+        "ILT", "IGT", "ILE", "IGE", "IEQ", "INE",
+        "FLT", "FGT", "FLE", "FGE", "FEQ", "FNE",
+        "NOT",
+        "JUMP", "JUMPIFFALSE", "JUMPIFTRUE",
+        "JUMPIFILT", "JUMPIFIGT", "JUMPIFILE", "JUMPIFIGE", "JUMPIFIEQ", "JUMPIFINE",
+        "PRINTINT", "PRINTFLOAT", "PRINTCHAR", "PRINTBOOL", "PRINTTEXT", "FLUSH", "SCAN", "HALT"
+    };
+
+    private OpCode() {
+    }
+
+    public static String getName(int opCode) {
+        return opCode >= 0 && opCode < NAMES.length ? NAMES[opCode] : "UNKNOWN";
+    }
+
+    // Number of operands that follow the instruction in the code stream
+    public static int getOperandCount(int opCode, int[] code, int index) {
+        switch (opCode) {
+            case CONST:
+            case LOAD:
+            case STORE:
+            case JUMP:
+            case JUMPIFFALSE:
+            case JUMPIFTRUE:
+            case JUMPIFILT:
+            case JUMPIFIGT:
+            case JUMPIFILE:
+            case JUMPIFIGE:
+            case JUMPIFIEQ:
+            case JUMPIFINE:
+            case PRINTTEXT:
+                return 1;
+            case SCAN:
+                return 1 + code[index + 1];
+            default:
+                return 0;
+        }
+    }
+}
@@ -0,0 +1,260 @@
+package Analysis.Bytecode;
+
+import Analysis.IO.InputSource;
+import Analysis.IO.OutputSink;
+import Analysis.Table.VariableTable;
+
+// Stack machine that runs a Chunk produced by the Compiler. Variables live
+// unboxed in the slots of the VariableTable it is given.
+public class VirtualMachine {
+    private final Chunk chunk;
+    private final long[] slots;
+    private final boolean[] defined; // Whether the variable in each slot has been assigned
+    private final VariableTable variableTable;
+    private final InputSource input;
+    private final OutputSink output;
+
+    public VirtualMachine(Chunk chunk, VariableTable variableTable, InputSource input, OutputSink output) {
+        this.chunk = chunk;
+        this.variableTable = variableTable;
+        this.slots = variableTable.getValues();
+        this.defined = variableTable.getAssigned();
+        this.input = input;
+        this.output = output;
+    }
+
+    public void run() {
+        final int[] code = chunk.getCode();
+        final long[] constants = chunk.getConstants();
+        final byte[][] texts = chunk.getEncodedTexts();
+        final long[] slots = this.slots;
+        final boolean[] defined = this.defined;
+        final long[] stack = new long[chunk.getMaxStack()];
+        final OutputSink output = this.output;
+
+        int sp = 0;
+        int ip = 0;
+        int start; // Index of the instruction being executed, used for error positions
+        long right;
+
+        while (true) {
+            start = ip;
+            switch (code[ip++]) {
+                case OpCode.CONST:
+                    stack[sp++] = constants[code[ip++]];
+                    break;
+                case OpCode.LOAD: {
+                    int slot = code[ip++];
+                    if (!defined[slot])
+                        throw error(start, "Variable '" + chunk.getSlotNames()[slot] + "' is null.");
+                    stack[sp++] = slots[slot];
+                    break;
+                }
+                case OpCode.STORE: {
+                    int slot = code[ip++];
+                    slots[slot] = stack[--sp];
+                    defined[slot] = true;
+                    break;
+                }
+                case OpCode.DUP:
+                    stack[sp] = stack[sp - 1];
+                    sp++;
+                    break;
+
+                case OpCode.IADD:
+                    right = stack[--sp];
+                    stack[sp - 1] = (int) stack[sp - 1] + (int) right;
+                    break;
+                case OpCode.ISUB:
+                    right = stack[--sp];
+                    stack[sp - 1] = (int) stack[sp - 1] - (int) right;
+                    break;
+                case OpCode.IMUL:
+                    right = stack[--sp];
+                    stack[sp - 1] = (int) stack[sp - 1] * (int) right;
+                    break;
+                case OpCode.IDIV:
+                    right = stack[--sp];
+                    stack[sp - 1] = (int) stack[sp - 1] / (int) right;
+                    break;
+                case OpCode.IMOD:
+                    right = stack[--sp];
+                    stack[sp - 1] = (int) stack[sp - 1] % (int) right;
+                    break;
+                case OpCode.INEG:
+                    stack[sp - 1] = -(int) stack[sp - 1];
+                    break;
+
+                case OpCode.FADD:
+                    right = stack[--sp];
+                    stack[sp - 1] = toBits(toFloat(stack[sp - 1]) + toFloat(right));
+                    break;
+                case OpCode.FSUB:
+                    right = stack[--sp];
+                    stack[sp - 1] = toBits(toFloat(stack[sp - 1]) - toFloat(right));
+                    break;
+                case OpCode.FMUL:
+                    right = stack[--sp];
+                    stack[sp - 1] = toBits(toFloat(stack[sp - 1]) * toFloat(right));
+                    break;
+                case OpCode.FDIV:
+                    right = stack[--sp];
+                    stack[sp - 1] = toBits(toFloat(stack[sp - 1]) / toFloat(right));
+                    break;
+                case OpCode.FMOD:
+                    right = stack[--sp];
+                    stack[sp - 1] = toBits(toFloat(stack[sp - 1]) % toFloat(right));
+                    break;
+                case OpCode.FNEG:
+                    stack[sp - 1] = toBits(-toFloat(stack[sp - 1]));
+                    break;
+                case OpCode.I2F:
+                    stack[sp - 1] = toBits((int) stack[sp - 1]);
+                    break;
+
+                case OpCode.ILT:
+                    right = stack[--sp];
+                    stack[sp - 1] = stack[sp - 1] < right ? 1 : 0;
+                    break;
+                case OpCode.IGT:
+                    right = stack[--sp];
+                    stack[sp - 1] = stack[sp - 1] > right ? 1 : 0;
+                    break;
+                case OpCode.ILE:
+                    right = stack[--sp];
+                    stack[sp - 1] = stack[sp - 1] <= right ? 1 : 0;
+                    break;
+                case OpCode.IGE:
+                    right = stack[--sp];
+                    stack[sp - 1] = stack[sp - 1] >= right ? 1 : 0;
+                    break;
+                case OpCode.IEQ:
+                    right = stack[--sp];
+                    stack[sp - 1] = stack[sp - 1] == right ? 1 : 0;
+                    break;
+                case OpCode.INE:
+                    right = stack[--sp];
+                    stack[sp - 1] = stack[sp - 1] != right ? 1 : 0;
+                    break;
+
+                case OpCode.FLT:
+                    right = stack[--sp];
+                    stack[sp - 1] = toFloat(stack[sp - 1]) < toFloat(right) ? 1 : 0;
+                    break;
+                case OpCode.FGT:
+                    right = stack[--sp];
+                    stack[sp - 1] = toFloat(stack[sp - 1]) > toFloat(right) ? 1 : 0;
+                    break;
+                case OpCode.FLE:
+                    right = stack[--sp];
+                    stack[sp - 1] = toFloat(stack[sp - 1]) <= toFloat(right) ? 1 : 0;
+                    break;
+                case OpCode.FGE:
+                    right = stack[--sp];
+                    stack[sp - 1] = toFloat(stack[sp - 1]) >= toFloat(right) ? 1 : 0;
+                    break;
+                case OpCode.FEQ:
+                    right = stack[--sp];
+                    stack[sp - 1] = toFloat(stack[sp - 1]) == toFloat(right) ? 1 : 0;
+                    break;
+                case OpCode.FNE:
+                    right = stack[--sp];
+                    stack[sp - 1] = toFloat(stack[sp - 1]) != toFloat(right) ? 1 : 0;
+                    break;
+
+                case OpCode.NOT:
+                    stack[sp - 1] = stack[sp - 1] == 0 ? 1 : 0;
+                    break;
+
+                case OpCode.JUMP:
+                    ip = code[ip];
+                    break;
+                case OpCode.JUMPIFFALSE:
+                    if (stack[--sp] == 0)
+                        ip = code[ip];
+                    else
+                        ip++;
+                    break;
+                case OpCode.JUMPIFTRUE:
+                    if (stack[--sp] != 0)
+                        ip = code[ip];
+                    else
+                        ip++;
+                    break;
+
+                case OpCode.JUMPIFILT:
+                    sp -= 2;
+                    ip = stack[sp] < stack[sp + 1] ? code[ip] : ip + 1;
+                    break;
+                case OpCode.JUMPIFIGT:
+                    sp -= 2;
+                    ip = stack[sp] > stack[sp + 1] ? code[ip] : ip + 1;
+                    break;
+                case OpCode.JUMPIFILE:
+                    sp -= 2;
+                    ip = stack[sp] <= stack[sp + 1] ? code[ip] : ip + 1;
+                    break;
+                case OpCode.JUMPIFIGE:
+                    sp -= 2;
+                    ip = stack[sp] >= stack[sp + 1] ? code[ip] : ip + 1;
+                    break;
+                case OpCode.JUMPIFIEQ:
+                    sp -= 2;
+                    ip = stack[sp] == stack[sp + 1] ? code[ip] : ip + 1;
+                    break;
+                case OpCode.JUMPIFINE:
+                    sp -= 2;
+                    ip = stack[sp] != stack[sp + 1] ? code[ip] : ip + 1;
+                    break;
+
+                case OpCode.PRINTINT:
+                    output.write((int) stack[--sp]);
+                    break;
+                case OpCode.PRINTFLOAT:
+                    output.write(toFloat(stack[--sp]));
+                    break;
+                case OpCode.PRINTCHAR:
+                    output.write((char) stack[--sp]);
+                    break;
+                case OpCode.PRINTBOOL:
+                    output.write(stack[--sp] != 0);
+                    break;
+                case OpCode.PRINTTEXT:
+                    output.write(texts[code[ip++]]);
+                    break;
+                case OpCode.FLUSH:
+                    output.endDisplay();
+                    break;
+                case OpCode.SCAN: {
+                    int count = code[ip++];
+                    scan(code, ip, count);
+                    ip += count;
+                    break;
+                }
+                case OpCode.HALT:
+                    return;
+                default:
+                    throw error(start, "Unknown instruction " + code[start] + ".");
+            }
+        }
+    }
+
+    // Reads one line of comma separated values into the slots listed at code[index..]
+    private void scan(int[] code, int index, int count) {
+        // Pending output, such as a prompt, has to be visible before waiting for input
+        output.flush();
+        input.scan(variableTable, code, index, count, chunk.getSlotNames());
+    }
+
+    private static double toFloat(long bits) {
+        return Double.longBitsToDouble(bits);
+    }
+
+    private static long toBits(double value) {
+        return Double.doubleToRawLongBits(value);
+    }
+
+    private RuntimeException error(int index, String message) {
+        return new RuntimeException("(" + chunk.getLine(index) + "," + chunk.getColumn(index) + "): " + message);
+    }
+}
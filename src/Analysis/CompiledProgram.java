@@ -0,0 +1,169 @@
+package Analysis;
+
+import Analysis.Bytecode.Chunk;
+import Analysis.Bytecode.Compiler;
+import Analysis.IR.IRProgram;
+import Analysis.IR.Lowering;
+import Analysis.JVM.JvmCompiler;
+import Analysis.JVM.JvmProgram;
+import Analysis.Optimize.ConstantFolder;
+import Analysis.Optimize.OptimizationLevel;
+import Analysis.Optimize.PassManager;
+import Analysis.Optimize.PassStatistics;
+import Analysis.Syntax.Lexer;
+import Analysis.Syntax.Parser;
+import Analysis.Syntax.Semantic;
+import Analysis.Syntax.SourceText;
+import Analysis.Syntax.TokenBuffer;
+import Analysis.Tree.FlatTree;
+import Analysis.Tree.ProgramNode;
+import Analysis.Type.DataType;
+import Analysis.Type.TokenType;
+import Analysis.Tree.Statement.LoopNode;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Result of running the front end once over a CODE program: the checked AST,
+// flattened into a FlatTree, and its bytecode. A CompiledProgram is never
+// modified after compile returns, apart from generating its JVM class the first
+// time one is asked for and decoding the loops the Interpreter finds hot, so it
+// can be cached and shared by any number of concurrent Executions.
+//
+// Neither the AST nodes nor the IR are kept: the nodes of a hot loop are decoded
+// from the FlatTree once for all Executions, and the IR is lowered again from it
+// for the JVM class, so a program that never runs on the JVM engine never pays
+// for holding it.
+public final class CompiledProgram {
+    // Level of the compile methods that do not take one
+    public static final OptimizationLevel DEFAULT_LEVEL = OptimizationLevel.O1;
+
+    private final FlatTree tree;
+    private final Chunk chunk;
+    private final List<PassStatistics> passStatistics;
+    private final OptimizationLevel level;
+    private final int variableCount; // Slots of the chunk before its temporaries
+    private final Map<Integer, LoopNode> decodedLoops; // By node index in the FlatTree
+    private JvmProgram jvmProgram;
+    private boolean jvmCompiled;
+
+    private CompiledProgram(FlatTree tree, Chunk chunk, List<PassStatistics> passStatistics, OptimizationLevel level, int variableCount) {
+        this.tree = tree;
+        this.chunk = chunk;
+        this.passStatistics = passStatistics;
+        this.level = level;
+        this.variableCount = variableCount;
+        this.decodedLoops = new ConcurrentHashMap<>();
+    }
+
+    public static CompiledProgram compile(String code) throws Exception {
+        return compile(new Lexer(code));
+    }
+
+    // Compiles a source file by mapping it into memory instead of reading it into a String
+    public static CompiledProgram compile(Path path) throws Exception {
+        return compile(path, DEFAULT_LEVEL);
+    }
+
+    public static CompiledProgram compile(Path path, OptimizationLevel level) throws Exception {
+        return compile(new Lexer(SourceText.map(path)), false, level);
+    }
+
+    // Compiles a source file with the Lexer running ahead of the Parser on its own thread.
+    // With a single processor the two would only take turns, so it lexes up front instead.
+    public static CompiledProgram compileConcurrently(Path path) throws Exception {
+        return compileConcurrently(path, DEFAULT_LEVEL);
+    }
+
+    public static CompiledProgram compileConcurrently(Path path, OptimizationLevel level) throws Exception {
+        return compile(new Lexer(SourceText.map(path)), Runtime.getRuntime().availableProcessors() > 1, level);
+    }
+
+    public static CompiledProgram compile(Lexer lex) throws Exception {
+        return compile(lex, DEFAULT_LEVEL);
+    }
+
+    public static CompiledProgram compile(Lexer lex, OptimizationLevel level) throws Exception {
+        return compile(lex, false, level);
+    }
+
+    private static CompiledProgram compile(Lexer lex, boolean concurrentLexer, OptimizationLevel level) throws Exception {
+        TokenBuffer tokens = concurrentLexer ? lex.tokenizeConcurrently() : lex.tokenize();
+        Semantic semantic = new Semantic();
+
+        ProgramNode program;
+        try {
+            program = new Parser(tokens).parseProgram(TokenType.CODE);
+        } finally {
+            tokens.close();
+        }
+        semantic.analyze(program);
+
+        // The AST is folded too, since the tree-walking Interpreter runs it
+        if (level != OptimizationLevel.O0)
+            new ConstantFolder().fold(program);
+
+        IRProgram ir = new Lowering(semantic.getSymbolTable()).lower(program);
+        PassManager passManager = PassManager.forLevel(level);
+        passManager.run(ir);
+
+        FlatTree tree = new FlatTree(program, lex.getLineMap());
+        return new CompiledProgram(tree, new Compiler().compile(ir), passManager.getStatistics(), level, ir.getVariableCount());
+    }
+
+    public FlatTree getTree() {
+        return tree;
+    }
+
+    // What each optimization pass did while compiling
+    public List<PassStatistics> getPassStatistics() {
+        return passStatistics;
+    }
+
+    public Chunk getChunk() {
+        return chunk;
+    }
+
+    // The program as a JVM class, generated on first use. null when it is too large for one.
+    public synchronized JvmProgram getJvmProgram() {
+        if (!jvmCompiled) {
+            String[] slotNames = Arrays.copyOf(chunk.getSlotNames(), variableCount);
+            DataType[] slotTypes = Arrays.copyOf(chunk.getSlotTypes(), variableCount);
+            IRProgram ir = new Lowering(slotNames, slotTypes).lower(tree.decode(slotNames));
+            PassManager.forLevel(level).run(ir);
+
+            jvmProgram = new JvmCompiler().compile(ir);
+            jvmCompiled = true;
+        }
+        return jvmProgram;
+    }
+
+    // Nodes of the loop at node of the FlatTree, null until decodeLoop is called for it
+    public LoopNode getDecodedLoop(int node) {
+        return decodedLoops.get(node);
+    }
+
+    // Decodes the loop at node of the FlatTree into nodes, once for all Executions. The
+    // nodes are specialized before they are shared, see StatementNode.
+    public LoopNode decodeLoop(int node) {
+        return decodedLoops.computeIfAbsent(node, key -> {
+            LoopNode loop = tree.decodeLoop(key, chunk.getSlotNames());
+            loop.specialize();
+            return loop;
+        });
+    }
+
+    public int getSlotCount() {
+        return chunk.getSlotCount();
+    }
+
+    public DataType getSlotType(int slot) {
+        return chunk.getSlotTypes()[slot];
+    }
+
+    public String getSlotName(int slot) {
+        return chunk.getSlotNames()[slot];
+    }
+}
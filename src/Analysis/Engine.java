@@ -0,0 +1,9 @@
+package Analysis;
+
+// What an Execution runs its CompiledProgram on
+public enum Engine {
+    VM,     // The bytecode VirtualMachine
+    TREE,   // The AST Interpreter
+    TIERED, // The AST Interpreter, moving hot loops to JVM code
+    JVM     // A JVM class generated by the JvmCompiler, or the VM for a program too large for one
+}
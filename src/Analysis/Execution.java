@@ -0,0 +1,77 @@
+package Analysis;
+
+import Analysis.Bytecode.VirtualMachine;
+import Analysis.IO.InputSource;
+import Analysis.IO.OutputSink;
+import Analysis.IO.ReaderInputSource;
+import Analysis.IO.StreamOutputSink;
+import Analysis.JVM.JvmProgram;
+import Analysis.Table.VariableTable;
+import Analysis.Type.DataType;
+import java.io.InputStreamReader;
+
+// One run of a CompiledProgram. Holds everything that changes while the
+// program runs, its variables and its input and output, so the compiled
+// program itself can be reused for the next run.
+public class Execution {
+    private final CompiledProgram program;
+    private final VariableTable variableTable;
+    private final InputSource input;
+    private final OutputSink output;
+
+    public Execution(CompiledProgram program) {
+        this(program, new ReaderInputSource(new InputStreamReader(System.in)), StreamOutputSink.stdout());
+    }
+
+    public Execution(CompiledProgram program, InputSource input, OutputSink output) {
+        this.program = program;
+        this.input = input;
+        this.output = output;
+
+        DataType[] types = new DataType[program.getSlotCount()];
+        for (int slot = 0; slot < types.length; slot++)
+            types[slot] = program.getSlotType(slot);
+        this.variableTable = new VariableTable(types);
+    }
+
+    // Runs the program on the bytecode VirtualMachine, or on the AST interpreter when treeWalking
+    public void run(boolean treeWalking) {
+        run(treeWalking ? Engine.TREE : Engine.VM);
+    }
+
+    public void run(Engine engine) {
+        try {
+            JvmProgram jvmProgram = engine == Engine.JVM ? program.getJvmProgram() : null;
+            if (engine == Engine.TREE)
+                new Interpreter(this).execute(null);
+            else if (engine == Engine.TIERED)
+                new Interpreter(this, new LoopTiering()).execute(null);
+            else if (jvmProgram != null)
+                jvmProgram.run(variableTable, input, output);
+            else
+                new VirtualMachine(program.getChunk(), variableTable, input, output).run();
+        } finally {
+            output.flush();
+        }
+    }
+
+    public void run() {
+        run(false);
+    }
+
+    public CompiledProgram getProgram() {
+        return program;
+    }
+
+    public VariableTable getVariableTable() {
+        return variableTable;
+    }
+
+    public InputSource getInput() {
+        return input;
+    }
+
+    public OutputSink getOutput() {
+        return output;
+    }
+}
@@ -0,0 +1,46 @@
+package Analysis;
+
+// Outcome of one run submitted to the ExecutionService.
+public class ExecutionResult {
+    private final String output;
+    private final String error;    // Message of the error that stopped the run, null if it completed
+    private final long queueNanos; // Time between submission and start
+    private final long runNanos;   // Time spent running the program
+
+    public ExecutionResult(String output, String error, long queueNanos, long runNanos) {
+        this.output = output;
+        this.error = error;
+        this.queueNanos = queueNanos;
+        this.runNanos = runNanos;
+    }
+
+    public String getOutput() {
+        return output;
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    public boolean isSuccessful() {
+        return error == null;
+    }
+
+    public long getQueueNanos() {
+        return queueNanos;
+    }
+
+    public long getRunNanos() {
+        return runNanos;
+    }
+
+    // Submission to completion
+    public long getLatencyNanos() {
+        return queueNanos + runNanos;
+    }
+
+    @Override
+    public String toString() {
+        return "ExecutionResult(" + (isSuccessful() ? "ok" : error) + ", " + getLatencyNanos() / 1000 + "us)";
+    }
+}
@@ -0,0 +1,122 @@
+package Analysis;
+
+import Analysis.IO.MemoryOutputSink;
+import Analysis.IO.ReaderInputSource;
+import java.io.StringReader;
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Runs many independent CODE programs side by side. Every run gets its own
+// thread, a virtual thread when the JVM has them, and its own Execution
+// with in-memory input and output, so runs never share mutable state.
+public class ExecutionService implements AutoCloseable {
+    private final ExecutorService executor;
+    private final Engine engine;
+    private final long startNanos;
+
+    private final AtomicLong completedRuns;
+    private final AtomicLong failedRuns;
+    private final AtomicLong totalLatencyNanos;
+    private final AtomicLong maxLatencyNanos;
+
+    public ExecutionService() {
+        this(Engine.VM);
+    }
+
+    // treeWalking runs every program on the AST interpreter instead of the bytecode VirtualMachine
+    public ExecutionService(boolean treeWalking) {
+        this(treeWalking ? Engine.TREE : Engine.VM);
+    }
+
+    // Runs every program on the given engine
+    public ExecutionService(Engine engine) {
+        this.executor = newExecutor();
+        this.engine = engine;
+        this.startNanos = System.nanoTime();
+        this.completedRuns = new AtomicLong();
+        this.failedRuns = new AtomicLong();
+        this.totalLatencyNanos = new AtomicLong();
+        this.maxLatencyNanos = new AtomicLong();
+    }
+
+    // Runs the program with input as the text read by SCAN
+    public Future<ExecutionResult> submit(CompiledProgram program, String input) {
+        long submitted = System.nanoTime();
+        return executor.submit(() -> run(program, input, submitted));
+    }
+
+    private ExecutionResult run(CompiledProgram program, String input, long submitted) {
+        long started = System.nanoTime();
+        MemoryOutputSink output = new MemoryOutputSink();
+        String error = null;
+        boolean failed = true;
+        long finished;
+
+        // A program recursing too deep for its thread fails like any other run. Whatever
+        // else escapes still reaches the Future, the finally keeps the statistics honest.
+        try {
+            new Execution(program, new ReaderInputSource(new StringReader(input)), output).run(engine);
+            failed = false;
+        } catch (RuntimeException | StackOverflowError e) {
+            error = e.getMessage() != null ? e.getMessage() : e.toString();
+        } finally {
+            finished = System.nanoTime();
+            completedRuns.incrementAndGet();
+            if (failed)
+                failedRuns.incrementAndGet();
+            totalLatencyNanos.addAndGet(finished - submitted);
+            maxLatencyNanos.accumulateAndGet(finished - submitted, Math::max);
+        }
+
+        return new ExecutionResult(output.toString(), error, started - submitted, finished - started);
+    }
+
+    public long getCompletedRuns() {
+        return completedRuns.get();
+    }
+
+    public long getFailedRuns() {
+        return failedRuns.get();
+    }
+
+    // Completed runs per second since the service started
+    public double getThroughput() {
+        double seconds = (System.nanoTime() - startNanos) / 1e9;
+        return seconds > 0 ? completedRuns.get() / seconds : 0;
+    }
+
+    public long getAverageLatencyNanos() {
+        long runs = completedRuns.get();
+        return runs > 0 ? totalLatencyNanos.get() / runs : 0;
+    }
+
+    public long getMaxLatencyNanos() {
+        return maxLatencyNanos.get();
+    }
+
+    // Waits for the submitted runs to finish. Interrupted, it stops waiting and
+    // leaves the interrupt set for the caller.
+    @Override
+    public void close() {
+        executor.shutdown();
+        try {
+            executor.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // Virtual threads need JDK 21, older JVMs fall back to a pool of platform threads
+    private static ExecutorService newExecutor() {
+        try {
+            Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) factory.invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+        }
+    }
+}
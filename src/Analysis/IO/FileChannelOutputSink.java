@@ -0,0 +1,45 @@
+package Analysis.IO;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+// OutputSink that writes straight to a file through a FileChannel, for batch jobs.
+public class FileChannelOutputSink extends OutputSink {
+    private final FileChannel channel;
+
+    public FileChannelOutputSink(FileChannel channel, FlushPolicy flushPolicy) {
+        super(64 * 1024, flushPolicy);
+        this.channel = channel;
+    }
+
+    // Creates or truncates the file, buffering output until the buffer is full
+    public static FileChannelOutputSink open(Path path) throws IOException {
+        return new FileChannelOutputSink(FileChannel.open(path, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING), FlushPolicy.WHEN_FULL);
+    }
+
+    @Override
+    protected void writeOut(byte[] bytes, int offset, int length) {
+        try {
+            ByteBuffer byteBuffer = ByteBuffer.wrap(bytes, offset, length);
+            while (byteBuffer.hasRemaining())
+                channel.write(byteBuffer);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public void close() {
+        super.close();
+        try {
+            channel.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
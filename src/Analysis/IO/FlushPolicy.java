@@ -0,0 +1,8 @@
+package Analysis.IO;
+
+// When an OutputSink hands its buffered bytes to the underlying output.
+public enum FlushPolicy {
+    EVERY_DISPLAY, // At the end of every DISPLAY statement, for interactive consoles
+    EVERY_LINE,    // At the end of a DISPLAY statement that wrote a line break
+    WHEN_FULL      // Only when the buffer is full, before SCAN and when the run ends
+}
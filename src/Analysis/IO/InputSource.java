@@ -0,0 +1,67 @@
+package Analysis.IO;
+
+import Analysis.Syntax.Grammar;
+import Analysis.Table.VariableTable;
+import Analysis.Type.DataType;
+
+// Source of the lines read by SCAN. One InputSource serves a whole execution,
+// so input buffered for one SCAN is still there for the next.
+public abstract class InputSource {
+    private final ValueParser parser = new ValueParser();
+
+    // Returns the next line without its line break, or null at the end of the input.
+    // The returned sequence is only valid until the next call.
+    public abstract CharSequence readLine();
+
+    // Reads one line of comma separated values into the slots listed in slots[offset, offset + count)
+    public void scan(VariableTable variableTable, int[] slots, int offset, int count, String[] slotNames) {
+        CharSequence line = readLine();
+        if (line == null)
+            throw new RuntimeException("Runtime Error: Missing input/s.");
+
+        // Trailing empty values are ignored, e.g. "1,2," holds two values
+        int end = line.length();
+        while (end > 0 && (line.charAt(end - 1) == ',' || line.charAt(end - 1) == ' '))
+            end--;
+
+        int index = 0;
+        int start = 0;
+        while (start <= end && end > 0) {
+            int comma = start;
+            while (comma < end && line.charAt(comma) != ',')
+                comma++;
+
+            if (index == count)
+                throw new RuntimeException("Runtime Error: Missing input/s.");
+
+            int valueStart = start;
+            int valueEnd = comma;
+            while (valueStart < valueEnd && line.charAt(valueStart) == ' ')
+                valueStart++;
+            while (valueEnd > valueStart && line.charAt(valueEnd - 1) == ' ')
+                valueEnd--;
+
+            assign(variableTable, slots[offset + index], slotNames, line, valueStart, valueEnd);
+            index++;
+            start = comma + 1;
+        }
+
+        if (index != count)
+            throw new RuntimeException("Runtime Error: Missing input/s.");
+    }
+
+    private void assign(VariableTable variableTable, int slot, String[] slotNames, CharSequence line, int start, int end) {
+        DataType valueType = parser.parse(line, start, end);
+        if (valueType == null)
+            throw new RuntimeException("Runtime Error: Invalid input " + line.subSequence(start, end));
+
+        DataType slotType = variableTable.getType(slot);
+        if (!Grammar.matchDataType(slotType, valueType))
+            throw new RuntimeException("Runtime Error: Unable to assign " + valueType + " on \"" + slotNames[slot] + "\".");
+
+        if (slotType == DataType.Float && valueType == DataType.Int)
+            variableTable.setFloat(slot, (int) parser.getValue());
+        else
+            variableTable.setRaw(slot, parser.getValue());
+    }
+}
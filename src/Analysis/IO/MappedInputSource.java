@@ -0,0 +1,67 @@
+package Analysis.IO;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+// InputSource over a memory-mapped UTF-8 file, for feeding large inputs to
+// SCAN-driven loops without copying the file through a Reader.
+public class MappedInputSource extends InputSource {
+    private final MappedByteBuffer bytes;
+    private final CharsetDecoder decoder;
+    private CharBuffer line;
+
+    public MappedInputSource(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE)
+                throw new IOException("Input file " + path + " is larger than 2GB.");
+            // The mapping stays valid after the channel is closed
+            this.bytes = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        this.decoder = StandardCharsets.UTF_8.newDecoder();
+        this.line = CharBuffer.allocate(256);
+    }
+
+    @Override
+    public CharSequence readLine() {
+        if (!bytes.hasRemaining())
+            return null;
+
+        int start = bytes.position();
+        int end = start;
+        int limit = bytes.limit();
+        boolean ascii = true;
+        while (end < limit && bytes.get(end) != '\n') {
+            ascii &= bytes.get(end) >= 0;
+            end++;
+        }
+        bytes.position(end < limit ? end + 1 : end);
+
+        int length = end - start;
+        if (length > 0 && bytes.get(end - 1) == '\r')
+            length--;
+
+        if (line.capacity() < length)
+            line = CharBuffer.allocate(Math.max(length, line.capacity() * 2));
+        line.clear();
+
+        if (ascii) {
+            for (int i = 0; i < length; i++)
+                line.put((char) bytes.get(start + i));
+        } else {
+            ByteBuffer slice = bytes.duplicate();
+            slice.position(start).limit(start + length);
+            decoder.reset();
+            decoder.decode(slice, line, true);
+        }
+
+        line.flip();
+        return line;
+    }
+}
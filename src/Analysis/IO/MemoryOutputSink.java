@@ -0,0 +1,30 @@
+package Analysis.IO;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+
+// OutputSink that collects everything in memory, e.g. for runs of the ExecutionService.
+public class MemoryOutputSink extends OutputSink {
+    private final ByteArrayOutputStream bytes;
+
+    public MemoryOutputSink() {
+        super(1024, FlushPolicy.WHEN_FULL);
+        this.bytes = new ByteArrayOutputStream();
+    }
+
+    @Override
+    protected void writeOut(byte[] bytes, int offset, int length) {
+        this.bytes.write(bytes, offset, length);
+    }
+
+    public byte[] toByteArray() {
+        flush();
+        return bytes.toByteArray();
+    }
+
+    @Override
+    public String toString() {
+        flush();
+        return bytes.toString(StandardCharsets.UTF_8);
+    }
+}
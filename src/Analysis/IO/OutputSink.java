@@ -0,0 +1,141 @@
+package Analysis.IO;
+
+import java.nio.charset.StandardCharsets;
+
+// Destination of DISPLAY output. Values are formatted straight into a byte
+// buffer that is handed to the underlying output according to the FlushPolicy,
+// so a DISPLAY inside a loop does not cost one console write per statement.
+public abstract class OutputSink {
+    private static final byte[] TRUE = encode("TRUE");
+    private static final byte[] FALSE = encode("FALSE");
+
+    private final byte[] buffer;
+    private final FlushPolicy flushPolicy;
+    private int count;
+    private boolean lineWritten; // A line break was written since the last flush
+
+    protected OutputSink(int capacity, FlushPolicy flushPolicy) {
+        this.buffer = new byte[capacity];
+        this.flushPolicy = flushPolicy;
+    }
+
+    // Encodes a literal fragment once, so it can be written many times without re-encoding
+    public static byte[] encode(String text) {
+        return text.getBytes(StandardCharsets.UTF_8);
+    }
+
+    public void write(byte[] bytes) {
+        if (flushPolicy == FlushPolicy.EVERY_LINE && !lineWritten) {
+            for (byte b : bytes) {
+                if (b == '\n') {
+                    lineWritten = true;
+                    break;
+                }
+            }
+        }
+
+        if (bytes.length > buffer.length - count) {
+            drain();
+            // Fragments larger than the whole buffer bypass it
+            if (bytes.length > buffer.length) {
+                writeOut(bytes, 0, bytes.length);
+                return;
+            }
+        }
+        System.arraycopy(bytes, 0, buffer, count, bytes.length);
+        count += bytes.length;
+    }
+
+    public void write(String text) {
+        write(encode(text));
+    }
+
+    public void write(int value) {
+        if (value == Integer.MIN_VALUE) {
+            write(Integer.toString(value));
+            return;
+        }
+
+        ensure(11);
+        if (value < 0) {
+            buffer[count++] = '-';
+            value = -value;
+        }
+
+        // Digits are produced in reverse, then swapped into place
+        int start = count;
+        do {
+            buffer[count++] = (byte) ('0' + value % 10);
+            value /= 10;
+        } while (value != 0);
+        for (int i = start, j = count - 1; i < j; i++, j--) {
+            byte digit = buffer[i];
+            buffer[i] = buffer[j];
+            buffer[j] = digit;
+        }
+    }
+
+    public void write(double value) {
+        String text = Double.toString(value);
+        ensure(text.length());
+        // Double.toString only produces ASCII
+        for (int i = 0; i < text.length(); i++)
+            buffer[count++] = (byte) text.charAt(i);
+    }
+
+    public void write(boolean value) {
+        write(value ? TRUE : FALSE);
+    }
+
+    public void write(char value) {
+        if (value == '\n' && flushPolicy == FlushPolicy.EVERY_LINE)
+            lineWritten = true;
+
+        ensure(3);
+        if (value < 0x80) {
+            buffer[count++] = (byte) value;
+        } else if (value < 0x800) {
+            buffer[count++] = (byte) (0xC0 | (value >> 6));
+            buffer[count++] = (byte) (0x80 | (value & 0x3F));
+        } else {
+            buffer[count++] = (byte) (0xE0 | (value >> 12));
+            buffer[count++] = (byte) (0x80 | ((value >> 6) & 0x3F));
+            buffer[count++] = (byte) (0x80 | (value & 0x3F));
+        }
+    }
+
+    // Called by the engines at the end of every DISPLAY statement
+    public void endDisplay() {
+        if (flushPolicy == FlushPolicy.EVERY_DISPLAY || (flushPolicy == FlushPolicy.EVERY_LINE && lineWritten))
+            flush();
+    }
+
+    public void flush() {
+        drain();
+        lineWritten = false;
+        flushOut();
+    }
+
+    public void close() {
+        flush();
+    }
+
+    // Writes bytes to the underlying output
+    protected abstract void writeOut(byte[] bytes, int offset, int length);
+
+    // Pushes bytes written by writeOut through to their destination
+    protected void flushOut() {
+    }
+
+    private void ensure(int length) {
+        if (length > buffer.length - count)
+            drain();
+    }
+
+    private void drain() {
+        if (count > 0) {
+            writeOut(buffer, 0, count);
+            count = 0;
+        }
+    }
+}
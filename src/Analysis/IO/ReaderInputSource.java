@@ -0,0 +1,59 @@
+package Analysis.IO;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+
+// InputSource over a Reader, such as the console or an in-memory string.
+// Reads through one buffer for the whole execution and reuses its line buffer.
+public class ReaderInputSource extends InputSource {
+    private final Reader reader;
+    private final char[] buffer;
+    private final StringBuilder line;
+    private int position;
+    private int limit;
+
+    public ReaderInputSource(Reader reader) {
+        this.reader = reader;
+        this.buffer = new char[8192];
+        this.line = new StringBuilder();
+    }
+
+    @Override
+    public CharSequence readLine() {
+        line.setLength(0);
+        boolean read = false;
+
+        while (true) {
+            if (position == limit && !fill())
+                return read ? line : null;
+            read = true;
+
+            int start = position;
+            while (position < limit && buffer[position] != '\n')
+                position++;
+            line.append(buffer, start, position - start);
+
+            if (position < limit) {
+                position++; // Skip the line break
+                break;
+            }
+        }
+
+        // CRLF line endings
+        if (line.length() > 0 && line.charAt(line.length() - 1) == '\r')
+            line.setLength(line.length() - 1);
+        return line;
+    }
+
+    private boolean fill() {
+        try {
+            int count = reader.read(buffer, 0, buffer.length);
+            position = 0;
+            limit = Math.max(count, 0);
+            return count > 0;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
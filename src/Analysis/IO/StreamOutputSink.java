@@ -0,0 +1,44 @@
+package Analysis.IO;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+
+// OutputSink over an OutputStream, such as the console.
+public class StreamOutputSink extends OutputSink {
+    private final OutputStream stream;
+
+    public StreamOutputSink(OutputStream stream, FlushPolicy flushPolicy) {
+        super(8192, flushPolicy);
+        this.stream = stream;
+    }
+
+    // Buffered console output. On a terminal it is flushed after every DISPLAY so interactive
+    // programs see it immediately; redirected to a file or pipe it is only flushed when the
+    // buffer fills, SCAN still flushes before it waits for input.
+    public static StreamOutputSink stdout() {
+        return stdout(System.console() != null ? FlushPolicy.EVERY_DISPLAY : FlushPolicy.WHEN_FULL);
+    }
+
+    public static StreamOutputSink stdout(FlushPolicy flushPolicy) {
+        return new StreamOutputSink(System.out, flushPolicy);
+    }
+
+    @Override
+    protected void writeOut(byte[] bytes, int offset, int length) {
+        try {
+            stream.write(bytes, offset, length);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    protected void flushOut() {
+        try {
+            stream.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
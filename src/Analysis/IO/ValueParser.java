@@ -0,0 +1,115 @@
+package Analysis.IO;
+
+import Analysis.Type.DataType;
+
+// Hand-written parser for the values accepted by SCAN: INT (12, -3), FLOAT
+// (1.5, -.25), CHAR ('c' or an escape such as '[#]') and BOOL ("TRUE",
+// "FALSE"). The parsed value is kept in the Value encoding, so only FLOAT
+// input allocates.
+public final class ValueParser {
+    private long value;
+
+    // Parses text[start, end) and returns its type, or null if it is not a valid value
+    public DataType parse(CharSequence text, int start, int end) {
+        int length = end - start;
+        if (length <= 0)
+            return null;
+
+        char first = text.charAt(start);
+        if (first == '\'')
+            return parseChar(text, start, end);
+        if (first == '"')
+            return parseBool(text, start, end);
+        return parseNumber(text, start, end);
+    }
+
+    // Value of the last successful parse
+    public long getValue() {
+        return value;
+    }
+
+    private DataType parseChar(CharSequence text, int start, int end) {
+        int length = end - start;
+        if (text.charAt(end - 1) != '\'')
+            return null;
+
+        // 'c'
+        if (length == 3 && text.charAt(start + 1) != '\'') {
+            value = text.charAt(start + 1);
+            return DataType.Char;
+        }
+        // '[c]' where c is one of the reserved symbols
+        if (length == 5 && text.charAt(start + 1) == '[' && text.charAt(start + 3) == ']'
+                && "[]&$#'".indexOf(text.charAt(start + 2)) >= 0) {
+            value = text.charAt(start + 2);
+            return DataType.Char;
+        }
+        return null;
+    }
+
+    private DataType parseBool(CharSequence text, int start, int end) {
+        if (matches(text, start, end, "\"TRUE\"")) {
+            value = 1;
+            return DataType.Bool;
+        }
+        if (matches(text, start, end, "\"FALSE\"")) {
+            value = 0;
+            return DataType.Bool;
+        }
+        return null;
+    }
+
+    private DataType parseNumber(CharSequence text, int start, int end) {
+        int index = start;
+        boolean negative = false;
+
+        if (text.charAt(index) == '+' || text.charAt(index) == '-') {
+            negative = text.charAt(index) == '-';
+            index++;
+        }
+
+        long number = 0;
+        int digits = 0;
+        while (index < end && isDigit(text.charAt(index))) {
+            number = number * 10 + (text.charAt(index) - '0');
+            // Beyond the INT range, fails below unless it turns out to be a FLOAT
+            if (number > Integer.MAX_VALUE + 1L)
+                number = Integer.MAX_VALUE + 2L;
+            index++;
+            digits++;
+        }
+
+        if (index == end) {
+            if (digits == 0 || number > Integer.MAX_VALUE + (negative ? 1L : 0L))
+                return null;
+            value = (int) (negative ? -number : number);
+            return DataType.Int;
+        }
+
+        // FLOAT needs at least one digit after the point
+        if (text.charAt(index) != '.')
+            return null;
+        int point = ++index;
+        while (index < end && isDigit(text.charAt(index)))
+            index++;
+        if (index != end || index == point)
+            return null;
+
+        value = Double.doubleToRawLongBits(Double.parseDouble(text.subSequence(start, end).toString()));
+        return DataType.Float;
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    private static boolean matches(CharSequence text, int start, int end, String expected) {
+        if (end - start != expected.length())
+            return false;
+        for (int i = 0; i < expected.length(); i++) {
+            if (text.charAt(start + i) != expected.charAt(i))
+                return false;
+        }
+        return true;
+    }
+}
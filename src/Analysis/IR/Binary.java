@@ -0,0 +1,66 @@
+package Analysis.IR;
+
+import Analysis.Type.DataType;
+import Analysis.Type.TokenType;
+
+// Operator over two operands of the same type. Mixed INT / FLOAT operands are
+// promoted with Convert when lowering, so the operand type is the left's type.
+// AND / OR only evaluate the right operand when the left one does not decide.
+public class Binary extends Expression {
+    private final TokenType operator;
+    private final Expression left;
+    private final Expression right;
+
+    public Binary(TokenType operator, Expression left, Expression right, DataType type, int offset) {
+        super(type, offset);
+        this.operator = operator;
+        this.left = left;
+        this.right = right;
+    }
+
+    public TokenType getOperator() {
+        return operator;
+    }
+
+    public Expression getLeft() {
+        return left;
+    }
+
+    public Expression getRight() {
+        return right;
+    }
+
+    public DataType getOperandType() {
+        return left.getType();
+    }
+
+    public Binary with(Expression left, Expression right) {
+        if (left == this.left && right == this.right)
+            return this;
+        return new Binary(operator, left, right, getType(), getOffset());
+    }
+
+    @Override
+    public int size() {
+        return 1 + left.size() + right.size();
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        if (!(other instanceof Binary))
+            return false;
+        Binary binary = (Binary) other;
+        return binary.operator == operator && binary.getType() == getType()
+                && binary.left.equals(left) && binary.right.equals(right);
+    }
+
+    @Override
+    public int hashCode() {
+        return (operator.hashCode() * 31 + left.hashCode()) * 31 + right.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return "(" + left + " " + operator + " " + right + ")";
+    }
+}
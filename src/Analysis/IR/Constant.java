@@ -0,0 +1,72 @@
+package Analysis.IR;
+
+import Analysis.Type.DataType;
+
+// INT, FLOAT, CHAR or BOOL value, kept in the same long encoding the VirtualMachine
+// uses on its stack: integral values as they are and FLOAT values as double bits.
+public class Constant extends Expression {
+    private final long bits;
+
+    public Constant(DataType type, long bits, int offset) {
+        super(type, offset);
+        this.bits = bits;
+    }
+
+    public static Constant ofInt(int value, int offset) {
+        return new Constant(DataType.Int, value, offset);
+    }
+
+    public static Constant ofFloat(double value, int offset) {
+        return new Constant(DataType.Float, Double.doubleToRawLongBits(value), offset);
+    }
+
+    public static Constant ofBool(boolean value, int offset) {
+        return new Constant(DataType.Bool, value ? 1 : 0, offset);
+    }
+
+    public long getBits() {
+        return bits;
+    }
+
+    public int asInt() {
+        return (int) bits;
+    }
+
+    // INT constants are promoted
+    public double asFloat() {
+        return getType() == DataType.Float ? Double.longBitsToDouble(bits) : (int) bits;
+    }
+
+    public boolean asBool() {
+        return bits != 0;
+    }
+
+    @Override
+    public int size() {
+        return 1;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        return other instanceof Constant && ((Constant) other).getType() == getType() && ((Constant) other).bits == bits;
+    }
+
+    @Override
+    public int hashCode() {
+        return getType().hashCode() * 31 + Long.hashCode(bits);
+    }
+
+    @Override
+    public String toString() {
+        switch (getType()) {
+            case Float:
+                return String.valueOf(asFloat());
+            case Char:
+                return "'" + (char) bits + "'";
+            case Bool:
+                return asBool() ? "TRUE" : "FALSE";
+            default:
+                return String.valueOf(bits);
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package Analysis.IR;
+
+import Analysis.Type.DataType;
+
+// Promotes an INT operand to FLOAT
+public class Convert extends Expression {
+    private final Expression operand;
+
+    public Convert(Expression operand, int offset) {
+        super(DataType.Float, offset);
+        this.operand = operand;
+    }
+
+    public Expression getOperand() {
+        return operand;
+    }
+
+    public Convert with(Expression operand) {
+        return operand == this.operand ? this : new Convert(operand, getOffset());
+    }
+
+    @Override
+    public int size() {
+        return 1 + operand.size();
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        return other instanceof Convert && ((Convert) other).operand.equals(operand);
+    }
+
+    @Override
+    public int hashCode() {
+        return operand.hashCode() * 31 + 7;
+    }
+
+    @Override
+    public String toString() {
+        return "float(" + operand + ")";
+    }
+}
@@ -0,0 +1,30 @@
+package Analysis.IR;
+
+import java.util.List;
+
+// Writes each item, Text or a value, and then ends the line of output
+public class Display extends Statement {
+    private final List<Expression> items;
+
+    public Display(List<Expression> items, int offset) {
+        super(offset);
+        this.items = items;
+    }
+
+    public List<Expression> getItems() {
+        return items;
+    }
+
+    @Override
+    public int size() {
+        int size = 1;
+        for (Expression item : items)
+            size += item.size();
+        return size;
+    }
+
+    @Override
+    public String toString() {
+        return "display " + items;
+    }
+}
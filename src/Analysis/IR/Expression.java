@@ -0,0 +1,28 @@
+package Analysis.IR;
+
+import Analysis.Type.DataType;
+
+// Value computing node of the IR. Expressions are immutable, passes rewrite them
+// by building new nodes, so a subtree can safely be shared between statements.
+// Two expressions are equal when they compute the same thing the same way,
+// whatever their source positions.
+public abstract class Expression {
+    private final DataType type;
+    private final int offset; // Source offset used for error positions
+
+    protected Expression(DataType type, int offset) {
+        this.type = type;
+        this.offset = offset;
+    }
+
+    public DataType getType() {
+        return type;
+    }
+
+    public int getOffset() {
+        return offset;
+    }
+
+    // Number of nodes in the expression tree
+    public abstract int size();
+}
@@ -0,0 +1,99 @@
+package Analysis.IR;
+
+import Analysis.Syntax.LineMap;
+import Analysis.Type.DataType;
+import java.util.BitSet;
+import java.util.List;
+
+// Program in the intermediate representation: a structured, typed tree of
+// statements over numbered slots, between Semantic and the bytecode Compiler.
+// The first slots are the declared variables in SymbolTable order, passes may
+// add temporaries after them.
+public class IRProgram {
+    private final List<Statement> statements;
+    private final List<String> slotNames;
+    private final List<DataType> slotTypes;
+    private final int variableCount;
+    private final LineMap lineMap; // Resolves node offsets for error messages, may be null
+    private BitSet assignedOnEntry; // Slots that have values before the first statement runs
+
+    public IRProgram(List<Statement> statements, List<String> slotNames, List<DataType> slotTypes, int variableCount, LineMap lineMap) {
+        this.statements = statements;
+        this.slotNames = slotNames;
+        this.slotTypes = slotTypes;
+        this.variableCount = variableCount;
+        this.lineMap = lineMap;
+        this.assignedOnEntry = new BitSet();
+    }
+
+    public List<Statement> getStatements() {
+        return statements;
+    }
+
+    public int getSlotCount() {
+        return slotTypes.size();
+    }
+
+    public String getSlotName(int slot) {
+        return slotNames.get(slot);
+    }
+
+    public DataType getSlotType(int slot) {
+        return slotTypes.get(slot);
+    }
+
+    public int getVariableCount() {
+        return variableCount;
+    }
+
+    public boolean isTemporary(int slot) {
+        return slot >= variableCount;
+    }
+
+    // Adds a slot that is always stored before it is loaded
+    public int addTemporary(DataType type) {
+        int slot = slotTypes.size();
+        slotNames.add("$t" + (slot - variableCount));
+        slotTypes.add(type);
+        return slot;
+    }
+
+    public LineMap getLineMap() {
+        return lineMap;
+    }
+
+    // Empty for a whole program. A part of a program lowered on its own, such as a
+    // loop compiled while the program runs, starts with some variables assigned.
+    public BitSet getAssignedOnEntry() {
+        return assignedOnEntry;
+    }
+
+    public void setAssignedOnEntry(BitSet assignedOnEntry) {
+        this.assignedOnEntry = assignedOnEntry;
+    }
+
+    public int size() {
+        return Statement.size(statements);
+    }
+
+    // Indented listing of the program, one statement per line
+    public String dump() {
+        StringBuilder result = new StringBuilder();
+        dump(result, statements, 0);
+        return result.toString();
+    }
+
+    private void dump(StringBuilder result, List<Statement> block, int depth) {
+        for (Statement statement : block) {
+            result.append("  ".repeat(depth)).append(statement).append('\n');
+            if (statement instanceof If) {
+                dump(result, ((If) statement).getThenBlock(), depth + 1);
+                if (!((If) statement).getElseBlock().isEmpty()) {
+                    result.append("  ".repeat(depth)).append("else\n");
+                    dump(result, ((If) statement).getElseBlock(), depth + 1);
+                }
+            } else if (statement instanceof While)
+                dump(result, ((While) statement).getBody(), depth + 1);
+        }
+    }
+}
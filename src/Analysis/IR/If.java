@@ -0,0 +1,44 @@
+package Analysis.IR;
+
+import java.util.List;
+
+// Runs thenBlock when the BOOL condition holds and elseBlock otherwise.
+// ELSE IF chains are lowered into nested Ifs in the elseBlock.
+public class If extends Statement {
+    private Expression condition;
+    private final List<Statement> thenBlock;
+    private final List<Statement> elseBlock;
+
+    public If(Expression condition, List<Statement> thenBlock, List<Statement> elseBlock, int offset) {
+        super(offset);
+        this.condition = condition;
+        this.thenBlock = thenBlock;
+        this.elseBlock = elseBlock;
+    }
+
+    public Expression getCondition() {
+        return condition;
+    }
+
+    public void setCondition(Expression condition) {
+        this.condition = condition;
+    }
+
+    public List<Statement> getThenBlock() {
+        return thenBlock;
+    }
+
+    public List<Statement> getElseBlock() {
+        return elseBlock;
+    }
+
+    @Override
+    public int size() {
+        return 1 + condition.size() + size(thenBlock) + size(elseBlock);
+    }
+
+    @Override
+    public String toString() {
+        return "if " + condition;
+    }
+}
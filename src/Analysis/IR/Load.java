@@ -0,0 +1,37 @@
+package Analysis.IR;
+
+import Analysis.Type.DataType;
+
+// Reads a variable or temporary slot, failing at runtime if it was never assigned
+public class Load extends Expression {
+    private final int slot;
+
+    public Load(int slot, DataType type, int offset) {
+        super(type, offset);
+        this.slot = slot;
+    }
+
+    public int getSlot() {
+        return slot;
+    }
+
+    @Override
+    public int size() {
+        return 1;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        return other instanceof Load && ((Load) other).slot == slot;
+    }
+
+    @Override
+    public int hashCode() {
+        return slot;
+    }
+
+    @Override
+    public String toString() {
+        return "$" + slot;
+    }
+}
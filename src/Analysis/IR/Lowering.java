@@ -0,0 +1,265 @@
+package Analysis.IR;
+
+import Analysis.Syntax.Grammar;
+import Analysis.Syntax.LineMap;
+import Analysis.Syntax.Token;
+import Analysis.Table.SymbolTable;
+import Analysis.Tree.ProgramNode;
+import Analysis.Tree.Expression.BinaryNode;
+import Analysis.Tree.Expression.ExpressionNode;
+import Analysis.Tree.Expression.IdentifierNode;
+import Analysis.Tree.Expression.LiteralNode;
+import Analysis.Tree.Expression.ParenthesisNode;
+import Analysis.Tree.Expression.UnaryNode;
+import Analysis.Tree.Statement.*;
+import Analysis.Type.DataType;
+import Analysis.Type.TokenType;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+// Lowers a ProgramNode checked by Semantic into an IRProgram. Every expression
+// node must carry the DataType and slot recorded by Semantic.analyze. Implicit
+// INT to FLOAT promotions become explicit Convert nodes and parentheses, which
+// the tree already encodes, are dropped.
+public class Lowering {
+    private final List<String> slotNames;
+    private final List<DataType> slotTypes;
+    private final int variableCount;
+    private LineMap lineMap;
+
+    public Lowering(SymbolTable symbolTable) {
+        this.slotNames = new ArrayList<>();
+        this.slotTypes = new ArrayList<>();
+        for (int slot = 0; slot < symbolTable.size(); slot++) {
+            slotNames.add(symbolTable.getName(slot));
+            slotTypes.add(symbolTable.getType(slot));
+        }
+        this.variableCount = slotTypes.size();
+    }
+
+    // Lowers against the slots of a running program, which may include its temporaries
+    public Lowering(String[] slotNames, DataType[] slotTypes) {
+        this.slotNames = new ArrayList<>(Arrays.asList(slotNames));
+        this.slotTypes = new ArrayList<>(Arrays.asList(slotTypes));
+        this.variableCount = slotTypes.length;
+    }
+
+    public IRProgram lower(ProgramNode program) {
+        List<Statement> statements = lowerBlock(program);
+        return new IRProgram(statements, slotNames, slotTypes, variableCount, lineMap);
+    }
+
+    private List<Statement> lowerBlock(ProgramNode block) {
+        List<Statement> statements = new ArrayList<>();
+        for (StatementNode statement : block.getStatements()) {
+            if (statement instanceof VariableDeclarationNode)
+                lowerVariableDeclaration((VariableDeclarationNode) statement, statements);
+            else if (statement instanceof AssignmentNode)
+                lowerAssignment((AssignmentNode) statement, statements);
+            else if (statement instanceof DisplayNode)
+                statements.add(lowerDisplay((DisplayNode) statement));
+            else if (statement instanceof ScanNode)
+                statements.add(new Scan(((ScanNode) statement).getSlots(), offset(((ScanNode) statement).getScanToken())));
+            else if (statement instanceof ConditionalNode)
+                statements.add(lowerCondition((ConditionalNode) statement, 0));
+            else if (statement instanceof LoopNode)
+                statements.add(lowerLoop((LoopNode) statement));
+        }
+        return statements;
+    }
+
+    private void lowerVariableDeclaration(VariableDeclarationNode statement, List<Statement> statements) {
+        DataType dataType = Grammar.getDataType(statement.getDataTypeToken().getTokenType());
+        int offset = offset(statement.getDataTypeToken());
+
+        // Variables without an initial value stay undefined until assigned
+        for (Map.Entry<String, ExpressionNode> entry : statement.getVariables().entrySet()) {
+            if (entry.getValue() != null)
+                statements.add(new Store(statement.getSlot(entry.getKey()), lowerExpression(entry.getValue(), dataType), offset));
+        }
+    }
+
+    // x = y = value evaluates value again for each target, from left to right, so
+    // x = y = -x stores -x in x and then the negation of the new x in y. When value
+    // reads none of the targets written before its last evaluation every evaluation
+    // gives the same result and it is evaluated once instead: targets of the same
+    // type copy the first target, a FLOAT target next to an INT one copies a temporary.
+    private void lowerAssignment(AssignmentNode statement, List<Statement> statements) {
+        int[] slots = statement.getSlots();
+        Expression value = lowerExpression(statement.getExpression());
+
+        boolean readsTarget = false;
+        for (int i = 0; i < slots.length - 1; i++)
+            readsTarget |= reads(value, slots[i]);
+
+        if (readsTarget) {
+            for (int i = 0; i < slots.length; i++) {
+                Expression evaluated = i == 0 ? value : lowerExpression(statement.getExpression());
+                statements.add(new Store(slots[i], promote(evaluated, slotTypes.get(slots[i])),
+                        offset(statement.getEqualsTokens().get(i))));
+            }
+            return;
+        }
+
+        boolean sameTypes = true;
+        for (int slot : slots)
+            sameTypes &= slotTypes.get(slot) == slotTypes.get(slots[0]);
+
+        int source = slots[0];
+        if (!sameTypes) {
+            source = slotTypes.size();
+            slotNames.add("$t" + (source - variableCount));
+            slotTypes.add(value.getType());
+            statements.add(new Store(source, value, value.getOffset()));
+        }
+
+        for (int i = 0; i < slots.length; i++) {
+            int offset = offset(statement.getEqualsTokens().get(i));
+            Expression stored = i == 0 && sameTypes ? value : new Load(source, slotTypes.get(source), offset);
+            statements.add(new Store(slots[i], promote(stored, slotTypes.get(slots[i])), offset));
+        }
+    }
+
+    private static boolean reads(Expression expression, int slot) {
+        if (expression instanceof Load)
+            return ((Load) expression).getSlot() == slot;
+        if (expression instanceof Binary)
+            return reads(((Binary) expression).getLeft(), slot) || reads(((Binary) expression).getRight(), slot);
+        if (expression instanceof Unary)
+            return reads(((Unary) expression).getOperand(), slot);
+        if (expression instanceof Convert)
+            return reads(((Convert) expression).getOperand(), slot);
+        return false;
+    }
+
+    private Display lowerDisplay(DisplayNode statement) {
+        List<Expression> items = new ArrayList<>();
+        for (ExpressionNode expression : statement.getExpressions()) {
+            ExpressionNode inner = unwrap(expression);
+
+            // Literal fragments are written as they are
+            if (inner instanceof LiteralNode && isText(((LiteralNode) inner).getLiteral()))
+                items.add(new Text(String.valueOf(((LiteralNode) inner).getLiteral()), offset(((LiteralNode) inner).getLiteralToken())));
+            else
+                items.add(lowerExpression(expression));
+        }
+        return new Display(items, offset(statement.getDisplayToken()));
+    }
+
+    // IF / ELSE IF / ELSE ladders become Ifs nested in the else blocks
+    private Statement lowerCondition(ConditionalNode statement, int index) {
+        ExpressionNode expression = statement.getExpressions().get(index);
+        List<Statement> thenBlock = lowerBlock(statement.getStatements().get(index));
+        int offset = offset(statement.getTokens().get(index));
+
+        List<Statement> elseBlock = new ArrayList<>();
+        if (index + 1 < statement.getExpressions().size()) {
+            if (statement.getExpressions().get(index + 1) == null)
+                elseBlock = lowerBlock(statement.getStatements().get(index + 1));
+            else
+                elseBlock.add(lowerCondition(statement, index + 1));
+        }
+        return new If(lowerExpression(expression), thenBlock, elseBlock, offset);
+    }
+
+    private While lowerLoop(LoopNode statement) {
+        int offset = offset(statement.getWhileToken());
+        return new While(lowerExpression(statement.getExpression()), lowerBlock(statement.getStatement()), offset);
+    }
+
+    // Lowers the expression and promotes an INT result when a FLOAT is expected
+    private Expression lowerExpression(ExpressionNode expression, DataType expected) {
+        return promote(lowerExpression(expression), expected);
+    }
+
+    private Expression lowerExpression(ExpressionNode expression) {
+        if (expression instanceof BinaryNode)
+            return lowerBinaryExpression((BinaryNode) expression);
+        else if (expression instanceof UnaryNode)
+            return lowerUnaryExpression((UnaryNode) expression);
+        else if (expression instanceof ParenthesisNode)
+            return lowerExpression(((ParenthesisNode) expression).getExpression());
+        else if (expression instanceof IdentifierNode) {
+            IdentifierNode identifier = (IdentifierNode) expression;
+            return new Load(identifier.getSlot(), identifier.getDataType(), offset(identifier.getIdentifierToken()));
+        } else if (expression instanceof LiteralNode)
+            return lowerLiteralExpression((LiteralNode) expression);
+        else
+            throw new RuntimeException("Unknown expression.");
+    }
+
+    private Expression lowerBinaryExpression(BinaryNode expression) {
+        Token operator = expression.getTokenOperator();
+        TokenType operatorType = operator.getTokenType();
+        int offset = offset(operator);
+        DataType leftType = expression.getLeft().getDataType();
+        DataType rightType = expression.getRight().getDataType();
+
+        if (operatorType == TokenType.AND || operatorType == TokenType.OR)
+            return new Binary(operatorType, lowerExpression(expression.getLeft()), lowerExpression(expression.getRight()), expression.getDataType(), offset);
+
+        if (leftType == DataType.String || rightType == DataType.String)
+            throw error(operator, "Operator '" + operator.getCode() + "' cannot be applied to operands of type " + leftType + " and " + rightType);
+
+        // Mixed INT / FLOAT operands are evaluated as FLOAT
+        boolean isFloat = leftType == DataType.Float || rightType == DataType.Float;
+        Expression left = lowerExpression(expression.getLeft(), isFloat ? DataType.Float : leftType);
+        Expression right = lowerExpression(expression.getRight(), isFloat ? DataType.Float : rightType);
+        return new Binary(operatorType, left, right, expression.getDataType(), offset);
+    }
+
+    private Expression lowerUnaryExpression(UnaryNode expression) {
+        Expression operand = lowerExpression(expression.getExpression());
+        TokenType operatorType = expression.getTokenOperator().getTokenType();
+        if (operatorType != TokenType.MINUS && operatorType != TokenType.NOT)
+            return operand;
+        return new Unary(operatorType, operand, expression.getDataType(), offset(expression.getTokenOperator()));
+    }
+
+    private Expression lowerLiteralExpression(LiteralNode expression) {
+        Object literal = expression.getLiteral();
+        int offset = offset(expression.getLiteralToken());
+
+        if (literal instanceof Integer)
+            return Constant.ofInt((Integer) literal, offset);
+        else if (literal instanceof Float || literal instanceof Double)
+            return Constant.ofFloat(((Number) literal).doubleValue(), offset);
+        else if (literal instanceof Character)
+            return new Constant(DataType.Char, (Character) literal, offset);
+        else if (literal instanceof Boolean)
+            return Constant.ofBool((Boolean) literal, offset);
+        else
+            throw error(expression.getLiteralToken(), "Unable to use " + expression.getDataType() + " literal in an expression.");
+    }
+
+    private static Expression promote(Expression expression, DataType expected) {
+        if (expected == DataType.Float && expression.getType() == DataType.Int)
+            return new Convert(expression, expression.getOffset());
+        return expression;
+    }
+
+    private static ExpressionNode unwrap(ExpressionNode expression) {
+        while (expression instanceof ParenthesisNode)
+            expression = ((ParenthesisNode) expression).getExpression();
+        return expression;
+    }
+
+    private static boolean isText(Object literal) {
+        return literal instanceof String || literal instanceof Character;
+    }
+
+    // Source offset of the token, remembering its LineMap for the program
+    private int offset(Token token) {
+        if (token == null)
+            return 0;
+        if (lineMap == null)
+            lineMap = token.getLineMap();
+        return token.getOffset();
+    }
+
+    private RuntimeException error(Token token, String message) {
+        return new RuntimeException("(" + token.getLine() + "," + token.getColumn() + "): " + message);
+    }
+}
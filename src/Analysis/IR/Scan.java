@@ -0,0 +1,27 @@
+package Analysis.IR;
+
+import java.util.Arrays;
+
+// Reads one line of comma separated values into the slots
+public class Scan extends Statement {
+    private final int[] slots;
+
+    public Scan(int[] slots, int offset) {
+        super(offset);
+        this.slots = slots;
+    }
+
+    public int[] getSlots() {
+        return slots;
+    }
+
+    @Override
+    public int size() {
+        return 1;
+    }
+
+    @Override
+    public String toString() {
+        return "scan " + Arrays.toString(slots);
+    }
+}
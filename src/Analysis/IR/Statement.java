@@ -0,0 +1,25 @@
+package Analysis.IR;
+
+// Statement of the IR. Blocks are plain mutable lists of statements,
+// so passes can insert, replace and remove statements in place.
+public abstract class Statement {
+    private final int offset; // Source offset used for error positions
+
+    protected Statement(int offset) {
+        this.offset = offset;
+    }
+
+    public int getOffset() {
+        return offset;
+    }
+
+    // Number of nodes in the statement, its expressions and nested blocks
+    public abstract int size();
+
+    static int size(Iterable<Statement> block) {
+        int size = 0;
+        for (Statement statement : block)
+            size += statement.size();
+        return size;
+    }
+}
@@ -0,0 +1,35 @@
+package Analysis.IR;
+
+// Assigns a value of the slot's type to a variable or temporary slot
+public class Store extends Statement {
+    private final int slot;
+    private Expression value;
+
+    public Store(int slot, Expression value, int offset) {
+        super(offset);
+        this.slot = slot;
+        this.value = value;
+    }
+
+    public int getSlot() {
+        return slot;
+    }
+
+    public Expression getValue() {
+        return value;
+    }
+
+    public void setValue(Expression value) {
+        this.value = value;
+    }
+
+    @Override
+    public int size() {
+        return 1 + value.size();
+    }
+
+    @Override
+    public String toString() {
+        return "$" + slot + " = " + value;
+    }
+}
@@ -0,0 +1,37 @@
+package Analysis.IR;
+
+import Analysis.Type.DataType;
+
+// Literal text written by DISPLAY, it only appears as a Display item
+public class Text extends Expression {
+    private final String text;
+
+    public Text(String text, int offset) {
+        super(DataType.String, offset);
+        this.text = text;
+    }
+
+    public String getText() {
+        return text;
+    }
+
+    @Override
+    public int size() {
+        return 1;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        return other instanceof Text && ((Text) other).text.equals(text);
+    }
+
+    @Override
+    public int hashCode() {
+        return text.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return "\"" + text.replace("\n", "\\n") + "\"";
+    }
+}
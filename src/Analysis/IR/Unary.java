@@ -0,0 +1,51 @@
+package Analysis.IR;
+
+import Analysis.Type.DataType;
+import Analysis.Type.TokenType;
+
+// MINUS or NOT applied to one operand of the result type
+public class Unary extends Expression {
+    private final TokenType operator;
+    private final Expression operand;
+
+    public Unary(TokenType operator, Expression operand, DataType type, int offset) {
+        super(type, offset);
+        this.operator = operator;
+        this.operand = operand;
+    }
+
+    public TokenType getOperator() {
+        return operator;
+    }
+
+    public Expression getOperand() {
+        return operand;
+    }
+
+    public Unary with(Expression operand) {
+        return operand == this.operand ? this : new Unary(operator, operand, getType(), getOffset());
+    }
+
+    @Override
+    public int size() {
+        return 1 + operand.size();
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        if (!(other instanceof Unary))
+            return false;
+        Unary unary = (Unary) other;
+        return unary.operator == operator && unary.getType() == getType() && unary.operand.equals(operand);
+    }
+
+    @Override
+    public int hashCode() {
+        return operator.hashCode() * 31 + operand.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return (operator == TokenType.NOT ? "NOT " : "-") + operand;
+    }
+}
@@ -0,0 +1,111 @@
+package Analysis.IR;
+
+import Analysis.Syntax.Grammar;
+import Analysis.Type.DataType;
+import Analysis.Type.TokenType;
+import java.util.List;
+
+// Checks the invariants the Compiler relies on: slots exist, every Store and
+// Load agrees with its slot's type, operands are typed for their operator and
+// conditions are BOOL. Run on a freshly lowered program and after every pass.
+public class Verifier {
+    private final IRProgram program;
+    private final String stage;
+
+    private Verifier(IRProgram program, String stage) {
+        this.program = program;
+        this.stage = stage;
+    }
+
+    // Throws IllegalStateException naming the stage that produced the broken program
+    public static void verify(IRProgram program, String stage) {
+        new Verifier(program, stage).verifyBlock(program.getStatements());
+    }
+
+    private void verifyBlock(List<Statement> block) {
+        for (Statement statement : block) {
+            if (statement instanceof Store) {
+                Store store = (Store) statement;
+                checkSlot(store.getSlot(), statement);
+                verifyExpression(store.getValue());
+                check(store.getValue().getType() == program.getSlotType(store.getSlot()), statement,
+                        "stores " + store.getValue().getType() + " in " + program.getSlotType(store.getSlot()) + " slot");
+            } else if (statement instanceof Display) {
+                for (Expression item : ((Display) statement).getItems()) {
+                    if (!(item instanceof Text))
+                        verifyExpression(item);
+                }
+            } else if (statement instanceof Scan) {
+                for (int slot : ((Scan) statement).getSlots())
+                    checkSlot(slot, statement);
+            } else if (statement instanceof If) {
+                If branch = (If) statement;
+                verifyCondition(branch.getCondition(), statement);
+                verifyBlock(branch.getThenBlock());
+                verifyBlock(branch.getElseBlock());
+            } else if (statement instanceof While) {
+                While loop = (While) statement;
+                verifyCondition(loop.getCondition(), statement);
+                verifyBlock(loop.getBody());
+            } else
+                check(false, statement, "unknown statement");
+        }
+    }
+
+    private void verifyCondition(Expression condition, Statement statement) {
+        verifyExpression(condition);
+        check(condition.getType() == DataType.Bool, statement, "condition is " + condition.getType());
+    }
+
+    private void verifyExpression(Expression expression) {
+        check(expression.getType() != null && expression.getType() != DataType.String, expression, "has no value type");
+
+        if (expression instanceof Load) {
+            Load load = (Load) expression;
+            checkSlot(load.getSlot(), expression);
+            check(load.getType() == program.getSlotType(load.getSlot()), expression, "loads " + program.getSlotType(load.getSlot()) + " slot as " + load.getType());
+        } else if (expression instanceof Convert) {
+            Expression operand = ((Convert) expression).getOperand();
+            verifyExpression(operand);
+            check(operand.getType() == DataType.Int, expression, "converts " + operand.getType());
+        } else if (expression instanceof Unary) {
+            Unary unary = (Unary) expression;
+            DataType operandType = unary.getOperand().getType();
+            verifyExpression(unary.getOperand());
+            if (unary.getOperator() == TokenType.NOT)
+                check(operandType == DataType.Bool && unary.getType() == DataType.Bool, expression, "NOT of " + operandType);
+            else
+                check(unary.getOperator() == TokenType.MINUS && operandType == unary.getType(), expression, "negates " + operandType + " to " + unary.getType());
+        } else if (expression instanceof Binary) {
+            verifyBinary((Binary) expression);
+        } else
+            check(expression instanceof Constant, expression, "unknown expression");
+    }
+
+    private void verifyBinary(Binary binary) {
+        TokenType operator = binary.getOperator();
+        DataType operandType = binary.getOperandType();
+        verifyExpression(binary.getLeft());
+        verifyExpression(binary.getRight());
+
+        check(binary.getRight().getType() == operandType, binary, "mixes " + operandType + " and " + binary.getRight().getType());
+        if (operator == TokenType.AND || operator == TokenType.OR)
+            check(operandType != DataType.Float && binary.getType() == operandType, binary, operator + " of " + operandType);
+        else if (Grammar.isComparisonOperator(operator))
+            check(binary.getType() == DataType.Bool, binary, "comparison results in " + binary.getType());
+        else if (Grammar.isArithmeticOperator(operator))
+            check((operandType == DataType.Int || operandType == DataType.Float) && binary.getType() == operandType, binary,
+                    operator + " of " + operandType + " results in " + binary.getType());
+        else
+            check(false, binary, "unknown operator " + operator);
+    }
+
+    private void checkSlot(int slot, Object node) {
+        check(slot >= 0 && slot < program.getSlotCount(), node, "uses missing slot " + slot);
+    }
+
+    private void check(boolean condition, Object node, String message) {
+        if (!condition)
+            throw new IllegalStateException("Invalid IR after " + stage + ": '" + node + "' " + message + ".");
+    }
+}
@@ -0,0 +1,37 @@
+package Analysis.IR;
+
+import java.util.List;
+
+// Runs the body for as long as the BOOL condition holds
+public class While extends Statement {
+    private Expression condition;
+    private final List<Statement> body;
+
+    public While(Expression condition, List<Statement> body, int offset) {
+        super(offset);
+        this.condition = condition;
+        this.body = body;
+    }
+
+    public Expression getCondition() {
+        return condition;
+    }
+
+    public void setCondition(Expression condition) {
+        this.condition = condition;
+    }
+
+    public List<Statement> getBody() {
+        return body;
+    }
+
+    @Override
+    public int size() {
+        return 1 + condition.size() + size(body);
+    }
+
+    @Override
+    public String toString() {
+        return "while " + condition;
+    }
+}
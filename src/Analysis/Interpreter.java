@@ -4,255 +4,444 @@ package Analysis;
 
 import Analysis.Tree.*;
 import Analysis.Table.*;
-import Analysis.Tree.Expression.ExpressionNode;
-import Analysis.Tree.Expression.BinaryNode;
-import Analysis.Tree.Expression.UnaryNode;
-import Analysis.Tree.Expression.ParenthesisNode;
-import Analysis.Tree.Expression.IdentifierNode;
-import Analysis.Tree.Expression.LiteralNode;
 import Analysis.Tree.Statement.*;
-import Analysis.Type.TokenType;
+import Analysis.Type.DataType;
 import Analysis.Table.VariableTable;
+import java.util.ArrayList;
 import java.util.List;
 import Analysis.Syntax.*;
-import java.util.Map;
 
 import Analysis.Syntax.*;
+import Analysis.IO.InputSource;
+import Analysis.IO.OutputSink;
+import Analysis.JVM.JvmProgram;
+import Analysis.Optimize.ConstantFolder;
+
+// Runs a program by walking its AST. A compiled program is walked in place in its
+// FlatTree; while parsing, the nodes evaluate themselves, see Frame.
+//
+// Walking the FlatTree dispatches on every node, where the JVM inlines the calls
+// between specialized nodes, so without tiering a loop that keeps going is decoded
+// into nodes, which run the rest of it and its later entries. The nodes are kept
+// by the CompiledProgram, so a loop is decoded once however many executions run it.
+public class Interpreter implements Frame {
+    // Iterations a loop of the FlatTree runs before it is decoded
+    private static final int DECODE_THRESHOLD = 100;
+
+    private final Execution execution; // null when executing while parsing
+    private final VariableTable variableTable;
+    private final FlatTree tree; // null when executing while parsing
+    private final boolean treeWalking;
+    private final InputSource input;
+    private final OutputSink output;
+    private String[] slotNames;
+    private final LoopTiering tiering; // null when loops always stay in the Interpreter
+
+    public Interpreter(String code) throws Exception {
+        this(code, false);
+    }
 
-public class Interpreter {
-    private VariableTable variableTable;
-    private ProgramNode program;
+    // treeWalking runs the program by walking the AST instead of the bytecode VirtualMachine
+    public Interpreter(String code, boolean treeWalking) throws Exception {
+        this(new Execution(CompiledProgram.compile(code)), treeWalking);
+    }
 
-    public Interpreter(String code) throws Exception{
-        Lexer lex = new Lexer(code);
+    // Walks the AST of the execution's program using its variables and I/O
+    public Interpreter(Execution execution) {
+        this(execution, true, null);
+    }
+
+    // Walks the AST, promoting hot loops to JVM code with tiering
+    public Interpreter(Execution execution, LoopTiering tiering) {
+        this(execution, true, tiering);
+    }
+
+    private Interpreter(Execution execution, boolean treeWalking) {
+        this(execution, treeWalking, null);
+    }
+
+    private Interpreter(Execution execution, boolean treeWalking, LoopTiering tiering) {
+        this.execution = execution;
+        this.variableTable = execution.getVariableTable();
+        this.tree = execution.getProgram().getTree();
+        this.treeWalking = treeWalking;
+        this.input = execution.getInput();
+        this.output = execution.getOutput();
+        this.slotNames = execution.getProgram().getChunk().getSlotNames();
+        this.tiering = tiering;
+    }
 
-        Parser parser = new Parser(lex);
+    private Interpreter(InputSource input, OutputSink output) {
+        this.execution = null;
+        this.variableTable = new VariableTable(new DataType[0]);
+        this.tree = null;
+        this.treeWalking = true;
+        this.input = input;
+        this.output = output;
+        this.slotNames = new String[0];
+        this.tiering = new LoopTiering();
+    }
+
+    // Runs a program while it is being parsed. Every top-level statement is checked against
+    // the declarations before it and executed before the next one is read, so output starts
+    // right away, only one statement's AST is held at a time, and an error further down the
+    // source is reported with its position once execution gets there. Hot loops still get
+    // compiled, see LoopTiering.
+    public static void executeStreaming(Lexer lexer, InputSource input, OutputSink output) throws Exception {
+        executeStreaming(lexer, input, output, false);
+    }
+
+    // iterative runs the statements on an IterativeInterpreter, for machine-generated CODE
+    // nested too deeply to recurse over. The Parser and Semantic never recurse, and what
+    // does, folding, the node evaluation and the Lowering of hot loops, is left out, so
+    // nesting is only limited by memory.
+    public static void executeStreaming(Lexer lexer, InputSource input, OutputSink output, boolean iterative) throws Exception {
+        Parser parser = new Parser(lexer.tokenizeOnDemand());
         Semantic semantic = new Semantic();
+        ConstantFolder folder = new ConstantFolder();
+        Interpreter interpreter = new Interpreter(input, output);
+        IterativeInterpreter iterativeInterpreter = iterative ? new IterativeInterpreter(interpreter) : null;
+
+        try {
+            parser.parseProgramStart();
+            StatementNode statement;
+            while ((statement = parser.parseNextStatement()) != null) {
+                semantic.analyzeStatement(statement);
+                interpreter.addSlots(semantic.getSymbolTable());
+                if (iterative) {
+                    iterativeInterpreter.execute(statement);
+                    continue;
+                }
+
+                // A resolved IF can stand for any number of statements
+                List<StatementNode> statements = new ArrayList<>();
+                statements.add(statement);
+                folder.foldStatements(statements);
+                for (StatementNode folded : statements)
+                    folded.execute(interpreter);
+            }
+        } finally {
+            output.flush();
+        }
+    }
 
+    private void addSlots(SymbolTable symbolTable) {
+        if (symbolTable.size() == slotNames.length)
+            return;
 
-        TokenType tokenType = TokenType.CODE; // Assuming your program starts with CODE token
-        program = parser.parseProgram(tokenType);
-     
-        semantic.analyze(program);
-        variableTable = new VariableTable();
+        variableTable.addSlots(symbolTable);
+        slotNames = new String[symbolTable.size()];
+        for (int slot = 0; slot < slotNames.length; slot++)
+            slotNames[slot] = symbolTable.getName(slot);
     }
 
     public void execute(ProgramNode statementBlock) {
-        ProgramNode prog = statementBlock == null ? program : statementBlock;
-
-        for (StatementNode statement : prog.getStatements()) {
-            if (statement instanceof VariableDeclarationNode)
-                executeVariableDeclaration((VariableDeclarationNode) statement);
-            else if (statement instanceof AssignmentNode)
-                executeAssignment((AssignmentNode) statement);
-            else if (statement instanceof DisplayNode)
-                executeDisplay((DisplayNode) statement);
-            else if (statement instanceof ScanNode)
-                executeScan((ScanNode) statement);
-            else if (statement instanceof ConditionalNode)
-                executeCondition((ConditionalNode) statement);
-            else if (statement instanceof LoopNode)
-                executeLoop((LoopNode) statement);
+        if (statementBlock == null && !treeWalking) {
+            execution.run(false);
+            return;
         }
-    }
 
-    // private void executeVariableDeclaration(VariableDeclarationNode statement) {
-    //     for (String identifier : statement.getVariables()) {
-    //         Object value = null;
-    //         if (statement.getVariables().get(identifier) != null)
-    //             value = evaluateExpression(statement.getVariables().get(identifier));
-
-    //         variableTable.addVariable(identifier, Grammar.getDataType(statement.getDataTypeToken().getTokenType()), value);
-    //     }
-    // }
-//     private void executeVariableDeclaration(VariableDeclarationNode statement) {
-//     // Loop through the dictionary of variables
-//     for (Map.Entry<String, ExpressionNode> entry : statement.getVariables().entrySet()) {
-//         // Get the variable name
-//         String identifier = entry.getKey();
-
-//         // Set default value to null
-//         Object value = null;
-
-//         // If the variable value is not null ex. INT a = 5
-//         if (entry.getValue() != null) {
-//             value = evaluateExpression(entry.getValue());
-//         }
-
-//         // Add variable to table of variables
-//         variableTable.addVariable(identifier, Grammar.getDataType(statement.getDataTypeToken().getTokenType()), value);
-//     }
-// }
-
-private void executeVariableDeclaration(VariableDeclarationNode statement) {
-    // Loop through the map of variables
-    for (Map.Entry<String, ExpressionNode> entry : statement.getVariables().entrySet()) {
-        // Get the variable name
-        String identifier = entry.getKey();
-
-        // Set default value to null
-        Object value = null;
-
-        // If the variable value is not null (e.g., INT a = 5)
-        if (entry.getValue() != null) {
-            value = evaluateExpression(entry.getValue());
+        if (statementBlock != null) {
+            statementBlock.execute(this);
+            return;
         }
 
-        // Add variable to table of variables
-        variableTable.addVariable(identifier, Grammar.getDataType(statement.getDataTypeToken().getTokenType()), value);
-    }
-}
-    private void executeAssignment(AssignmentNode statement) {
-        Object value = null;
-        for (String identifier : statement.getIdentifiers()) {
-            value = evaluateExpression(statement.getExpression());
-            variableTable.addValue(identifier, value);
+        // Like Execution.run, a whole run leaves no output behind in the buffer
+        try {
+            runBlock(0);
+        } finally {
+            output.flush();
         }
     }
 
-    private void executeDisplay(DisplayNode statement) {
-        StringBuilder result = new StringBuilder();
-        for (ExpressionNode expression : statement.getExpressions())
-            result.append(evaluateExpression(expression));
+    // Runs the statements of a BLOCK node of the FlatTree
+    private void runBlock(int block) {
+        int list = tree.getFirst(block);
+        int length = tree.getListLength(list);
+        for (int i = 0; i < length; i++)
+            run(tree.getListElement(list, i));
+    }
 
-        System.out.print(result.toString());
+    private void run(int statement) {
+        int list = tree.getFirst(statement);
+        switch (tree.getKind(statement)) {
+            case FlatTree.DECLARATION:
+                // Only variables with a value, e.g. INT a = 5, are assigned
+                for (int i = 0; i < tree.getListLength(list); i += 2) {
+                    int value = tree.getListElement(list, i + 1);
+                    if (value >= 0)
+                        assign(tree.getListElement(list, i), value);
+                }
+                break;
+            case FlatTree.ASSIGNMENT:
+                list = tree.getSecond(statement);
+                for (int i = 0; i < tree.getListLength(list); i += 2)
+                    assign(tree.getListElement(list, i), tree.getFirst(statement));
+                break;
+            case FlatTree.DISPLAY:
+                display(list);
+                break;
+            case FlatTree.SCAN:
+                // Pending output, such as a prompt, has to be visible before waiting for input
+                output.flush();
+                input.scan(variableTable, tree.getLists(), list + 1, tree.getListLength(list), slotNames);
+                break;
+            case FlatTree.CONDITIONAL:
+                // Run the first block whose condition holds, a -1 condition is the ELSE block
+                for (int i = 0; i < tree.getListLength(list); i += 3) {
+                    int condition = tree.getListElement(list, i);
+                    if (condition < 0 || evaluateInt(condition) != 0) {
+                        runBlock(tree.getListElement(list, i + 1));
+                        return;
+                    }
+                }
+                break;
+            case FlatTree.LOOP:
+                runLoop(statement);
+                break;
+            default:
+                throw new RuntimeException("Unknown statement.");
+        }
     }
 
-    private void executeScan(ScanNode statement) {
-        List<String> values = null;
-        List<String> identifiers = statement.getIdentifiers();
-        String inputted = "";
+    private void runLoop(int loop) {
+        int condition = tree.getFirst(loop);
+        int body = tree.getSecond(loop);
+        if (tiering == null) {
+            LoopNode decoded = execution.getProgram().getDecodedLoop(loop);
+            if (decoded != null) {
+                executeLoop(decoded);
+                return;
+            }
+
+            // The nodes continue from the next condition test
+            int iterations = 0;
+            while (evaluateInt(condition) != 0) {
+                runBlock(body);
+                if (++iterations == DECODE_THRESHOLD) {
+                    executeLoop(execution.getProgram().decodeLoop(loop));
+                    return;
+                }
+            }
+            return;
+        }
 
-        System.out.print("");
-        inputted = new java.util.Scanner(System.in).nextLine();
-        values = java.util.Arrays.asList(inputted.replace(" ", "").split(","));
+        // Once the loop is hot its compiled code continues from the next condition test
+        LoopTiering.Profile profile = tiering.getProfile(tree, loop);
+        if (profile.isHot() && runCompiled(profile))
+            return;
+        while (evaluateInt(condition) != 0) {
+            runBlock(body);
+            if (profile.backEdge() && runCompiled(profile))
+                return;
+        }
+    }
+
+    // Evaluates the expression using the type of the target variable
+    private void assign(int slot, int expression) {
+        switch (variableTable.getType(slot)) {
+            case Int:
+                variableTable.setInt(slot, evaluateInt(expression));
+                break;
+            case Float:
+                variableTable.setFloat(slot, evaluateFloat(expression));
+                break;
+            case Bool:
+                variableTable.setBool(slot, evaluateInt(expression) != 0);
+                break;
+            case Char:
+                variableTable.setChar(slot, (char) evaluateInt(expression));
+                break;
+            default:
+                throw new RuntimeException("Unable to assign " + tree.getType(expression) + ".");
+        }
+    }
 
-        if (values.size() != identifiers.size())
-            throw new RuntimeException("Runtime Error: Missing input/s.");
+    private void display(int list) {
+        for (int i = 0; i < tree.getListLength(list); i++) {
+            int expression = tree.getListElement(list, i);
 
-        Object value;
-        int index = 0;
-        for (String val : values) {
-            value = Grammar.convertValue(val);
+            // Values stay primitive until they are formatted here
+            switch (tree.getType(expression)) {
+                case Int:
+                    output.write(evaluateInt(expression));
+                    break;
+                case Float:
+                    output.write(evaluateFloat(expression));
+                    break;
+                case Bool:
+                    output.write(evaluateInt(expression) != 0);
+                    break;
+                case Char:
+                    output.write((char) evaluateInt(expression));
+                    break;
+                default:
+                    // STRING values only exist as literals, e.g. DISPLAY: "text" & $
+                    if (tree.getKind(expression) != FlatTree.TEXT)
+                        throw new RuntimeException("Unknown expression.");
+                    output.write(tree.getText(expression));
+                    break;
+            }
+        }
 
-            if (!Grammar.matchDataType(variableTable.getType(identifiers.get(index)), Grammar.getDataType(value)))
-                throw new RuntimeException("Runtime Error: Unable to assign " + Grammar.getDataType(value) + " on \"" + identifiers.get(index) + "\".");
+        output.endDisplay();
+    }
 
-            variableTable.addValue(identifiers.get(index), value);
-            index++;
+    // INT value, or the code of a CHAR and 1 / 0 for a BOOL, so integral comparisons share one path
+    private int evaluateInt(int expression) {
+        int left = tree.getFirst(expression);
+        int right = tree.getSecond(expression);
+        switch (tree.getKind(expression)) {
+            case FlatTree.CONSTANT:
+                return (int) tree.getConstant(expression);
+            case FlatTree.VARIABLE:
+                return (int) load(expression);
+            case FlatTree.NEGATE:
+                return -evaluateInt(left);
+            case FlatTree.NOT:
+                return evaluateInt(left) == 0 ? 1 : 0;
+            case FlatTree.ADD:
+                return intOperand(left) + intOperand(right);
+            case FlatTree.SUBTRACT:
+                return intOperand(left) - intOperand(right);
+            case FlatTree.MULTIPLY:
+                return intOperand(left) * intOperand(right);
+            case FlatTree.DIVIDE:
+                return intOperand(left) / intOperand(right);
+            case FlatTree.REMAINDER:
+                return intOperand(left) % intOperand(right);
+            case FlatTree.AND:
+                return intOperand(left) != 0 && intOperand(right) != 0 ? 1 : 0;
+            case FlatTree.OR:
+                return intOperand(left) != 0 || intOperand(right) != 0 ? 1 : 0;
+            case FlatTree.LESS_THAN:
+                return intOperand(left) < intOperand(right) ? 1 : 0;
+            case FlatTree.GREATER_THAN:
+                return intOperand(left) > intOperand(right) ? 1 : 0;
+            case FlatTree.LESS_EQUAL:
+                return intOperand(left) <= intOperand(right) ? 1 : 0;
+            case FlatTree.GREATER_EQUAL:
+                return intOperand(left) >= intOperand(right) ? 1 : 0;
+            case FlatTree.EQUAL_TO:
+                return intOperand(left) == intOperand(right) ? 1 : 0;
+            case FlatTree.NOT_EQUAL:
+                return intOperand(left) != intOperand(right) ? 1 : 0;
+            case FlatTree.FLOAT_LESS_THAN:
+                return floatOperand(left) < floatOperand(right) ? 1 : 0;
+            case FlatTree.FLOAT_GREATER_THAN:
+                return floatOperand(left) > floatOperand(right) ? 1 : 0;
+            case FlatTree.FLOAT_LESS_EQUAL:
+                return floatOperand(left) <= floatOperand(right) ? 1 : 0;
+            case FlatTree.FLOAT_GREATER_EQUAL:
+                return floatOperand(left) >= floatOperand(right) ? 1 : 0;
+            case FlatTree.FLOAT_EQUAL_TO:
+                return floatOperand(left) == floatOperand(right) ? 1 : 0;
+            case FlatTree.FLOAT_NOT_EQUAL:
+                return floatOperand(left) != floatOperand(right) ? 1 : 0;
+            default:
+                throw new RuntimeException("Unknown expression.");
         }
     }
 
-    private void executeCondition(ConditionalNode statement) {
-        boolean displayed = false;
-        int index = 0;
+    // INT expressions are promoted, so mixed INT / FLOAT arithmetic keeps its decimals
+    private double evaluateFloat(int expression) {
+        if (tree.getType(expression) != DataType.Float)
+            return evaluateInt(expression);
+
+        int left = tree.getFirst(expression);
+        int right = tree.getSecond(expression);
+        switch (tree.getKind(expression)) {
+            case FlatTree.CONSTANT:
+                return Double.longBitsToDouble(tree.getConstant(expression));
+            case FlatTree.VARIABLE:
+                return Double.longBitsToDouble(load(expression));
+            case FlatTree.NEGATE:
+                return -floatOperand(left);
+            case FlatTree.ADD:
+                return floatOperand(left) + floatOperand(right);
+            case FlatTree.SUBTRACT:
+                return floatOperand(left) - floatOperand(right);
+            case FlatTree.MULTIPLY:
+                return floatOperand(left) * floatOperand(right);
+            case FlatTree.DIVIDE:
+                return floatOperand(left) / floatOperand(right);
+            case FlatTree.REMAINDER:
+                return floatOperand(left) % floatOperand(right);
+            default:
+                throw new RuntimeException("Unknown expression.");
+        }
+    }
 
-        for (ExpressionNode expression : statement.getExpressions()) {
-            if (expression != null) {
-                if ((boolean) evaluateExpression(expression)) {
-                    displayed = true;
-                    execute(statement.getStatements().get(index));
-                    break;
-                }
-            } else
-                break;
+    // Variables and constants are read here rather than in a call of their own, most operands are one
+    private int intOperand(int expression) {
+        byte kind = tree.getKind(expression);
+        if (kind == FlatTree.VARIABLE)
+            return (int) load(expression);
+        if (kind == FlatTree.CONSTANT)
+            return (int) tree.getConstant(expression);
+        return evaluateInt(expression);
+    }
 
-            index++;
-        }
+    private double floatOperand(int expression) {
+        byte kind = tree.getKind(expression);
+        if (kind == FlatTree.VARIABLE && tree.getType(expression) == DataType.Float)
+            return Double.longBitsToDouble(load(expression));
+        return evaluateFloat(expression);
+    }
 
-        if (statement.getExpressions().get(index) == null)
-            if (!displayed)
-                execute(statement.getStatements().get(index));
+    // Value of a VARIABLE node in the Value encoding of its type
+    private long load(int expression) {
+        int slot = tree.getFirst(expression);
+        if (!variableTable.isAssigned(slot))
+            throw new RuntimeException("(" + tree.getLine(expression) + "," + tree.getColumn(expression) + "): Variable '" + slotNames[slot] + "' is null.");
+        return variableTable.getValues()[slot];
     }
 
-    private void executeLoop(LoopNode statement) {
-        while ((boolean) evaluateExpression(statement.getExpression()))
-            execute(statement.getStatement());
+    @Override
+    public VariableTable getVariableTable() {
+        return variableTable;
     }
 
-    private Object evaluateExpression(ExpressionNode expression) {
-        if (expression instanceof BinaryNode)
-            return evaluateBinaryExpression((BinaryNode) expression);
-        else if (expression instanceof UnaryNode)
-            return evaluateUnaryExpression((UnaryNode) expression);
-        else if (expression instanceof ParenthesisNode)
-            return evaluateExpression(((ParenthesisNode) expression).getExpression());
-        else if (expression instanceof IdentifierNode)
-            return evaluateIdentifierExpression((IdentifierNode) expression);
-        else if (expression instanceof LiteralNode)
-            return ((LiteralNode) expression).getLiteral();
-        else
-            throw new RuntimeException("Unknown expression.");
+    @Override
+    public InputSource getInput() {
+        return input;
     }
 
-    private Object evaluateBinaryExpression(BinaryNode expression) {
-        Object left = evaluateExpression(expression.getLeft());
-        Object right = evaluateExpression(expression.getRight());
-        Object binResult;
-
-        switch (expression.getTokenOperator().getTokenType()) {
-            case PLUS:
-                binResult = (int) left + (int) right;
-                return binResult;
-            case MINUS:
-                binResult = (int) left - (int) right;
-                return binResult;
-            case STAR:
-                binResult = (int) left * (int) right;
-                return binResult;
-            case SLASH:
-                binResult = (int) left / (int) right;
-                return binResult;
-            case PERCENT:
-                binResult = (int) left % (int) right;
-                return binResult;
-            case LESSTHAN:
-                binResult = (int) left < (int) right;
-                return binResult;
-            case GREATERTHAN:
-                binResult = (int) left > (int) right;
-                return binResult;
-            case LESSEQUAL:
-                binResult = (int) left <= (int) right;
-                return binResult;
-            case GREATEREQUAL:
-                binResult = (int) left >= (int) right;
-                return binResult;
-            case EQUALTO:
-                binResult = (int) left == (int) right;
-                return binResult;
-            case NOTEQUAL:
-                binResult = (int) left != (int) right;
-                return binResult;
-            case AND:
-                binResult = (boolean) left && (boolean) right;
-                return binResult;
-            case OR:
-                binResult = (boolean) left || (boolean) right;
-                return binResult;
-            default:
-                throw new RuntimeException("Unknown operator.");
-        }
+    @Override
+    public OutputSink getOutput() {
+        return output;
     }
 
-    private Object evaluateUnaryExpression(UnaryNode expression) {
-        Object unaryValue = evaluateExpression(expression.getExpression());
-        if (expression.getTokenOperator().getTokenType() == TokenType.MINUS)
-            return -(int) unaryValue;
-        else if (expression.getTokenOperator().getTokenType() == TokenType.NOT)
-            return !((String) unaryValue).contains("TRUE") ? true : false;
-        else
-            return unaryValue;
+    @Override
+    public String[] getSlotNames() {
+        return slotNames;
     }
 
-    private Object evaluateIdentifierExpression(IdentifierNode expression) {
-        if (variableTable.getValue(expression.getName()) == null)
-            throw new RuntimeException("(" + expression.getIdentifierToken().getLine() + "," + expression.getIdentifierToken().getColumn() + "): Variable '" + expression.getName() + "' is null.");
+    @Override
+    public void executeLoop(LoopNode statement) {
+        if (tiering == null) {
+            while (statement.test(this))
+                statement.getStatement().execute(this);
+            return;
+        }
 
-        Object result = variableTable.getValue(expression.getName());
+        // Once the loop is hot its compiled code continues from the next condition test
+        LoopTiering.Profile profile = tiering.getProfile(statement);
+        if (profile.isHot() && runCompiled(profile))
+            return;
+        while (statement.test(this)) {
+            statement.getStatement().execute(this);
+            if (profile.backEdge() && runCompiled(profile))
+                return;
+        }
+    }
 
-        if (result instanceof Boolean)
-            return ((boolean) result) ? "TRUE" : "FALSE";
-        return result;
+    // Returns false when the loop could not be compiled
+    private boolean runCompiled(LoopTiering.Profile profile) {
+        JvmProgram code = tiering.compile(profile, variableTable, slotNames);
+        if (code == null)
+            return false;
+        code.run(variableTable, input, output);
+        return true;
     }
 }
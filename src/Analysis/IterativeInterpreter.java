@@ -0,0 +1,300 @@
+package Analysis;
+
+import Analysis.IO.OutputSink;
+import Analysis.Optimize.ConstantFolder;
+import Analysis.Table.VariableTable;
+import Analysis.Tree.Frame;
+import Analysis.Tree.Expression.BinaryNode;
+import Analysis.Tree.Expression.ExpressionNode;
+import Analysis.Tree.Expression.IdentifierNode;
+import Analysis.Tree.Expression.LiteralNode;
+import Analysis.Tree.Expression.ParenthesisNode;
+import Analysis.Tree.Expression.UnaryNode;
+import Analysis.Tree.Statement.*;
+import Analysis.Type.DataType;
+import Analysis.Type.TokenType;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+// Runs statements like the Interpreter, but without recursion: the blocks being run
+// and the operands of the expressions being evaluated are kept on stacks in the
+// heap, so machine-generated CODE with IF blocks or parentheses nested thousands
+// deep runs instead of overflowing the Java stack. Every node costs the same
+// however deep it is, at the price of the type and operator tests the specialized
+// nodes of the Interpreter avoid.
+//
+// Values on the operand stack are in the Value encoding of their static type, as
+// in the VariableTable: an INT, CHAR or BOOL as its integer, a FLOAT as its bits.
+public class IterativeInterpreter {
+    private final Frame frame;
+    private final VariableTable variableTable;
+
+    // Blocks being run, innermost last. A block that is the body of a loop holds the
+    // loop, which tests its condition again when the block runs out.
+    private List<StatementNode>[] blocks;
+    private int[] positions;
+    private LoopNode[] loops;
+    private int depth;
+
+    // Expressions being evaluated, with how far each one got, and the operands computed
+    private ExpressionNode[] nodes;
+    private int[] states;
+    private int nodeCount;
+    private long[] values;
+    private int valueCount;
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public IterativeInterpreter(Frame frame) {
+        this.frame = frame;
+        this.variableTable = frame.getVariableTable();
+        this.blocks = new List[16];
+        this.positions = new int[16];
+        this.loops = new LoopNode[16];
+        this.nodes = new ExpressionNode[32];
+        this.states = new int[32];
+        this.values = new long[32];
+    }
+
+    public void execute(StatementNode statement) {
+        schedule(statement);
+
+        while (depth > 0) {
+            int top = depth - 1;
+            List<StatementNode> statements = blocks[top];
+            if (positions[top] < statements.size()) {
+                schedule(statements.get(positions[top]++));
+                continue;
+            }
+
+            // The end of a loop body is a back-edge, anything else is done
+            LoopNode loop = loops[top];
+            if (loop != null && evaluate(loop.getExpression()) != 0)
+                positions[top] = 0;
+            else {
+                blocks[top] = null;
+                loops[top] = null;
+                depth--;
+            }
+        }
+    }
+
+    // Runs a simple statement right away, and enters the block an IF or WHILE runs
+    private void schedule(StatementNode statement) {
+        if (statement instanceof ConditionalNode) {
+            ConditionalNode condition = (ConditionalNode) statement;
+            List<ExpressionNode> expressions = condition.getExpressions();
+
+            // Run the first block whose condition holds, a null condition is the ELSE block
+            for (int index = 0; index < expressions.size(); index++) {
+                ExpressionNode expression = expressions.get(index);
+                if (expression == null || evaluate(expression) != 0) {
+                    enter(condition.getStatements().get(index).getStatements(), null);
+                    return;
+                }
+            }
+        } else if (statement instanceof LoopNode) {
+            LoopNode loop = (LoopNode) statement;
+            if (evaluate(loop.getExpression()) != 0)
+                enter(loop.getStatement().getStatements(), loop);
+        } else if (statement instanceof VariableDeclarationNode) {
+            VariableDeclarationNode declaration = (VariableDeclarationNode) statement;
+            for (Map.Entry<String, ExpressionNode> entry : declaration.getVariables().entrySet()) {
+                if (entry.getValue() != null)
+                    assign(declaration.getSlot(entry.getKey()), entry.getValue());
+            }
+        } else if (statement instanceof AssignmentNode) {
+            AssignmentNode assignment = (AssignmentNode) statement;
+            for (int slot : assignment.getSlots())
+                assign(slot, assignment.getExpression());
+        } else if (statement instanceof DisplayNode)
+            display((DisplayNode) statement);
+        else if (statement instanceof ScanNode) {
+            int[] slots = ((ScanNode) statement).getSlots();
+
+            // Pending output, such as a prompt, has to be visible before waiting for input
+            frame.getOutput().flush();
+            frame.getInput().scan(variableTable, slots, 0, slots.length, frame.getSlotNames());
+        }
+    }
+
+    private void enter(List<StatementNode> statements, LoopNode loop) {
+        if (depth == blocks.length) {
+            blocks = Arrays.copyOf(blocks, depth * 2);
+            positions = Arrays.copyOf(positions, depth * 2);
+            loops = Arrays.copyOf(loops, depth * 2);
+        }
+        blocks[depth] = statements;
+        positions[depth] = 0;
+        loops[depth] = loop;
+        depth++;
+    }
+
+    private void assign(int slot, ExpressionNode expression) {
+        DataType type = variableTable.getType(slot);
+        if (type == DataType.String)
+            throw new RuntimeException("Unable to assign " + expression.getDataType() + ".");
+
+        long value = evaluate(expression);
+        if (type == DataType.Float)
+            value = Double.doubleToRawLongBits(toDouble(value, expression.getDataType()));
+        variableTable.setRaw(slot, value);
+    }
+
+    private void display(DisplayNode statement) {
+        OutputSink output = frame.getOutput();
+        for (ExpressionNode expression : statement.getExpressions()) {
+            // Values stay primitive until they are formatted here
+            switch (expression.getDataType()) {
+                case Int:
+                    output.write((int) evaluate(expression));
+                    break;
+                case Float:
+                    output.write(Double.longBitsToDouble(evaluate(expression)));
+                    break;
+                case Bool:
+                    output.write(evaluate(expression) != 0);
+                    break;
+                case Char:
+                    output.write((char) evaluate(expression));
+                    break;
+                default:
+                    // STRING values only exist as literals, e.g. DISPLAY: "text" & $
+                    while (expression instanceof ParenthesisNode)
+                        expression = ((ParenthesisNode) expression).getExpression();
+                    if (!(expression instanceof LiteralNode))
+                        throw new RuntimeException("Unknown expression.");
+                    output.write(((LiteralNode) expression).getEncodedLiteral());
+                    break;
+            }
+        }
+
+        output.endDisplay();
+    }
+
+    // Evaluates the expression in post-order. A node is pushed with state 0 and pushes its
+    // operands one at a time, its state counting those done, until it can combine them.
+    private long evaluate(ExpressionNode expression) {
+        int base = nodeCount;
+        push(expression);
+
+        while (nodeCount > base) {
+            int top = nodeCount - 1;
+            ExpressionNode node = nodes[top];
+            int state = states[top]++;
+
+            if (node instanceof BinaryNode) {
+                BinaryNode binary = (BinaryNode) node;
+                TokenType operator = binary.getTokenOperator().getTokenType();
+                if (state == 0)
+                    push(binary.getLeft());
+                else if (state == 1 && (operator == TokenType.AND || operator == TokenType.OR)) {
+                    // The right side is only evaluated when the left side does not decide the result
+                    if ((values[valueCount - 1] != 0) == (operator == TokenType.OR))
+                        nodeCount--;
+                    else {
+                        valueCount--;
+                        push(binary.getRight());
+                    }
+                } else if (state == 1)
+                    push(binary.getRight());
+                else {
+                    if (operator != TokenType.AND && operator != TokenType.OR) {
+                        long right = values[--valueCount];
+                        values[valueCount - 1] = apply(binary, values[valueCount - 1], right);
+                    }
+                    nodeCount--;
+                }
+            } else if (node instanceof UnaryNode) {
+                UnaryNode unary = (UnaryNode) node;
+                if (state == 0)
+                    push(unary.getExpression());
+                else {
+                    values[valueCount - 1] = apply(unary, values[valueCount - 1]);
+                    nodeCount--;
+                }
+            } else if (node instanceof ParenthesisNode) {
+                nodes[top] = ((ParenthesisNode) node).getExpression();
+                states[top] = 0;
+            }
+            else {
+                nodeCount--;
+                pushValue(load(node));
+            }
+        }
+
+        return values[--valueCount];
+    }
+
+    private void push(ExpressionNode expression) {
+        if (nodeCount == nodes.length) {
+            nodes = Arrays.copyOf(nodes, nodeCount * 2);
+            states = Arrays.copyOf(states, nodeCount * 2);
+        }
+        nodes[nodeCount] = expression;
+        states[nodeCount] = 0;
+        nodeCount++;
+    }
+
+    private void pushValue(long value) {
+        if (valueCount == values.length)
+            values = Arrays.copyOf(values, valueCount * 2);
+        values[valueCount++] = value;
+    }
+
+    private long load(ExpressionNode expression) {
+        if (expression instanceof IdentifierNode) {
+            IdentifierNode identifier = (IdentifierNode) expression;
+            int slot = identifier.getSlot();
+            if (!variableTable.isAssigned(slot))
+                throw new RuntimeException("(" + identifier.getIdentifierToken().getLine() + "," + identifier.getIdentifierToken().getColumn() + "): Variable '" + identifier.getName() + "' is null.");
+            return variableTable.getValues()[slot];
+        } else if (expression instanceof LiteralNode) {
+            Object literal = ((LiteralNode) expression).getLiteral();
+            if (literal instanceof Integer)
+                return (Integer) literal;
+            if (literal instanceof Float || literal instanceof Double)
+                return Double.doubleToRawLongBits(((Number) literal).doubleValue());
+            if (literal instanceof Character)
+                return (Character) literal;
+            if (literal instanceof Boolean)
+                return (Boolean) literal ? 1 : 0;
+        }
+        throw new RuntimeException("Unknown expression.");
+    }
+
+    // Arithmetic in the type of the node, comparisons in FLOAT if either side is FLOAT
+    private static long apply(BinaryNode expression, long left, long right) {
+        TokenType operator = expression.getTokenOperator().getTokenType();
+        DataType leftType = expression.getLeft().getDataType();
+        DataType rightType = expression.getRight().getDataType();
+
+        if (expression.getDataType() == DataType.Bool) {
+            boolean result;
+            if (leftType == DataType.Float || rightType == DataType.Float)
+                result = ConstantFolder.compareFloat(operator, toDouble(left, leftType), toDouble(right, rightType));
+            else
+                result = ConstantFolder.compareInt(operator, (int) left, (int) right);
+            return result ? 1 : 0;
+        }
+        if (expression.getDataType() == DataType.Float)
+            return Double.doubleToRawLongBits(ConstantFolder.foldFloat(operator, toDouble(left, leftType), toDouble(right, rightType)));
+        return ConstantFolder.foldInt(operator, (int) left, (int) right);
+    }
+
+    private static long apply(UnaryNode expression, long value) {
+        TokenType operator = expression.getTokenOperator().getTokenType();
+        if (operator == TokenType.NOT)
+            return value == 0 ? 1 : 0;
+        if (operator != TokenType.MINUS)
+            return value;
+        if (expression.getDataType() == DataType.Float)
+            return Double.doubleToRawLongBits(-Double.longBitsToDouble(value));
+        return -(int) value;
+    }
+
+    // INT values are promoted, so mixed INT / FLOAT arithmetic keeps its decimals
+    private static double toDouble(long value, DataType type) {
+        return type == DataType.Int ? (int) value : Double.longBitsToDouble(value);
+    }
+}
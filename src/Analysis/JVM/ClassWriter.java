@@ -0,0 +1,200 @@
+package Analysis.JVM;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Minimal writer for the class files the JvmCompiler generates: one public final
+// class with static methods and no fields. Constant pool entries are shared, so
+// adding the same constant twice returns the same index.
+//
+// Classes are written in version 49 (Java 5), the last version verified by type
+// inference, so methods need no StackMapTable and branches can be emitted freely.
+public class ClassWriter {
+    private static final int VERSION = 49;
+
+    private static final int CONSTANT_UTF8 = 1;
+    private static final int CONSTANT_INTEGER = 3;
+    private static final int CONSTANT_DOUBLE = 6;
+    private static final int CONSTANT_CLASS = 7;
+    private static final int CONSTANT_METHODREF = 10;
+    private static final int CONSTANT_NAMEANDTYPE = 12;
+
+    static final int ACC_PUBLIC = 0x0001;
+    static final int ACC_STATIC = 0x0008;
+    static final int ACC_FINAL = 0x0010;
+    static final int ACC_SUPER = 0x0020;
+
+    private final ByteArrayOutputStream poolBytes;
+    private final DataOutputStream pool;
+    private final Map<String, Integer> poolIndexes; // Entry key such as "Utf8 run" to its index
+    private int poolCount;
+
+    private final String name;
+    private final int nameIndex;
+    private final int superIndex;
+    private final List<byte[]> methods;
+
+    // name and superName are internal names such as "java/lang/Object"
+    public ClassWriter(String name, String superName) {
+        this.poolBytes = new ByteArrayOutputStream();
+        this.pool = new DataOutputStream(poolBytes);
+        this.poolIndexes = new HashMap<>();
+        this.poolCount = 1;
+        this.name = name;
+        this.nameIndex = addClass(name);
+        this.superIndex = addClass(superName);
+        this.methods = new ArrayList<>();
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    // Number of constant pool slots in use, at most 65535 fit in a class file
+    public int getConstantCount() {
+        return poolCount;
+    }
+
+    public int addUtf8(String value) {
+        Integer index = poolIndexes.get("Utf8 " + value);
+        if (index != null)
+            return index;
+        try {
+            pool.writeByte(CONSTANT_UTF8);
+            pool.writeUTF(value);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        return addEntry("Utf8 " + value, 1);
+    }
+
+    public int addClass(String internalName) {
+        Integer index = poolIndexes.get("Class " + internalName);
+        if (index != null)
+            return index;
+        int utf8 = addUtf8(internalName);
+        write(CONSTANT_CLASS, utf8);
+        return addEntry("Class " + internalName, 1);
+    }
+
+    public int addMethodref(String owner, String name, String descriptor) {
+        String key = "Methodref " + owner + "." + name + descriptor;
+        Integer index = poolIndexes.get(key);
+        if (index != null)
+            return index;
+        int ownerIndex = addClass(owner);
+        int nameAndType = addNameAndType(name, descriptor);
+        write(CONSTANT_METHODREF, ownerIndex, nameAndType);
+        return addEntry(key, 1);
+    }
+
+    public int addInteger(int value) {
+        Integer index = poolIndexes.get("Integer " + value);
+        if (index != null)
+            return index;
+        try {
+            pool.writeByte(CONSTANT_INTEGER);
+            pool.writeInt(value);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        return addEntry("Integer " + value, 1);
+    }
+
+    // Doubles take two pool entries. The key uses the raw bits so -0.0 and NaNs stay distinct.
+    public int addDouble(double value) {
+        long bits = Double.doubleToRawLongBits(value);
+        Integer index = poolIndexes.get("Double " + bits);
+        if (index != null)
+            return index;
+        try {
+            pool.writeByte(CONSTANT_DOUBLE);
+            pool.writeLong(bits);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        return addEntry("Double " + bits, 2);
+    }
+
+    private int addNameAndType(String name, String descriptor) {
+        String key = "NameAndType " + name + descriptor;
+        Integer index = poolIndexes.get(key);
+        if (index != null)
+            return index;
+        int nameIndex = addUtf8(name);
+        int descriptorIndex = addUtf8(descriptor);
+        write(CONSTANT_NAMEANDTYPE, nameIndex, descriptorIndex);
+        return addEntry(key, 1);
+    }
+
+    private void write(int tag, int... indexes) {
+        try {
+            pool.writeByte(tag);
+            for (int index : indexes)
+                pool.writeShort(index);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private int addEntry(String key, int size) {
+        int index = poolCount;
+        poolIndexes.put(key, index);
+        poolCount += size;
+        return index;
+    }
+
+    // Adds a method with the code, which must already be complete
+    public void addMethod(int access, String name, String descriptor, MethodCode code) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream method = new DataOutputStream(bytes);
+        try {
+            method.writeShort(access);
+            method.writeShort(addUtf8(name));
+            method.writeShort(addUtf8(descriptor));
+            method.writeShort(1); // The Code attribute
+
+            byte[] instructions = code.toByteArray();
+            method.writeShort(addUtf8("Code"));
+            method.writeInt(12 + instructions.length);
+            method.writeShort(code.getMaxStack());
+            method.writeShort(code.getMaxLocals());
+            method.writeInt(instructions.length);
+            method.write(instructions);
+            method.writeShort(0); // No exception handlers
+            method.writeShort(0); // No attributes
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        methods.add(bytes.toByteArray());
+    }
+
+    public byte[] toByteArray() {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        try {
+            out.writeInt(0xCAFEBABE);
+            out.writeShort(0);
+            out.writeShort(VERSION);
+            out.writeShort(poolCount);
+            out.write(poolBytes.toByteArray());
+            out.writeShort(ACC_PUBLIC | ACC_FINAL | ACC_SUPER);
+            out.writeShort(nameIndex);
+            out.writeShort(superIndex);
+            out.writeShort(0); // No interfaces
+            out.writeShort(0); // No fields
+            out.writeShort(methods.size());
+            for (byte[] method : methods)
+                out.write(method);
+            out.writeShort(0); // No attributes
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        return bytes.toByteArray();
+    }
+}
@@ -0,0 +1,527 @@
+package Analysis.JVM;
+
+import Analysis.IO.OutputSink;
+import Analysis.IR.*;
+import Analysis.Syntax.Grammar;
+import Analysis.Syntax.LineMap;
+import Analysis.Type.DataType;
+import Analysis.Type.TokenType;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static Analysis.JVM.MethodCode.*;
+
+// Translates an IRProgram that passed the Verifier into a JVM class with one static
+// method, so HotSpot compiles CODE programs like any other Java code. Every slot
+// becomes a local of that method, an int for INT, CHAR and BOOL and a double for
+// FLOAT, and the arithmetic uses the JVM's own instructions, which compute exactly
+// what the VirtualMachine does: Java int and double arithmetic.
+//
+// A Load only checks the slot's assigned flag where the slot is not definitely
+// assigned, and a Store only sets the flag there, so straight-line code over
+// initialized variables runs on locals alone. The locals are read from the
+// VariableTable when the method starts and written back when it returns, apart
+// from temporaries, which never leave the method.
+//
+// The JVM limits a method to 64K of code, and jumps emitted here reach 32K, so a
+// program too large for that is not compiled and stays on the VirtualMachine.
+public class JvmCompiler {
+    private static final String CLASS_NAME = "Analysis/JVM/CodeProgram";
+    private static final String CONTEXT_CLASS = "Analysis/JVM/JvmContext";
+    private static final String OUTPUT_CLASS = "Analysis/IO/OutputSink";
+    private static final int MAX_CODE = 32767;
+    private static final int MAX_CONSTANTS = 65535;
+
+    // Locals of the generated method before the slots
+    private static final int CONTEXT = 0;
+    private static final int VALUES = 1;
+    private static final int ASSIGNED = 2;
+    private static final int OUTPUT = 3;
+    private static final int TEXTS = 4;
+    private static final int FIRST_SLOT = 5;
+
+    private IRProgram program;
+    private ClassWriter classWriter;
+    private MethodCode code;
+    private int[] locals;            // JVM local of each slot
+    private BitSet assigned;         // Slots definitely assigned at the code being compiled
+    private BitSet used;             // Slots loaded or stored anywhere
+    private BitSet loadedUnassigned; // Slots loaded where they may not be assigned
+    private BitSet written;          // Slots stored anywhere, written back on return
+
+    private final List<String> texts;
+    private final Map<String, Integer> textIndexes;
+    private final List<int[]> scanSlots;
+
+    public JvmCompiler() {
+        this.texts = new ArrayList<>();
+        this.textIndexes = new HashMap<>();
+        this.scanSlots = new ArrayList<>();
+    }
+
+    // Compiles the program into a method that runs it on a VariableTable where at least
+    // the slots assigned on entry to the program have values. Temporaries only live in
+    // locals, so the table needs no room for those added since it was created.
+    // Returns null when the program does not fit in one JVM method.
+    public JvmProgram compile(IRProgram program) {
+        BitSet entryAssigned = program.getAssignedOnEntry();
+        this.program = program;
+        this.classWriter = new ClassWriter(CLASS_NAME, "java/lang/Object");
+        this.assigned = (BitSet) entryAssigned.clone();
+        this.used = new BitSet();
+        this.loadedUnassigned = new BitSet();
+        this.written = new BitSet();
+
+        // Slots are numbered past the fixed locals, FLOAT slots take two
+        locals = new int[program.getSlotCount()];
+        int local = FIRST_SLOT;
+        for (int slot = 0; slot < locals.length; slot++) {
+            locals[slot] = local;
+            local += isFloat(slot) ? 2 : 1;
+        }
+        if (local > 0xFFFF)
+            return null;
+
+        code = new MethodCode(classWriter, FIRST_SLOT);
+        compileBlock(program.getStatements());
+        BitSet exitAssigned = assigned;
+        MethodCode body = code;
+
+        code = new MethodCode(classWriter, FIRST_SLOT);
+        compilePrologue(entryAssigned, exitAssigned);
+        code.append(body);
+        compileEpilogue();
+
+        if (code.getLength() > MAX_CODE || classWriter.getConstantCount() > MAX_CONSTANTS)
+            return null;
+        classWriter.addMethod(ClassWriter.ACC_PUBLIC | ClassWriter.ACC_STATIC, JvmProgram.ENTRY_NAME,
+                JvmProgram.ENTRY_DESCRIPTOR, code);
+
+        byte[][] encodedTexts = new byte[texts.size()][];
+        for (int i = 0; i < encodedTexts.length; i++)
+            encodedTexts[i] = OutputSink.encode(texts.get(i));
+        String[] slotNames = new String[program.getSlotCount()];
+        for (int slot = 0; slot < slotNames.length; slot++)
+            slotNames[slot] = program.getSlotName(slot);
+
+        return new JvmProgram(classWriter.toByteArray(), encodedTexts, scanSlots.toArray(new int[0][]), slotNames,
+                program.getLineMap());
+    }
+
+    // Reads the slots that have values on entry into their locals. Locals the verifier
+    // could see read before any store, behind an assigned check or by the write-back
+    // of a slot stored on some paths only, start at zero instead.
+    private void compilePrologue(BitSet entryAssigned, BitSet exitAssigned) {
+        code.loadReference(CONTEXT);
+        code.invoke(INVOKEVIRTUAL, CONTEXT_CLASS, "getOutput", "()L" + OUTPUT_CLASS + ";");
+        code.storeReference(OUTPUT);
+        if (!texts.isEmpty()) {
+            code.loadReference(CONTEXT);
+            code.invoke(INVOKEVIRTUAL, CONTEXT_CLASS, "getTexts", "()[[B");
+            code.storeReference(TEXTS);
+        }
+
+        BitSet uninitialized = (BitSet) written.clone();
+        uninitialized.andNot(exitAssigned);
+        uninitialized.or(loadedUnassigned);
+        for (int slot = used.nextSetBit(0); slot >= 0; slot = used.nextSetBit(slot + 1)) {
+            if (entryAssigned.get(slot))
+                readSlot(slot);
+            else if (uninitialized.get(slot)) {
+                if (isFloat(slot)) {
+                    code.pushDouble(0);
+                    code.storeDouble(locals[slot]);
+                } else {
+                    code.pushInt(0);
+                    code.storeInt(locals[slot]);
+                }
+            }
+        }
+    }
+
+    private void compileEpilogue() {
+        for (int slot = written.nextSetBit(0); slot >= 0; slot = written.nextSetBit(slot + 1)) {
+            if (program.isTemporary(slot))
+                continue;
+            code.loadReference(VALUES);
+            code.pushInt(slot);
+            if (isFloat(slot)) {
+                code.loadDouble(locals[slot]);
+                code.invoke(INVOKESTATIC, "java/lang/Double", "doubleToRawLongBits", "(D)J");
+            } else {
+                code.loadInt(locals[slot]);
+                code.op(I2L, 1);
+            }
+            code.op(LASTORE, -4);
+        }
+        code.op(RETURN, 0);
+    }
+
+    // Copies the slot's value from the VariableTable into its local
+    private void readSlot(int slot) {
+        code.loadReference(VALUES);
+        code.pushInt(slot);
+        code.op(LALOAD, 0);
+        if (isFloat(slot)) {
+            code.invoke(INVOKESTATIC, "java/lang/Double", "longBitsToDouble", "(J)D");
+            code.storeDouble(locals[slot]);
+        } else {
+            code.op(L2I, -1);
+            code.storeInt(locals[slot]);
+        }
+    }
+
+    private void compileBlock(List<Statement> block) {
+        for (Statement statement : block) {
+            if (statement instanceof Store)
+                compileStore((Store) statement);
+            else if (statement instanceof Display)
+                compileDisplay((Display) statement);
+            else if (statement instanceof Scan)
+                compileScan((Scan) statement);
+            else if (statement instanceof If)
+                compileIf((If) statement);
+            else if (statement instanceof While)
+                compileWhile((While) statement);
+        }
+    }
+
+    private void compileStore(Store statement) {
+        int slot = statement.getSlot();
+        compileExpression(statement.getValue());
+        if (isFloat(slot))
+            code.storeDouble(locals[slot]);
+        else
+            code.storeInt(locals[slot]);
+
+        if (!assigned.get(slot) && !program.isTemporary(slot)) {
+            code.loadReference(ASSIGNED);
+            code.pushInt(slot);
+            code.pushInt(1);
+            code.op(BASTORE, -3);
+        }
+        assigned.set(slot);
+        used.set(slot);
+        written.set(slot);
+    }
+
+    private void compileDisplay(Display statement) {
+        for (Expression item : statement.getItems()) {
+            code.loadReference(OUTPUT);
+            if (item instanceof Text) {
+                code.loadReference(TEXTS);
+                code.pushInt(addText(((Text) item).getText()));
+                code.op(AALOAD, -1);
+                code.invoke(INVOKEVIRTUAL, OUTPUT_CLASS, "write", "([B)V");
+                continue;
+            }
+
+            compileExpression(item);
+            switch (item.getType()) {
+                case Int:
+                    code.invoke(INVOKEVIRTUAL, OUTPUT_CLASS, "write", "(I)V");
+                    break;
+                case Float:
+                    code.invoke(INVOKEVIRTUAL, OUTPUT_CLASS, "write", "(D)V");
+                    break;
+                case Char:
+                    code.invoke(INVOKEVIRTUAL, OUTPUT_CLASS, "write", "(C)V");
+                    break;
+                case Bool:
+                    code.invoke(INVOKEVIRTUAL, OUTPUT_CLASS, "write", "(Z)V");
+                    break;
+                default:
+                    throw error(item.getOffset(), "Unable to display " + item.getType() + ".");
+            }
+        }
+
+        code.loadReference(OUTPUT);
+        code.invoke(INVOKEVIRTUAL, OUTPUT_CLASS, "endDisplay", "()V");
+    }
+
+    // The JvmContext scans into the VariableTable, the scanned slots are then read back
+    private void compileScan(Scan statement) {
+        code.loadReference(CONTEXT);
+        code.pushInt(scanSlots.size());
+        code.invoke(INVOKEVIRTUAL, CONTEXT_CLASS, "scan", "(I)V");
+        scanSlots.add(statement.getSlots());
+
+        for (int slot : statement.getSlots()) {
+            readSlot(slot);
+            assigned.set(slot);
+            used.set(slot);
+        }
+    }
+
+    private void compileIf(If statement) {
+        int elseLabel = code.newLabel();
+        compileBranch(statement.getCondition(), false, elseLabel);
+
+        BitSet entry = assigned;
+        assigned = (BitSet) entry.clone();
+        compileBlock(statement.getThenBlock());
+        BitSet thenAssigned = assigned;
+
+        assigned = (BitSet) entry.clone();
+        if (statement.getElseBlock().isEmpty())
+            code.mark(elseLabel);
+        else {
+            int endLabel = code.newLabel();
+            code.jump(GOTO, endLabel);
+            code.mark(elseLabel);
+            compileBlock(statement.getElseBlock());
+            code.mark(endLabel);
+        }
+
+        // Only what both branches assign
+        assigned.and(thenAssigned);
+    }
+
+    // The condition is tested at the bottom of the loop, like the VirtualMachine does
+    private void compileWhile(While statement) {
+        int conditionLabel = code.newLabel();
+        int bodyLabel = code.newLabel();
+        code.jump(GOTO, conditionLabel);
+
+        // A loop body may not run at all
+        BitSet entry = assigned;
+        assigned = (BitSet) entry.clone();
+        code.mark(bodyLabel);
+        compileBlock(statement.getBody());
+
+        assigned = entry;
+        code.mark(conditionLabel);
+        compileBranch(statement.getCondition(), true, bodyLabel);
+    }
+
+    // Emits code that jumps to label when the BOOL expression evaluates to jumpWhen and
+    // falls through otherwise, with AND / OR short-circuiting as in the bytecode Compiler
+    private void compileBranch(Expression expression, boolean jumpWhen, int label) {
+        if (expression instanceof Unary && ((Unary) expression).getOperator() == TokenType.NOT) {
+            compileBranch(((Unary) expression).getOperand(), !jumpWhen, label);
+            return;
+        }
+
+        if (expression instanceof Binary) {
+            Binary binary = (Binary) expression;
+            TokenType operatorType = binary.getOperator();
+
+            if (operatorType == TokenType.AND || operatorType == TokenType.OR) {
+                if ((operatorType == TokenType.AND) != jumpWhen) {
+                    compileBranch(binary.getLeft(), jumpWhen, label);
+                    compileBranch(binary.getRight(), jumpWhen, label);
+                } else {
+                    int skipLabel = code.newLabel();
+                    compileBranch(binary.getLeft(), !jumpWhen, skipLabel);
+                    compileBranch(binary.getRight(), jumpWhen, label);
+                    code.mark(skipLabel);
+                }
+                return;
+            }
+
+            if (Grammar.isComparisonOperator(operatorType)) {
+                TokenType comparison = jumpWhen ? operatorType : negate(operatorType);
+                compileExpression(binary.getLeft());
+                compileExpression(binary.getRight());
+                if (binary.getOperandType() == DataType.Float) {
+                    // NaN compares false except for <>, DCMPG makes it greater and DCMPL less
+                    boolean greater = operatorType == TokenType.LESSTHAN || operatorType == TokenType.LESSEQUAL;
+                    code.op(greater ? DCMPG : DCMPL, -3);
+                    code.jump(getZeroJump(comparison), label);
+                } else
+                    code.jump(getCompareJump(comparison), label);
+                return;
+            }
+        }
+
+        compileExpression(expression);
+        code.jump(jumpWhen ? IFNE : IFEQ, label);
+    }
+
+    // Comparisons and AND / OR used as a value push 1 or 0
+    private void compileBooleanValue(Expression expression) {
+        int falseLabel = code.newLabel();
+        int endLabel = code.newLabel();
+        compileBranch(expression, false, falseLabel);
+
+        int depth = code.getStackDepth();
+        code.pushInt(1);
+        code.jump(GOTO, endLabel);
+        code.mark(falseLabel);
+        code.setStackDepth(depth);
+        code.pushInt(0);
+        code.mark(endLabel);
+    }
+
+    private void compileExpression(Expression expression) {
+        if (expression instanceof Binary)
+            compileBinaryExpression((Binary) expression);
+        else if (expression instanceof Unary)
+            compileUnaryExpression((Unary) expression);
+        else if (expression instanceof Convert) {
+            compileExpression(((Convert) expression).getOperand());
+            code.op(I2D, 1);
+        } else if (expression instanceof Load)
+            compileLoad((Load) expression);
+        else if (expression instanceof Constant) {
+            Constant constant = (Constant) expression;
+            if (constant.getType() == DataType.Float)
+                code.pushDouble(constant.asFloat());
+            else
+                code.pushInt((int) constant.getBits());
+        } else
+            throw error(expression.getOffset(), "Unable to use " + expression.getType() + " literal in an expression.");
+    }
+
+    private void compileLoad(Load expression) {
+        int slot = expression.getSlot();
+        if (!assigned.get(slot))
+            loadedUnassigned.set(slot);
+
+        // Temporaries are always stored before they are loaded
+        if (!assigned.get(slot) && !program.isTemporary(slot)) {
+            int assignedLabel = code.newLabel();
+            code.loadReference(ASSIGNED);
+            code.pushInt(slot);
+            code.op(BALOAD, -1);
+            code.jump(IFNE, assignedLabel);
+            code.loadReference(CONTEXT);
+            code.pushInt(slot);
+            code.pushInt(expression.getOffset());
+            code.invoke(INVOKEVIRTUAL, CONTEXT_CLASS, "unassigned", "(II)Ljava/lang/RuntimeException;");
+            code.op(ATHROW, -1);
+            code.mark(assignedLabel);
+        }
+
+        if (isFloat(slot))
+            code.loadDouble(locals[slot]);
+        else
+            code.loadInt(locals[slot]);
+        used.set(slot);
+    }
+
+    private void compileBinaryExpression(Binary expression) {
+        TokenType operatorType = expression.getOperator();
+        if (operatorType == TokenType.AND || operatorType == TokenType.OR || Grammar.isComparisonOperator(operatorType)) {
+            compileBooleanValue(expression);
+            return;
+        }
+
+        boolean isFloat = expression.getOperandType() == DataType.Float;
+        compileExpression(expression.getLeft());
+        compileExpression(expression.getRight());
+        int stackEffect = isFloat ? -2 : -1;
+
+        switch (operatorType) {
+            case PLUS:
+                code.op(isFloat ? DADD : IADD, stackEffect);
+                break;
+            case MINUS:
+                code.op(isFloat ? DSUB : ISUB, stackEffect);
+                break;
+            case STAR:
+                code.op(isFloat ? DMUL : IMUL, stackEffect);
+                break;
+            case SLASH:
+                code.op(isFloat ? DDIV : IDIV, stackEffect);
+                break;
+            case PERCENT:
+                code.op(isFloat ? DREM : IREM, stackEffect);
+                break;
+            default:
+                throw error(expression.getOffset(), "Unknown operator.");
+        }
+    }
+
+    private void compileUnaryExpression(Unary expression) {
+        compileExpression(expression.getOperand());
+        if (expression.getOperator() == TokenType.MINUS)
+            code.op(expression.getType() == DataType.Float ? DNEG : INEG, 0);
+        else if (expression.getOperator() == TokenType.NOT) {
+            code.pushInt(1);
+            code.op(IXOR, -1);
+        }
+    }
+
+    private boolean isFloat(int slot) {
+        return program.getSlotType(slot) == DataType.Float;
+    }
+
+    private static TokenType negate(TokenType operatorType) {
+        switch (operatorType) {
+            case LESSTHAN:
+                return TokenType.GREATEREQUAL;
+            case GREATERTHAN:
+                return TokenType.LESSEQUAL;
+            case LESSEQUAL:
+                return TokenType.GREATERTHAN;
+            case GREATEREQUAL:
+                return TokenType.LESSTHAN;
+            case EQUALTO:
+                return TokenType.NOTEQUAL;
+            case NOTEQUAL:
+                return TokenType.EQUALTO;
+            default:
+                throw new IllegalArgumentException("Unknown comparison " + operatorType);
+        }
+    }
+
+    private static int getCompareJump(TokenType operatorType) {
+        switch (operatorType) {
+            case LESSTHAN:
+                return IF_ICMPLT;
+            case GREATERTHAN:
+                return IF_ICMPGT;
+            case LESSEQUAL:
+                return IF_ICMPLE;
+            case GREATEREQUAL:
+                return IF_ICMPGE;
+            case EQUALTO:
+                return IF_ICMPEQ;
+            case NOTEQUAL:
+                return IF_ICMPNE;
+            default:
+                throw new IllegalArgumentException("Unknown comparison " + operatorType);
+        }
+    }
+
+    // Jump on the result of DCMPG / DCMPL against zero
+    private static int getZeroJump(TokenType operatorType) {
+        switch (operatorType) {
+            case LESSTHAN:
+                return IFLT;
+            case GREATERTHAN:
+                return IFGT;
+            case LESSEQUAL:
+                return IFLE;
+            case GREATEREQUAL:
+                return IFGE;
+            case EQUALTO:
+                return IFEQ;
+            case NOTEQUAL:
+                return IFNE;
+            default:
+                throw new IllegalArgumentException("Unknown comparison " + operatorType);
+        }
+    }
+
+    private int addText(String text) {
+        Integer index = textIndexes.get(text);
+        if (index == null) {
+            index = texts.size();
+            texts.add(text);
+            textIndexes.put(text, index);
+        }
+        return index;
+    }
+
+    private RuntimeException error(int offset, String message) {
+        LineMap lineMap = program.getLineMap();
+        if (lineMap == null)
+            return new RuntimeException(message);
+        return new RuntimeException("(" + lineMap.getLine(offset) + "," + lineMap.getColumn(offset) + "): " + message);
+    }
+}
@@ -0,0 +1,47 @@
+package Analysis.JVM;
+
+import Analysis.IO.InputSource;
+import Analysis.IO.OutputSink;
+import Analysis.Syntax.LineMap;
+import Analysis.Table.VariableTable;
+
+// What generated code calls back into while it runs: the execution's I/O and
+// variables, and the data of the JvmProgram that has no place in a class file.
+public final class JvmContext {
+    private final JvmProgram program;
+    private final VariableTable variableTable;
+    private final InputSource input;
+    private final OutputSink output;
+
+    JvmContext(JvmProgram program, VariableTable variableTable, InputSource input, OutputSink output) {
+        this.program = program;
+        this.variableTable = variableTable;
+        this.input = input;
+        this.output = output;
+    }
+
+    public OutputSink getOutput() {
+        return output;
+    }
+
+    // Encoded literal fragments of DISPLAY statements, by index
+    public byte[][] getTexts() {
+        return program.getTexts();
+    }
+
+    // Runs SCAN statement index, the scanned values are left in the VariableTable
+    public void scan(int index) {
+        // Pending output, such as a prompt, has to be visible before waiting for input
+        output.flush();
+        int[] slots = program.getScanSlots(index);
+        input.scan(variableTable, slots, 0, slots.length, program.getSlotNames());
+    }
+
+    // Error for a load of a variable that has no value, at source offset
+    public RuntimeException unassigned(int slot, int offset) {
+        LineMap lineMap = program.getLineMap();
+        int line = lineMap == null ? 0 : lineMap.getLine(offset);
+        int column = lineMap == null ? 0 : lineMap.getColumn(offset);
+        return new RuntimeException("(" + line + "," + column + "): Variable '" + program.getSlotNames()[slot] + "' is null.");
+    }
+}
@@ -0,0 +1,67 @@
+package Analysis.JVM;
+
+import Analysis.IO.InputSource;
+import Analysis.IO.OutputSink;
+import Analysis.Syntax.LineMap;
+import Analysis.Table.VariableTable;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+
+// A program compiled to a JVM class by the JvmCompiler. The class is defined as a
+// hidden class, so it is not visible by name, and is unloaded together with this
+// object once it is no longer used. Like a Chunk, a JvmProgram can be run by any
+// number of Executions at once.
+public final class JvmProgram {
+    static final String ENTRY_NAME = "run";
+    static final String ENTRY_DESCRIPTOR = "(LAnalysis/JVM/JvmContext;[J[Z)V";
+
+    private final MethodHandle entry;
+    private final byte[][] texts;
+    private final int[][] scanSlots;
+    private final String[] slotNames;
+    private final LineMap lineMap;
+
+    JvmProgram(byte[] classFile, byte[][] texts, int[][] scanSlots, String[] slotNames, LineMap lineMap) {
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.lookup().defineHiddenClass(classFile, true);
+            this.entry = lookup.findStatic(lookup.lookupClass(), ENTRY_NAME,
+                    MethodType.methodType(void.class, JvmContext.class, long[].class, boolean[].class));
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Unable to load generated class.", e);
+        }
+        this.texts = texts;
+        this.scanSlots = scanSlots;
+        this.slotNames = slotNames;
+        this.lineMap = lineMap;
+    }
+
+    // Runs the program on the variables of the table. Variables stay in JVM locals
+    // while it runs and are written back to the table when it completes.
+    public void run(VariableTable variableTable, InputSource input, OutputSink output) {
+        JvmContext context = new JvmContext(this, variableTable, input, output);
+        try {
+            entry.invokeExact(context, variableTable.getValues(), variableTable.getAssigned());
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    byte[][] getTexts() {
+        return texts;
+    }
+
+    int[] getScanSlots(int index) {
+        return scanSlots[index];
+    }
+
+    String[] getSlotNames() {
+        return slotNames;
+    }
+
+    LineMap getLineMap() {
+        return lineMap;
+    }
+}
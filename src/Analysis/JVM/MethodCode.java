@@ -0,0 +1,277 @@
+package Analysis.JVM;
+
+import java.util.Arrays;
+
+// Instruction stream of one JVM method. Tracks the operand stack depth and the
+// locals used, so max_stack and max_locals come out right, and resolves jumps to
+// labels once their positions are known. Branch offsets are 16 bits, so a method
+// has to stay under 32K of code for every jump to reach.
+public class MethodCode {
+    // The JVM instructions the JvmCompiler uses
+    static final int ICONST_0 = 0x03;
+    static final int DCONST_0 = 0x0E;
+    static final int DCONST_1 = 0x0F;
+    static final int BIPUSH = 0x10;
+    static final int SIPUSH = 0x11;
+    static final int LDC_W = 0x13;
+    static final int LDC2_W = 0x14;
+    static final int ILOAD = 0x15;
+    static final int DLOAD = 0x18;
+    static final int ALOAD = 0x19;
+    static final int LALOAD = 0x2F;
+    static final int AALOAD = 0x32;
+    static final int BALOAD = 0x33;
+    static final int ISTORE = 0x36;
+    static final int DSTORE = 0x39;
+    static final int ASTORE = 0x3A;
+    static final int LASTORE = 0x50;
+    static final int BASTORE = 0x54;
+    static final int IADD = 0x60;
+    static final int DADD = 0x63;
+    static final int ISUB = 0x64;
+    static final int DSUB = 0x67;
+    static final int IMUL = 0x68;
+    static final int DMUL = 0x6B;
+    static final int IDIV = 0x6C;
+    static final int DDIV = 0x6F;
+    static final int IREM = 0x70;
+    static final int DREM = 0x73;
+    static final int INEG = 0x74;
+    static final int DNEG = 0x77;
+    static final int IXOR = 0x82;
+    static final int I2L = 0x85;
+    static final int I2D = 0x87;
+    static final int L2I = 0x88;
+    static final int I2C = 0x92;
+    static final int DCMPL = 0x97;
+    static final int DCMPG = 0x98;
+    static final int IFEQ = 0x99;
+    static final int IFNE = 0x9A;
+    static final int IFLT = 0x9B;
+    static final int IFGE = 0x9C;
+    static final int IFGT = 0x9D;
+    static final int IFLE = 0x9E;
+    static final int IF_ICMPEQ = 0x9F;
+    static final int IF_ICMPNE = 0xA0;
+    static final int IF_ICMPLT = 0xA1;
+    static final int IF_ICMPGE = 0xA2;
+    static final int IF_ICMPGT = 0xA3;
+    static final int IF_ICMPLE = 0xA4;
+    static final int GOTO = 0xA7;
+    static final int RETURN = 0xB1;
+    static final int INVOKEVIRTUAL = 0xB6;
+    static final int INVOKESTATIC = 0xB8;
+    static final int ATHROW = 0xBF;
+    static final int WIDE = 0xC4;
+
+    private final ClassWriter classWriter;
+    private byte[] code;
+    private int length;
+    private int stackDepth;
+    private int maxStack;
+    private int maxLocals;
+
+    private int[] labels;      // Position of each label, -1 until it is marked
+    private int labelCount;
+    private int[] fixups;      // Pairs of (instruction position, label) for jumps to patch
+    private int fixupCount;
+
+    public MethodCode(ClassWriter classWriter, int parameterSlots) {
+        this.classWriter = classWriter;
+        this.code = new byte[256];
+        this.labels = new int[16];
+        this.fixups = new int[32];
+        this.maxLocals = parameterSlots;
+    }
+
+    public int getLength() {
+        return length;
+    }
+
+    public int getMaxStack() {
+        return maxStack;
+    }
+
+    public int getMaxLocals() {
+        return maxLocals;
+    }
+
+    public int getStackDepth() {
+        return stackDepth;
+    }
+
+    // For code reached only by a jump, where the depth is that of the jump instead of the code before it
+    public void setStackDepth(int stackDepth) {
+        this.stackDepth = stackDepth;
+    }
+
+    // Emits an instruction without operands that changes the stack depth by stackEffect
+    public void op(int opcode, int stackEffect) {
+        u1(opcode);
+        adjustStack(stackEffect);
+    }
+
+    public void pushInt(int value) {
+        if (value >= -1 && value <= 5)
+            op(ICONST_0 + value, 1);
+        else if (value >= Byte.MIN_VALUE && value <= Byte.MAX_VALUE) {
+            op(BIPUSH, 1);
+            u1(value);
+        } else if (value >= Short.MIN_VALUE && value <= Short.MAX_VALUE) {
+            op(SIPUSH, 1);
+            u2(value);
+        } else {
+            op(LDC_W, 1);
+            u2(classWriter.addInteger(value));
+        }
+    }
+
+    public void pushDouble(double value) {
+        if (Double.doubleToRawLongBits(value) == 0L)
+            op(DCONST_0, 2);
+        else if (value == 1.0)
+            op(DCONST_1, 2);
+        else {
+            op(LDC2_W, 2);
+            u2(classWriter.addDouble(value));
+        }
+    }
+
+    public void loadInt(int local) {
+        local(ILOAD, local, 1, 1);
+    }
+
+    public void storeInt(int local) {
+        local(ISTORE, local, -1, 1);
+    }
+
+    public void loadDouble(int local) {
+        local(DLOAD, local, 2, 2);
+    }
+
+    public void storeDouble(int local) {
+        local(DSTORE, local, -2, 2);
+    }
+
+    public void loadReference(int local) {
+        local(ALOAD, local, 1, 1);
+    }
+
+    public void storeReference(int local) {
+        local(ASTORE, local, -1, 1);
+    }
+
+    private void local(int opcode, int local, int stackEffect, int size) {
+        if (local > 255) {
+            u1(WIDE);
+            u1(opcode);
+            u2(local);
+        } else {
+            u1(opcode);
+            u1(local);
+        }
+        adjustStack(stackEffect);
+        maxLocals = Math.max(maxLocals, local + size);
+    }
+
+    // INVOKESTATIC or INVOKEVIRTUAL, the stack effect follows from the descriptor
+    public void invoke(int opcode, String owner, String name, String descriptor) {
+        u1(opcode);
+        u2(classWriter.addMethodref(owner, name, descriptor));
+        adjustStack(getStackEffect(descriptor) - (opcode == INVOKESTATIC ? 0 : 1));
+    }
+
+    public int newLabel() {
+        if (labelCount == labels.length)
+            labels = Arrays.copyOf(labels, labelCount * 2);
+        labels[labelCount] = -1;
+        return labelCount++;
+    }
+
+    // Places the label at the next instruction
+    public void mark(int label) {
+        labels[label] = length;
+    }
+
+    // Emits a GOTO or conditional branch to the label, popping the compared values
+    public void jump(int opcode, int label) {
+        if (fixupCount + 2 > fixups.length)
+            fixups = Arrays.copyOf(fixups, fixups.length * 2);
+        fixups[fixupCount++] = length;
+        fixups[fixupCount++] = label;
+
+        u1(opcode);
+        u2(0);
+        if (opcode >= IF_ICMPEQ && opcode <= IF_ICMPLE)
+            adjustStack(-2);
+        else if (opcode != GOTO)
+            adjustStack(-1);
+    }
+
+    // Appends complete code, such as a method body compiled before its prologue
+    public void append(MethodCode other) {
+        byte[] bytes = other.toByteArray();
+        ensure(bytes.length);
+        System.arraycopy(bytes, 0, code, length, bytes.length);
+        length += bytes.length;
+        maxStack = Math.max(maxStack, stackDepth + other.maxStack);
+        maxLocals = Math.max(maxLocals, other.maxLocals);
+    }
+
+    // The instructions with every jump resolved
+    public byte[] toByteArray() {
+        byte[] result = Arrays.copyOf(code, length);
+        for (int i = 0; i < fixupCount; i += 2) {
+            int position = fixups[i];
+            int target = labels[fixups[i + 1]];
+            if (target < 0)
+                throw new IllegalStateException("Jump to a label that was never marked.");
+            int offset = target - position;
+            if (offset != (short) offset)
+                throw new IllegalStateException("Jump out of range.");
+            result[position + 1] = (byte) (offset >> 8);
+            result[position + 2] = (byte) offset;
+        }
+        return result;
+    }
+
+    private void adjustStack(int stackEffect) {
+        stackDepth += stackEffect;
+        maxStack = Math.max(maxStack, stackDepth);
+    }
+
+    private void u1(int value) {
+        ensure(1);
+        code[length++] = (byte) value;
+    }
+
+    private void u2(int value) {
+        ensure(2);
+        code[length++] = (byte) (value >> 8);
+        code[length++] = (byte) value;
+    }
+
+    private void ensure(int size) {
+        if (length + size > code.length)
+            code = Arrays.copyOf(code, Math.max(code.length * 2, length + size));
+    }
+
+    // Words pushed by the return value minus words popped by the arguments
+    private static int getStackEffect(String descriptor) {
+        int effect = 0;
+        int index = 1;
+        while (descriptor.charAt(index) != ')') {
+            char type = descriptor.charAt(index);
+            effect -= type == 'J' || type == 'D' ? 2 : 1;
+            while (descriptor.charAt(index) == '[')
+                index++;
+            if (descriptor.charAt(index) == 'L')
+                index = descriptor.indexOf(';', index);
+            index++;
+        }
+        char result = descriptor.charAt(index + 1);
+        if (result == 'V')
+            return effect;
+        return effect + (result == 'J' || result == 'D' ? 2 : 1);
+    }
+}
@@ -0,0 +1,111 @@
+package Analysis;
+
+import Analysis.IR.IRProgram;
+import Analysis.IR.Lowering;
+import Analysis.JVM.JvmCompiler;
+import Analysis.JVM.JvmProgram;
+import Analysis.Optimize.OptimizationLevel;
+import Analysis.Optimize.PassManager;
+import Analysis.Table.VariableTable;
+import Analysis.Tree.FlatTree;
+import Analysis.Tree.ProgramNode;
+import Analysis.Tree.Statement.LoopNode;
+import Analysis.Tree.Statement.StatementNode;
+import Analysis.Type.DataType;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+// Second tier of the AST Interpreter. Every WHILE loop counts its back-edges, and
+// once a loop has taken THRESHOLD of them it is lowered on its own, optimized at
+// O2 and compiled to JVM code, which then takes over at the next test of its
+// condition with the variables as they are. Later entries into the loop go
+// straight to the compiled code, so only programs that loop pay for compiling.
+//
+// The compiled code assumes the variables assigned when it was compiled still are,
+// which holds for the rest of the run since a variable never loses its value, so
+// a LoopTiering must not be shared between executions. Nor between programs: the
+// loops of a FlatTree are told apart by their index.
+public class LoopTiering {
+    public static final int THRESHOLD = 1000;
+
+    private final Map<LoopNode, Profile> profiles;
+    private Profile[] treeProfiles; // By node index, for the loops of a FlatTree
+    private int compiledCount;
+
+    public LoopTiering() {
+        this.profiles = new IdentityHashMap<>();
+    }
+
+    public Profile getProfile(LoopNode loop) {
+        return profiles.computeIfAbsent(loop, key -> new Profile(key, null, -1));
+    }
+
+    // Profile of the loop at node of tree, only decoded to a LoopNode if it gets hot
+    public Profile getProfile(FlatTree tree, int node) {
+        if (treeProfiles == null)
+            treeProfiles = new Profile[tree.size()];
+        if (treeProfiles[node] == null)
+            treeProfiles[node] = new Profile(null, tree, node);
+        return treeProfiles[node];
+    }
+
+    // Compiled code for a hot loop, compiled on the first call. null when the loop has
+    // to stay in the Interpreter because it does not fit in a JVM method.
+    public JvmProgram compile(Profile profile, VariableTable variableTable, String[] slotNames) {
+        if (profile.compiled)
+            return profile.code;
+
+        DataType[] slotTypes = new DataType[variableTable.size()];
+        BitSet assigned = new BitSet();
+        for (int slot = 0; slot < slotTypes.length; slot++) {
+            slotTypes[slot] = variableTable.getType(slot);
+            if (variableTable.isAssigned(slot))
+                assigned.set(slot);
+        }
+
+        List<StatementNode> statements = new ArrayList<>();
+        statements.add(profile.loop != null ? profile.loop : profile.tree.decodeLoop(profile.node, slotNames));
+        IRProgram ir = new Lowering(slotNames, slotTypes).lower(new ProgramNode(statements));
+        ir.setAssignedOnEntry(assigned);
+        PassManager.forLevel(OptimizationLevel.O2).run(ir);
+
+        profile.code = new JvmCompiler().compile(ir);
+        profile.compiled = true;
+        if (profile.code != null)
+            compiledCount++;
+        return profile.code;
+    }
+
+    // Number of loops running as JVM code
+    public int getCompiledCount() {
+        return compiledCount;
+    }
+
+    // Back-edge count and compiled code of one loop, a LoopNode or a loop node of a FlatTree
+    public static final class Profile {
+        private final LoopNode loop;
+        private final FlatTree tree;
+        private final int node;
+        private int backEdges;
+        private boolean compiled;
+        private JvmProgram code;
+
+        private Profile(LoopNode loop, FlatTree tree, int node) {
+            this.loop = loop;
+            this.tree = tree;
+            this.node = node;
+        }
+
+        // Counts one more iteration, returns whether the loop is hot
+        public boolean backEdge() {
+            return ++backEdges >= THRESHOLD;
+        }
+
+        public boolean isHot() {
+            return backEdges >= THRESHOLD;
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package Analysis.Optimize;
+
+import Analysis.IR.*;
+import Analysis.Syntax.Grammar;
+import Analysis.Type.DataType;
+import Analysis.Type.TokenType;
+
+// Removes operations that leave their operand unchanged, such as x + 0, x * 1,
+// --x and NOT NOT x, and folds NOT into an integral comparison by negating it.
+// Only identities that hold for every value are used: FLOAT x + 0.0 is kept
+// since -0.0 + 0.0 is 0.0, and x * 0 is kept since x may have no value yet.
+public class AlgebraicSimplification extends ExpressionPass {
+    @Override
+    public String getName() {
+        return "algebraic-simplification";
+    }
+
+    @Override
+    protected Expression rewrite(Expression expression) {
+        if (expression instanceof Binary)
+            return simplifyBinary((Binary) expression);
+
+        if (expression instanceof Unary) {
+            Unary unary = (Unary) expression;
+            Expression operand = unary.getOperand();
+
+            // --x and NOT NOT x
+            if (operand instanceof Unary && ((Unary) operand).getOperator() == unary.getOperator())
+                return ((Unary) operand).getOperand();
+
+            // NOT (a < b) is a >= b, except for FLOAT where NaN compares false both ways
+            if (unary.getOperator() == TokenType.NOT && operand instanceof Binary) {
+                Binary comparison = (Binary) operand;
+                if (Grammar.isComparisonOperator(comparison.getOperator()) && comparison.getOperandType() != DataType.Float)
+                    return new Binary(negate(comparison.getOperator()), comparison.getLeft(), comparison.getRight(),
+                            DataType.Bool, comparison.getOffset());
+            }
+        }
+        return expression;
+    }
+
+    private Expression simplifyBinary(Binary expression) {
+        Expression left = expression.getLeft();
+        Expression right = expression.getRight();
+
+        switch (expression.getOperator()) {
+            case PLUS:
+                if (expression.getType() != DataType.Int)
+                    return expression;
+                if (isConstant(right, 0))
+                    return left;
+                if (isConstant(left, 0))
+                    return right;
+                return expression;
+            case MINUS:
+                if (isConstant(right, 0))
+                    return left;
+                return expression;
+            case STAR:
+                if (isConstant(right, 1))
+                    return left;
+                if (isConstant(left, 1))
+                    return right;
+                return expression;
+            case SLASH:
+                if (isConstant(right, 1))
+                    return left;
+                return expression;
+            default:
+                return expression;
+        }
+    }
+
+    // Whether the expression is the INT or FLOAT constant value
+    private static boolean isConstant(Expression expression, int value) {
+        if (!(expression instanceof Constant))
+            return false;
+        Constant constant = (Constant) expression;
+        if (constant.getType() == DataType.Float)
+            return constant.asFloat() == value && !(value == 0 && 1 / constant.asFloat() < 0);
+        return constant.getType() == DataType.Int && constant.asInt() == value;
+    }
+
+    private static TokenType negate(TokenType operator) {
+        switch (operator) {
+            case LESSTHAN:
+                return TokenType.GREATEREQUAL;
+            case GREATERTHAN:
+                return TokenType.LESSEQUAL;
+            case LESSEQUAL:
+                return TokenType.GREATERTHAN;
+            case GREATEREQUAL:
+                return TokenType.LESSTHAN;
+            case EQUALTO:
+                return TokenType.NOTEQUAL;
+            case NOTEQUAL:
+                return TokenType.EQUALTO;
+            default:
+                throw new IllegalArgumentException("Unknown comparison " + operator);
+        }
+    }
+}
@@ -0,0 +1,236 @@
+package Analysis.Optimize;
+
+import Analysis.IR.*;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.UnaryOperator;
+
+// Computes a repeated expression once. Within each run of straight-line statements
+// an expression that appears again before any slot it reads is written is stored
+// in a temporary right before the statement of its first appearance, and every
+// appearance loads the temporary instead. Only computations that cannot fail are
+// shared (see LoopAnalysis), since the temporary is evaluated ahead of the rest of
+// its statement and also where the right side of AND / OR might have been skipped.
+public class CommonSubexpressionElimination implements Pass {
+    private IRProgram program;
+    private int changes;
+
+    @Override
+    public String getName() {
+        return "common-subexpression-elimination";
+    }
+
+    @Override
+    public int run(IRProgram program) {
+        this.program = program;
+        changes = 0;
+        visitBlock(program.getStatements(), (BitSet) program.getAssignedOnEntry().clone());
+        return changes;
+    }
+
+    private void visitBlock(List<Statement> block, BitSet assigned) {
+        int start = 0;
+        for (int index = 0; index <= block.size(); index++) {
+            Statement statement = index < block.size() ? block.get(index) : null;
+            if (statement instanceof If || statement instanceof While || statement == null) {
+                index += eliminate(block, start, index, (BitSet) assigned.clone());
+                start = index + 1;
+                if (statement == null)
+                    break;
+
+                if (statement instanceof If) {
+                    visitBlock(((If) statement).getThenBlock(), (BitSet) assigned.clone());
+                    visitBlock(((If) statement).getElseBlock(), (BitSet) assigned.clone());
+                } else
+                    visitBlock(((While) statement).getBody(), (BitSet) assigned.clone());
+            }
+            LoopAnalysis.assign(statement, assigned);
+        }
+    }
+
+    // Shares the repeated expressions of block[start, end) and returns the number of Stores inserted
+    private int eliminate(List<Statement> block, int start, int end, BitSet assigned) {
+        if (end - start < 1)
+            return 0;
+
+        // Find the expressions that repeat before a slot they read is written, by statement of first appearance
+        Map<Integer, Set<Expression>> shared = new HashMap<>();
+        Map<Expression, Occurrence> live = new HashMap<>();
+        Map<Integer, List<Expression>> readers = new HashMap<>();
+        BitSet current = (BitSet) assigned.clone();
+        for (int index = start; index < end; index++) {
+            Statement statement = block.get(index);
+            for (Expression expression : getExpressions(statement))
+                count(expression, index, current, live, readers);
+            for (int slot : getWrittenSlots(statement)) {
+                List<Expression> expressions = readers.remove(slot);
+                if (expressions != null) {
+                    for (Expression expression : expressions)
+                        close(live.remove(expression), shared);
+                }
+            }
+            LoopAnalysis.assign(statement, current);
+        }
+        for (Occurrence occurrence : live.values())
+            close(occurrence, shared);
+        if (shared.isEmpty())
+            return 0;
+
+        // Store each one before its first appearance and load it until a slot it reads changes
+        Map<Expression, Integer> temporaries = new HashMap<>();
+        int inserted = 0;
+        for (int index = start; index < end + inserted; index++) {
+            Statement statement = block.get(index);
+            Set<Expression> first = shared.getOrDefault(index - inserted, Set.of());
+            List<Statement> stores = new ArrayList<>();
+            rewrite(statement, expression -> replace(expression, first, temporaries, stores));
+
+            for (int slot : getWrittenSlots(statement))
+                temporaries.keySet().removeIf(expression -> !LoopAnalysis.isInvariant(expression, slotSet(slot)));
+
+            block.addAll(index, stores);
+            index += stores.size();
+            inserted += stores.size();
+        }
+        return inserted;
+    }
+
+    private void count(Expression expression, int index, BitSet assigned, Map<Expression, Occurrence> live,
+                       Map<Integer, List<Expression>> readers) {
+        if (isCandidate(expression) && !LoopAnalysis.canFail(expression, assigned)) {
+            Occurrence occurrence = live.get(expression);
+            if (occurrence != null) {
+                // Its operands are shared along with it
+                occurrence.count++;
+                return;
+            }
+            live.put(expression, new Occurrence(expression, index));
+            for (int slot : readSlots(expression))
+                readers.computeIfAbsent(slot, key -> new ArrayList<>()).add(expression);
+        }
+
+        if (expression instanceof Binary) {
+            count(((Binary) expression).getLeft(), index, assigned, live, readers);
+            count(((Binary) expression).getRight(), index, assigned, live, readers);
+        } else if (expression instanceof Unary)
+            count(((Unary) expression).getOperand(), index, assigned, live, readers);
+        else if (expression instanceof Convert)
+            count(((Convert) expression).getOperand(), index, assigned, live, readers);
+    }
+
+    private static void close(Occurrence occurrence, Map<Integer, Set<Expression>> shared) {
+        if (occurrence != null && occurrence.count > 1)
+            shared.computeIfAbsent(occurrence.index, key -> new HashSet<>()).add(occurrence.expression);
+    }
+
+    private Expression replace(Expression expression, Set<Expression> first, Map<Expression, Integer> temporaries,
+                               List<Statement> stores) {
+        Integer temporary = temporaries.get(expression);
+        if (temporary != null) {
+            changes++;
+            return new Load(temporary, expression.getType(), expression.getOffset());
+        }
+
+        Expression result = expression;
+        if (expression instanceof Binary) {
+            Binary binary = (Binary) expression;
+            result = binary.with(replace(binary.getLeft(), first, temporaries, stores),
+                    replace(binary.getRight(), first, temporaries, stores));
+        } else if (expression instanceof Unary) {
+            Unary unary = (Unary) expression;
+            result = unary.with(replace(unary.getOperand(), first, temporaries, stores));
+        } else if (expression instanceof Convert) {
+            Convert convert = (Convert) expression;
+            result = convert.with(replace(convert.getOperand(), first, temporaries, stores));
+        }
+
+        if (!first.contains(expression))
+            return result;
+
+        // Operands shared on their own were stored first, so the temporary is built from their loads
+        temporary = program.addTemporary(expression.getType());
+        stores.add(new Store(temporary, result, expression.getOffset()));
+        temporaries.put(expression, temporary);
+        changes++;
+        return new Load(temporary, expression.getType(), expression.getOffset());
+    }
+
+    // Binary operations and the Unary and Convert nodes over one, the rest are as cheap as a Load
+    private static boolean isCandidate(Expression expression) {
+        if (expression instanceof Binary)
+            return true;
+        if (expression instanceof Unary)
+            return isCandidate(((Unary) expression).getOperand());
+        if (expression instanceof Convert)
+            return isCandidate(((Convert) expression).getOperand());
+        return false;
+    }
+
+    private static List<Expression> getExpressions(Statement statement) {
+        if (statement instanceof Store)
+            return List.of(((Store) statement).getValue());
+        if (statement instanceof Display)
+            return ((Display) statement).getItems();
+        return List.of();
+    }
+
+    private static void rewrite(Statement statement, UnaryOperator<Expression> rewrite) {
+        if (statement instanceof Store)
+            ((Store) statement).setValue(rewrite.apply(((Store) statement).getValue()));
+        else if (statement instanceof Display) {
+            List<Expression> items = ((Display) statement).getItems();
+            for (int i = 0; i < items.size(); i++)
+                items.set(i, rewrite.apply(items.get(i)));
+        }
+    }
+
+    private static int[] getWrittenSlots(Statement statement) {
+        if (statement instanceof Store)
+            return new int[] { ((Store) statement).getSlot() };
+        if (statement instanceof Scan)
+            return ((Scan) statement).getSlots();
+        return new int[0];
+    }
+
+    private static int[] readSlots(Expression expression) {
+        BitSet slots = new BitSet();
+        addReadSlots(expression, slots);
+        return slots.stream().toArray();
+    }
+
+    private static void addReadSlots(Expression expression, BitSet slots) {
+        if (expression instanceof Load)
+            slots.set(((Load) expression).getSlot());
+        else if (expression instanceof Binary) {
+            addReadSlots(((Binary) expression).getLeft(), slots);
+            addReadSlots(((Binary) expression).getRight(), slots);
+        } else if (expression instanceof Unary)
+            addReadSlots(((Unary) expression).getOperand(), slots);
+        else if (expression instanceof Convert)
+            addReadSlots(((Convert) expression).getOperand(), slots);
+    }
+
+    private static BitSet slotSet(int slot) {
+        BitSet slots = new BitSet();
+        slots.set(slot);
+        return slots;
+    }
+
+    // An expression seen in the current run and how often it appeared before a slot it reads was written
+    private static final class Occurrence {
+        final Expression expression;
+        final int index;
+        int count;
+
+        Occurrence(Expression expression, int index) {
+            this.expression = expression;
+            this.index = index;
+            this.count = 1;
+        }
+    }
+}
@@ -0,0 +1,312 @@
+package Analysis.Optimize;
+
+import Analysis.Syntax.Token;
+import Analysis.Tree.ProgramNode;
+import Analysis.Tree.Expression.BinaryNode;
+import Analysis.Tree.Expression.ExpressionNode;
+import Analysis.Tree.Expression.LiteralNode;
+import Analysis.Tree.Expression.ParenthesisNode;
+import Analysis.Tree.Expression.UnaryNode;
+import Analysis.Tree.Statement.*;
+import Analysis.Type.DataType;
+import Analysis.Type.TokenType;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+// Rewrites a ProgramNode checked by Semantic so constant work is done once here
+// instead of on every execution. Operators whose operands are all literals become
+// literals, parentheses are dropped since the tree already encodes the grouping,
+// and IF branches and WHILE loops whose conditions are constant are resolved.
+//
+// Folding computes exactly what the Interpreter would: INT arithmetic in Java int,
+// FLOAT arithmetic in double with INT operands promoted, and an INT division or
+// modulo by zero is left in place so it still fails when, and only if, it runs.
+public class ConstantFolder {
+    private int folded; // Number of nodes rewritten so far
+
+    public ProgramNode fold(ProgramNode program) {
+        foldStatements(program.getStatements());
+        return program;
+    }
+
+    // Folds the statements in place. Resolved IF statements are replaced by the
+    // statements of the branch that is always taken, or removed when none is.
+    public void foldStatements(List<StatementNode> statements) {
+        for (int index = 0; index < statements.size(); index++) {
+            StatementNode statement = statements.get(index);
+            if (statement instanceof ConditionalNode) {
+                ProgramNode block = foldCondition((ConditionalNode) statement);
+                if (block != null) {
+                    statements.remove(index);
+                    statements.addAll(index, block.getStatements());
+                    index += block.getStatements().size() - 1;
+                }
+            } else if (statement instanceof LoopNode) {
+                LoopNode loop = foldLoop((LoopNode) statement);
+                if (loop == null) {
+                    statements.remove(index--);
+                    folded++;
+                } else
+                    statements.set(index, loop);
+            } else
+                statements.set(index, foldStatement(statement));
+        }
+    }
+
+    public int getFoldedCount() {
+        return folded;
+    }
+
+    private StatementNode foldStatement(StatementNode statement) {
+        if (statement instanceof VariableDeclarationNode) {
+            for (Map.Entry<String, ExpressionNode> entry : ((VariableDeclarationNode) statement).getVariables().entrySet()) {
+                if (entry.getValue() != null)
+                    entry.setValue(foldExpression(entry.getValue()));
+            }
+        } else if (statement instanceof AssignmentNode) {
+            AssignmentNode assignment = (AssignmentNode) statement;
+            ExpressionNode expression = foldExpression(assignment.getExpression());
+            if (expression != assignment.getExpression()) {
+                AssignmentNode result = new AssignmentNode(assignment.getIdentifiers(), assignment.getSymbols(),
+                        assignment.getEqualsTokens(), expression);
+                result.setSlots(assignment.getSlots());
+                return result;
+            }
+        } else if (statement instanceof DisplayNode) {
+            List<ExpressionNode> expressions = ((DisplayNode) statement).getExpressions();
+            for (int i = 0; i < expressions.size(); i++)
+                expressions.set(i, foldExpression(expressions.get(i)));
+        }
+        return statement;
+    }
+
+    // Drops the branches that can never run. Returns the block to run in place of the
+    // statement when its first remaining branch is always taken, an empty block when
+    // no branch can run, or null when the statement still has to be tested at runtime.
+    private ProgramNode foldCondition(ConditionalNode statement) {
+        List<Token> tokens = statement.getTokens();
+        List<ExpressionNode> expressions = statement.getExpressions();
+        List<ProgramNode> blocks = statement.getStatements();
+
+        for (int index = 0; index < expressions.size(); index++) {
+            foldStatements(blocks.get(index).getStatements());
+            if (expressions.get(index) == null)
+                continue;
+
+            ExpressionNode expression = foldExpression(expressions.get(index));
+            expressions.set(index, expression);
+            if (!(expression instanceof LiteralNode))
+                continue;
+
+            folded++;
+            if ((Boolean) ((LiteralNode) expression).getLiteral()) {
+                // Always taken: it becomes the ELSE block and the branches after it are dead
+                expressions.set(index, null);
+                truncate(tokens, index + 1);
+                truncate(expressions, index + 1);
+                truncate(blocks, index + 1);
+            } else {
+                tokens.remove(index);
+                expressions.remove(index);
+                blocks.remove(index--);
+            }
+        }
+
+        if (expressions.isEmpty())
+            return new ProgramNode(new ArrayList<>());
+        if (expressions.get(0) == null)
+            return blocks.get(0);
+        return null;
+    }
+
+    // Returns null for a loop whose condition is always false
+    private LoopNode foldLoop(LoopNode statement) {
+        foldStatements(statement.getStatement().getStatements());
+
+        ExpressionNode expression = foldExpression(statement.getExpression());
+        if (expression instanceof LiteralNode && !(Boolean) ((LiteralNode) expression).getLiteral())
+            return null;
+        if (expression == statement.getExpression())
+            return statement;
+        return new LoopNode(statement.getWhileToken(), expression, statement.getStatement());
+    }
+
+    private ExpressionNode foldExpression(ExpressionNode expression) {
+        if (expression instanceof ParenthesisNode) {
+            folded++;
+            return foldExpression(((ParenthesisNode) expression).getExpression());
+        } else if (expression instanceof BinaryNode)
+            return foldBinary((BinaryNode) expression);
+        else if (expression instanceof UnaryNode)
+            return foldUnary((UnaryNode) expression);
+        return expression;
+    }
+
+    private ExpressionNode foldBinary(BinaryNode expression) {
+        ExpressionNode left = foldExpression(expression.getLeft());
+        ExpressionNode right = foldExpression(expression.getRight());
+        Token operator = expression.getTokenOperator();
+        TokenType operatorType = operator.getTokenType();
+
+        // A constant left side of AND / OR decides whether the right side is evaluated
+        if ((operatorType == TokenType.AND || operatorType == TokenType.OR) && left instanceof LiteralNode) {
+            folded++;
+            boolean value = (Boolean) ((LiteralNode) left).getLiteral();
+            if (value == (operatorType == TokenType.OR))
+                return left;
+            return right;
+        }
+
+        if (!(left instanceof LiteralNode) || !(right instanceof LiteralNode))
+            return rebuild(expression, left, right);
+
+        Object leftValue = ((LiteralNode) left).getLiteral();
+        Object rightValue = ((LiteralNode) right).getLiteral();
+        Object value;
+        if (expression.getDataType() == DataType.Int) {
+            int divisor = (Integer) rightValue;
+            if (divisor == 0 && (operatorType == TokenType.SLASH || operatorType == TokenType.PERCENT))
+                return rebuild(expression, left, right);
+            value = foldInt(operatorType, (Integer) leftValue, divisor);
+        } else if (expression.getDataType() == DataType.Float)
+            value = foldFloat(operatorType, toDouble(leftValue), toDouble(rightValue));
+        else
+            value = foldComparison(operatorType, left.getDataType(), right.getDataType(), leftValue, rightValue);
+
+        return literal(operator, value, expression.getDataType());
+    }
+
+    private static BinaryNode rebuild(BinaryNode expression, ExpressionNode left, ExpressionNode right) {
+        if (left == expression.getLeft() && right == expression.getRight())
+            return expression;
+        BinaryNode result = new BinaryNode(left, expression.getTokenOperator(), right);
+        result.setDataType(expression.getDataType());
+        return result;
+    }
+
+    private ExpressionNode foldUnary(UnaryNode expression) {
+        ExpressionNode operand = foldExpression(expression.getExpression());
+        Token operator = expression.getTokenOperator();
+
+        if (!(operand instanceof LiteralNode)) {
+            if (operand == expression.getExpression())
+                return expression;
+            UnaryNode result = new UnaryNode(operator, operand);
+            result.setDataType(expression.getDataType());
+            return result;
+        }
+
+        Object value = ((LiteralNode) operand).getLiteral();
+        if (operator.getTokenType() == TokenType.MINUS) {
+            if (expression.getDataType() == DataType.Int)
+                value = -(Integer) value;
+            else
+                value = -toDouble(value);
+        } else if (operator.getTokenType() == TokenType.NOT)
+            value = !(Boolean) value;
+        return literal(operator, value, expression.getDataType());
+    }
+
+    public static int foldInt(TokenType operator, int left, int right) {
+        switch (operator) {
+            case PLUS:
+                return left + right;
+            case MINUS:
+                return left - right;
+            case STAR:
+                return left * right;
+            case SLASH:
+                return left / right;
+            case PERCENT:
+                return left % right;
+            default:
+                throw new RuntimeException("Unknown operator.");
+        }
+    }
+
+    public static double foldFloat(TokenType operator, double left, double right) {
+        switch (operator) {
+            case PLUS:
+                return left + right;
+            case MINUS:
+                return left - right;
+            case STAR:
+                return left * right;
+            case SLASH:
+                return left / right;
+            case PERCENT:
+                return left % right;
+            default:
+                throw new RuntimeException("Unknown operator.");
+        }
+    }
+
+    // Compares in the operands' own type, FLOAT if either side is FLOAT, like the Interpreter
+    private static boolean foldComparison(TokenType operator, DataType leftType, DataType rightType, Object left, Object right) {
+        if (leftType == DataType.Float || rightType == DataType.Float)
+            return compareFloat(operator, toDouble(left), toDouble(right));
+        return compareInt(operator, toInt(left), toInt(right));
+    }
+
+    public static boolean compareInt(TokenType operator, int left, int right) {
+        switch (operator) {
+            case LESSTHAN:
+                return left < right;
+            case GREATERTHAN:
+                return left > right;
+            case LESSEQUAL:
+                return left <= right;
+            case GREATEREQUAL:
+                return left >= right;
+            case EQUALTO:
+                return left == right;
+            case NOTEQUAL:
+                return left != right;
+            default:
+                throw new RuntimeException("Unknown operator.");
+        }
+    }
+
+    public static boolean compareFloat(TokenType operator, double left, double right) {
+        switch (operator) {
+            case LESSTHAN:
+                return left < right;
+            case GREATERTHAN:
+                return left > right;
+            case LESSEQUAL:
+                return left <= right;
+            case GREATEREQUAL:
+                return left >= right;
+            case EQUALTO:
+                return left == right;
+            case NOTEQUAL:
+                return left != right;
+            default:
+                throw new RuntimeException("Unknown operator.");
+        }
+    }
+
+    private static double toDouble(Object value) {
+        return ((Number) value).doubleValue();
+    }
+
+    private static int toInt(Object value) {
+        if (value instanceof Character)
+            return (Character) value;
+        if (value instanceof Boolean)
+            return (Boolean) value ? 1 : 0;
+        return (Integer) value;
+    }
+
+    private LiteralNode literal(Token token, Object value, DataType dataType) {
+        folded++;
+        LiteralNode result = new LiteralNode(token, value);
+        result.setDataType(dataType);
+        return result;
+    }
+
+    private static <T> void truncate(List<T> list, int size) {
+        list.subList(size, list.size()).clear();
+    }
+}
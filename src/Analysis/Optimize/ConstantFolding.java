@@ -0,0 +1,87 @@
+package Analysis.Optimize;
+
+import Analysis.IR.*;
+import Analysis.Type.DataType;
+import Analysis.Type.TokenType;
+import java.util.List;
+
+// Constant folding over the IR, with the arithmetic of ConstantFolder. Besides
+// what is left in the source after the AST is folded, it folds the promotions
+// lowering makes explicit and whatever constants the other passes expose, and
+// resolves If and While statements whose conditions become constant.
+public class ConstantFolding extends ExpressionPass {
+    @Override
+    public String getName() {
+        return "constant-folding";
+    }
+
+    @Override
+    protected void visitBlock(List<Statement> block) {
+        super.visitBlock(block);
+
+        for (int index = 0; index < block.size(); index++) {
+            Statement statement = block.get(index);
+            if (statement instanceof If && ((If) statement).getCondition() instanceof Constant) {
+                If branch = (If) statement;
+                List<Statement> taken = ((Constant) branch.getCondition()).asBool() ? branch.getThenBlock() : branch.getElseBlock();
+                block.remove(index);
+                block.addAll(index, taken);
+                index += taken.size() - 1;
+                changes++;
+            } else if (statement instanceof While && ((While) statement).getCondition() instanceof Constant
+                    && !((Constant) ((While) statement).getCondition()).asBool()) {
+                block.remove(index--);
+                changes++;
+            }
+        }
+    }
+
+    @Override
+    protected Expression rewrite(Expression expression) {
+        if (expression instanceof Binary)
+            return foldBinary((Binary) expression);
+        else if (expression instanceof Unary && ((Unary) expression).getOperand() instanceof Constant) {
+            Unary unary = (Unary) expression;
+            Constant operand = (Constant) unary.getOperand();
+            if (unary.getOperator() == TokenType.NOT)
+                return Constant.ofBool(!operand.asBool(), unary.getOffset());
+            if (unary.getType() == DataType.Float)
+                return Constant.ofFloat(-operand.asFloat(), unary.getOffset());
+            return new Constant(unary.getType(), -operand.asInt(), unary.getOffset());
+        } else if (expression instanceof Convert && ((Convert) expression).getOperand() instanceof Constant)
+            return Constant.ofFloat(((Constant) ((Convert) expression).getOperand()).asInt(), expression.getOffset());
+        return expression;
+    }
+
+    private Expression foldBinary(Binary expression) {
+        TokenType operator = expression.getOperator();
+
+        // A constant left side of AND / OR decides whether the right side is evaluated
+        if ((operator == TokenType.AND || operator == TokenType.OR) && expression.getLeft() instanceof Constant) {
+            if (((Constant) expression.getLeft()).asBool() == (operator == TokenType.OR))
+                return expression.getLeft();
+            return expression.getRight();
+        }
+
+        if (!(expression.getLeft() instanceof Constant) || !(expression.getRight() instanceof Constant))
+            return expression;
+
+        Constant left = (Constant) expression.getLeft();
+        Constant right = (Constant) expression.getRight();
+        int offset = expression.getOffset();
+        boolean isFloat = expression.getOperandType() == DataType.Float;
+
+        if (expression.getType() == DataType.Bool) {
+            if (isFloat)
+                return Constant.ofBool(ConstantFolder.compareFloat(operator, left.asFloat(), right.asFloat()), offset);
+            return Constant.ofBool(ConstantFolder.compareInt(operator, left.asInt(), right.asInt()), offset);
+        }
+        if (isFloat)
+            return Constant.ofFloat(ConstantFolder.foldFloat(operator, left.asFloat(), right.asFloat()), offset);
+
+        // An INT division by zero has to fail when it runs
+        if (right.asInt() == 0 && (operator == TokenType.SLASH || operator == TokenType.PERCENT))
+            return expression;
+        return Constant.ofInt(ConstantFolder.foldInt(operator, left.asInt(), right.asInt()), offset);
+    }
+}
@@ -0,0 +1,61 @@
+package Analysis.Optimize;
+
+import Analysis.IR.*;
+import java.util.List;
+
+// Base of the passes that rewrite expressions one node at a time. Every
+// expression is visited bottom-up, so rewrite sees its operands already
+// rewritten; returning a different node counts as one change.
+public abstract class ExpressionPass implements Pass {
+    protected int changes;
+
+    @Override
+    public int run(IRProgram program) {
+        changes = 0;
+        visitBlock(program.getStatements());
+        return changes;
+    }
+
+    protected void visitBlock(List<Statement> block) {
+        for (Statement statement : block) {
+            if (statement instanceof Store) {
+                Store store = (Store) statement;
+                store.setValue(transform(store.getValue()));
+            } else if (statement instanceof Display) {
+                List<Expression> items = ((Display) statement).getItems();
+                for (int i = 0; i < items.size(); i++)
+                    items.set(i, transform(items.get(i)));
+            } else if (statement instanceof If) {
+                If branch = (If) statement;
+                branch.setCondition(transform(branch.getCondition()));
+                visitBlock(branch.getThenBlock());
+                visitBlock(branch.getElseBlock());
+            } else if (statement instanceof While) {
+                While loop = (While) statement;
+                loop.setCondition(transform(loop.getCondition()));
+                visitBlock(loop.getBody());
+            }
+        }
+    }
+
+    protected Expression transform(Expression expression) {
+        if (expression instanceof Binary) {
+            Binary binary = (Binary) expression;
+            expression = binary.with(transform(binary.getLeft()), transform(binary.getRight()));
+        } else if (expression instanceof Unary) {
+            Unary unary = (Unary) expression;
+            expression = unary.with(transform(unary.getOperand()));
+        } else if (expression instanceof Convert) {
+            Convert convert = (Convert) expression;
+            expression = convert.with(transform(convert.getOperand()));
+        }
+
+        Expression result = rewrite(expression);
+        if (result != expression)
+            changes++;
+        return result;
+    }
+
+    // Returns a replacement for the expression, or the expression itself
+    protected abstract Expression rewrite(Expression expression);
+}
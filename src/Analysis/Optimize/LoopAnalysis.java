@@ -0,0 +1,92 @@
+package Analysis.Optimize;
+
+import Analysis.IR.*;
+import Analysis.Type.DataType;
+import Analysis.Type.TokenType;
+import java.util.BitSet;
+import java.util.List;
+
+// Facts about slots shared by the loop passes. An expression moved out of a loop
+// runs at another time than it used to, possibly when the loop body would not
+// have run at all, so it may only be moved when nothing it reads changes in the
+// loop and it cannot fail: every slot it loads is definitely assigned and it has
+// no INT division or modulo by anything but a non-zero constant.
+final class LoopAnalysis {
+    private LoopAnalysis() {
+    }
+
+    // Slots stored or scanned anywhere in the block, nested blocks included
+    static BitSet writtenSlots(List<Statement> block) {
+        BitSet written = new BitSet();
+        addWrittenSlots(block, written);
+        return written;
+    }
+
+    private static void addWrittenSlots(List<Statement> block, BitSet written) {
+        for (Statement statement : block) {
+            if (statement instanceof Store)
+                written.set(((Store) statement).getSlot());
+            else if (statement instanceof Scan) {
+                for (int slot : ((Scan) statement).getSlots())
+                    written.set(slot);
+            } else if (statement instanceof If) {
+                addWrittenSlots(((If) statement).getThenBlock(), written);
+                addWrittenSlots(((If) statement).getElseBlock(), written);
+            } else if (statement instanceof While)
+                addWrittenSlots(((While) statement).getBody(), written);
+        }
+    }
+
+    // Adds the slots that are definitely assigned once the statement has completed
+    static void assign(Statement statement, BitSet assigned) {
+        if (statement instanceof Store)
+            assigned.set(((Store) statement).getSlot());
+        else if (statement instanceof Scan) {
+            for (int slot : ((Scan) statement).getSlots())
+                assigned.set(slot);
+        } else if (statement instanceof If) {
+            // Only what both branches assign
+            BitSet thenAssigned = (BitSet) assigned.clone();
+            for (Statement nested : ((If) statement).getThenBlock())
+                assign(nested, thenAssigned);
+            BitSet elseAssigned = (BitSet) assigned.clone();
+            for (Statement nested : ((If) statement).getElseBlock())
+                assign(nested, elseAssigned);
+            thenAssigned.and(elseAssigned);
+            assigned.or(thenAssigned);
+        }
+        // A loop body may not run at all
+    }
+
+    // Whether the expression reads none of the written slots
+    static boolean isInvariant(Expression expression, BitSet written) {
+        if (expression instanceof Load)
+            return !written.get(((Load) expression).getSlot());
+        if (expression instanceof Binary)
+            return isInvariant(((Binary) expression).getLeft(), written) && isInvariant(((Binary) expression).getRight(), written);
+        if (expression instanceof Unary)
+            return isInvariant(((Unary) expression).getOperand(), written);
+        if (expression instanceof Convert)
+            return isInvariant(((Convert) expression).getOperand(), written);
+        return true;
+    }
+
+    // Whether evaluating the expression can throw, given the slots that are definitely assigned
+    static boolean canFail(Expression expression, BitSet assigned) {
+        if (expression instanceof Load)
+            return !assigned.get(((Load) expression).getSlot());
+        if (expression instanceof Binary) {
+            Binary binary = (Binary) expression;
+            if ((binary.getOperator() == TokenType.SLASH || binary.getOperator() == TokenType.PERCENT)
+                    && binary.getOperandType() != DataType.Float
+                    && !(binary.getRight() instanceof Constant && ((Constant) binary.getRight()).asInt() != 0))
+                return true;
+            return canFail(binary.getLeft(), assigned) || canFail(binary.getRight(), assigned);
+        }
+        if (expression instanceof Unary)
+            return canFail(((Unary) expression).getOperand(), assigned);
+        if (expression instanceof Convert)
+            return canFail(((Convert) expression).getOperand(), assigned);
+        return false;
+    }
+}
@@ -0,0 +1,96 @@
+package Analysis.Optimize;
+
+import Analysis.IR.*;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+// Moves work that gives the same result on every iteration out of While loops.
+// Each invariant computation in the condition or the body is evaluated once into
+// a temporary before the loop, equal computations sharing one temporary, and a
+// temporary stored at the top of the body from an invariant value, such as one
+// hoisted out of an inner loop, moves out with its Store. See LoopAnalysis for
+// when a computation may run before the loop.
+public class LoopInvariantCodeMotion extends LoopPass {
+    @Override
+    public String getName() {
+        return "loop-invariant-code-motion";
+    }
+
+    @Override
+    protected void optimizeLoop(While loop, BitSet assigned, List<Statement> preheader) {
+        BitSet written = LoopAnalysis.writtenSlots(loop.getBody());
+        hoistTemporaryStores(loop.getBody(), written, assigned, preheader);
+
+        Map<Expression, Integer> temporaries = new HashMap<>();
+        rewriteLoop(loop, expression -> hoist(expression, written, assigned, preheader, temporaries));
+    }
+
+    private void hoistTemporaryStores(List<Statement> body, BitSet written, BitSet assigned, List<Statement> preheader) {
+        for (Iterator<Statement> iterator = body.iterator(); iterator.hasNext(); ) {
+            Statement statement = iterator.next();
+            if (!(statement instanceof Store))
+                continue;
+
+            Store store = (Store) statement;
+            int slot = store.getSlot();
+            if (program.isTemporary(slot) && isStoredOnce(body, slot) && LoopAnalysis.isInvariant(store.getValue(), written)
+                    && !LoopAnalysis.canFail(store.getValue(), assigned)) {
+                iterator.remove();
+                preheader.add(store);
+                written.clear(slot);
+                assigned.set(slot);
+                changes++;
+            }
+        }
+    }
+
+    // Replaces the largest invariant computations in the expression with temporaries
+    private Expression hoist(Expression expression, BitSet written, BitSet assigned, List<Statement> preheader,
+                             Map<Expression, Integer> temporaries) {
+        if (!(expression instanceof Binary || expression instanceof Unary || expression instanceof Convert))
+            return expression;
+
+        if (LoopAnalysis.isInvariant(expression, written) && !LoopAnalysis.canFail(expression, assigned)) {
+            Integer temporary = temporaries.get(expression);
+            if (temporary == null) {
+                temporary = program.addTemporary(expression.getType());
+                preheader.add(new Store(temporary, expression, expression.getOffset()));
+                temporaries.put(expression, temporary);
+                assigned.set(temporary);
+            }
+            changes++;
+            return new Load(temporary, expression.getType(), expression.getOffset());
+        }
+
+        if (expression instanceof Binary) {
+            Binary binary = (Binary) expression;
+            return binary.with(hoist(binary.getLeft(), written, assigned, preheader, temporaries),
+                    hoist(binary.getRight(), written, assigned, preheader, temporaries));
+        } else if (expression instanceof Unary) {
+            Unary unary = (Unary) expression;
+            return unary.with(hoist(unary.getOperand(), written, assigned, preheader, temporaries));
+        }
+        Convert convert = (Convert) expression;
+        return convert.with(hoist(convert.getOperand(), written, assigned, preheader, temporaries));
+    }
+
+    private static boolean isStoredOnce(List<Statement> body, int slot) {
+        return countStores(body, slot) == 1;
+    }
+
+    static int countStores(List<Statement> block, int slot) {
+        int count = 0;
+        for (Statement statement : block) {
+            if (statement instanceof Store && ((Store) statement).getSlot() == slot)
+                count++;
+            else if (statement instanceof If)
+                count += countStores(((If) statement).getThenBlock(), slot) + countStores(((If) statement).getElseBlock(), slot);
+            else if (statement instanceof While)
+                count += countStores(((While) statement).getBody(), slot);
+        }
+        return count;
+    }
+}
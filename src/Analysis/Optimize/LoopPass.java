@@ -0,0 +1,72 @@
+package Analysis.Optimize;
+
+import Analysis.IR.*;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.function.UnaryOperator;
+
+// Base of the passes that optimize one While at a time. Loops are visited innermost
+// first, each with the set of slots definitely assigned when it is entered, and
+// the statements a pass puts in the preheader run once right before the loop.
+public abstract class LoopPass implements Pass {
+    protected IRProgram program;
+    protected int changes;
+
+    @Override
+    public int run(IRProgram program) {
+        this.program = program;
+        changes = 0;
+        visitBlock(program.getStatements(), (BitSet) program.getAssignedOnEntry().clone());
+        return changes;
+    }
+
+    private void visitBlock(List<Statement> block, BitSet assigned) {
+        for (int index = 0; index < block.size(); index++) {
+            Statement statement = block.get(index);
+            if (statement instanceof If) {
+                visitBlock(((If) statement).getThenBlock(), (BitSet) assigned.clone());
+                visitBlock(((If) statement).getElseBlock(), (BitSet) assigned.clone());
+            } else if (statement instanceof While) {
+                While loop = (While) statement;
+                visitBlock(loop.getBody(), (BitSet) assigned.clone());
+
+                List<Statement> preheader = new ArrayList<>();
+                optimizeLoop(loop, (BitSet) assigned.clone(), preheader);
+                block.addAll(index, preheader);
+                index += preheader.size();
+                for (Statement hoisted : preheader)
+                    LoopAnalysis.assign(hoisted, assigned);
+            }
+            LoopAnalysis.assign(statement, assigned);
+        }
+    }
+
+    // Optimizes the loop, adding statements to run before it to preheader. assigned
+    // holds the slots definitely assigned on entry and may be updated by the pass.
+    protected abstract void optimizeLoop(While loop, BitSet assigned, List<Statement> preheader);
+
+    // Applies rewrite to the condition and to every expression of the loop body
+    protected static void rewriteLoop(While loop, UnaryOperator<Expression> rewrite) {
+        loop.setCondition(rewrite.apply(loop.getCondition()));
+        rewriteBlock(loop.getBody(), rewrite);
+    }
+
+    protected static void rewriteBlock(List<Statement> block, UnaryOperator<Expression> rewrite) {
+        for (Statement statement : block) {
+            if (statement instanceof Store)
+                ((Store) statement).setValue(rewrite.apply(((Store) statement).getValue()));
+            else if (statement instanceof Display) {
+                List<Expression> items = ((Display) statement).getItems();
+                for (int i = 0; i < items.size(); i++)
+                    items.set(i, rewrite.apply(items.get(i)));
+            } else if (statement instanceof If) {
+                If branch = (If) statement;
+                branch.setCondition(rewrite.apply(branch.getCondition()));
+                rewriteBlock(branch.getThenBlock(), rewrite);
+                rewriteBlock(branch.getElseBlock(), rewrite);
+            } else if (statement instanceof While)
+                rewriteLoop((While) statement, rewrite);
+        }
+    }
+}
@@ -0,0 +1,22 @@
+package Analysis.Optimize;
+
+// How much work CompiledProgram spends optimizing before the program runs
+public enum OptimizationLevel {
+    O0, // No optimization, the program runs as it is written
+    O1, // Cheap passes that only ever make the program smaller
+    O2; // Everything, including passes that trade code size for speed
+
+    // Parses a command line flag such as -O2
+    public static OptimizationLevel parse(String flag) {
+        switch (flag) {
+            case "-O0":
+                return O0;
+            case "-O1":
+                return O1;
+            case "-O2":
+                return O2;
+            default:
+                throw new IllegalArgumentException("Unknown optimization level " + flag);
+        }
+    }
+}
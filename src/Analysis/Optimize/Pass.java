@@ -0,0 +1,11 @@
+package Analysis.Optimize;
+
+import Analysis.IR.IRProgram;
+
+// Transformation of an IRProgram run by the PassManager
+public interface Pass {
+    String getName();
+
+    // Rewrites the program in place and returns how many nodes it changed
+    int run(IRProgram program);
+}
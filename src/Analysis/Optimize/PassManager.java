@@ -0,0 +1,77 @@
+package Analysis.Optimize;
+
+import Analysis.IR.IRProgram;
+import Analysis.IR.Verifier;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+// Runs a pipeline of passes over an IRProgram, timing each one and counting what
+// it changed. With verification on, the program is checked by the Verifier before
+// the first pass and after every pass, so a broken pass is named when it breaks.
+public class PassManager {
+    private final List<Pass> passes;
+    private final List<PassStatistics> statistics;
+    private boolean verify;
+
+    public PassManager() {
+        this.passes = new ArrayList<>();
+        this.statistics = new ArrayList<>();
+        this.verify = true;
+    }
+
+    // The standard pipeline for the level
+    public static PassManager forLevel(OptimizationLevel level) {
+        PassManager manager = new PassManager();
+        if (level.compareTo(OptimizationLevel.O1) >= 0)
+            manager.add(new ConstantFolding());
+        if (level.compareTo(OptimizationLevel.O2) >= 0) {
+            manager.add(new AlgebraicSimplification());
+            manager.add(new CommonSubexpressionElimination());
+            manager.add(new LoopInvariantCodeMotion());
+            manager.add(new StrengthReduction());
+            manager.add(new ConstantFolding());
+        }
+        return manager;
+    }
+
+    public PassManager add(Pass pass) {
+        passes.add(pass);
+        return this;
+    }
+
+    public void setVerify(boolean verify) {
+        this.verify = verify;
+    }
+
+    public void run(IRProgram program) {
+        if (verify)
+            Verifier.verify(program, "lowering");
+
+        int size = program.size();
+        for (Pass pass : passes) {
+            long start = System.nanoTime();
+            int changes = pass.run(program);
+            long nanos = System.nanoTime() - start;
+
+            int sizeAfter = program.size();
+            statistics.add(new PassStatistics(pass.getName(), nanos, changes, size, sizeAfter));
+            size = sizeAfter;
+
+            if (verify)
+                Verifier.verify(program, pass.getName());
+        }
+    }
+
+    public List<PassStatistics> getStatistics() {
+        return Collections.unmodifiableList(statistics);
+    }
+
+    // One line per pass that has run
+    public String report() {
+        StringBuilder result = new StringBuilder();
+        for (PassStatistics pass : statistics)
+            result.append(pass).append('\n');
+        return result.toString();
+    }
+}
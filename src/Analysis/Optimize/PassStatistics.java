@@ -0,0 +1,44 @@
+package Analysis.Optimize;
+
+// What one pass did to a program: how long it ran, how many nodes it changed
+// and the size of the program, in IR nodes, before and after it
+public class PassStatistics {
+    private final String name;
+    private final long nanos;
+    private final int changes;
+    private final int sizeBefore;
+    private final int sizeAfter;
+
+    public PassStatistics(String name, long nanos, int changes, int sizeBefore, int sizeAfter) {
+        this.name = name;
+        this.nanos = nanos;
+        this.changes = changes;
+        this.sizeBefore = sizeBefore;
+        this.sizeAfter = sizeAfter;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public long getNanos() {
+        return nanos;
+    }
+
+    public int getChanges() {
+        return changes;
+    }
+
+    public int getSizeBefore() {
+        return sizeBefore;
+    }
+
+    public int getSizeAfter() {
+        return sizeAfter;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%-32s %9.3f ms %6d changes %7d -> %d nodes", name, nanos / 1e6, changes, sizeBefore, sizeAfter);
+    }
+}
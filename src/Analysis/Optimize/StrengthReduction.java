@@ -0,0 +1,171 @@
+package Analysis.Optimize;
+
+import Analysis.IR.*;
+import Analysis.Type.DataType;
+import Analysis.Type.TokenType;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Induction variable strength reduction for counting loops. An INT variable whose
+// only write in the loop is i = i + c (or i - c) at the top level of the body is a
+// basic induction variable. Each product i * k with k constant or invariant is then
+// kept in a temporary that starts at i * k before the loop and grows by c * k right
+// after every step of i, so the loop adds where it used to multiply. INT arithmetic
+// wraps, so the temporary equals i * k on every iteration even after overflow.
+public class StrengthReduction extends LoopPass {
+    // State of the loop being optimized
+    private Map<Integer, Integer> steps;       // Step c of each induction variable
+    private Map<Integer, Integer> stepIndexes; // Body index of the Store stepping each induction variable
+    private BitSet written;
+    private BitSet assigned;
+    private Map<Expression, Integer> reduced;  // Temporary holding each reduced product
+    private Map<Integer, List<Statement>> updates; // Stores to insert after each body index
+    private List<Statement> preheader;
+
+    @Override
+    public String getName() {
+        return "strength-reduction";
+    }
+
+    @Override
+    protected void optimizeLoop(While loop, BitSet assigned, List<Statement> preheader) {
+        List<Statement> body = loop.getBody();
+        this.steps = new HashMap<>();
+        this.stepIndexes = new HashMap<>();
+        this.written = LoopAnalysis.writtenSlots(body);
+        this.assigned = assigned;
+        this.reduced = new HashMap<>();
+        this.updates = new HashMap<>();
+        this.preheader = preheader;
+
+        for (int index = 0; index < body.size(); index++) {
+            if (!(body.get(index) instanceof Store))
+                continue;
+            Store store = (Store) body.get(index);
+            Integer step = getStep(store);
+            if (step != null && assigned.get(store.getSlot()) && LoopInvariantCodeMotion.countStores(body, store.getSlot()) == 1
+                    && !isScanned(body, store.getSlot())) {
+                steps.put(store.getSlot(), step);
+                stepIndexes.put(store.getSlot(), index);
+            }
+        }
+        if (steps.isEmpty())
+            return;
+
+        rewriteLoop(loop, this::reduce);
+
+        // Each temporary steps right after its induction variable, insert from the bottom up
+        for (int index = body.size() - 1; index >= 0; index--) {
+            if (updates.containsKey(index))
+                body.addAll(index + 1, updates.get(index));
+        }
+    }
+
+    private Expression reduce(Expression expression) {
+        if (expression instanceof Binary) {
+            Binary binary = (Binary) expression;
+            binary = binary.with(reduce(binary.getLeft()), reduce(binary.getRight()));
+
+            Binary product = binary.getOperator() == TokenType.STAR && binary.getType() == DataType.Int ? normalize(binary) : null;
+            if (product == null)
+                return binary;
+            changes++;
+            return new Load(getTemporary(product), DataType.Int, binary.getOffset());
+        } else if (expression instanceof Unary) {
+            Unary unary = (Unary) expression;
+            return unary.with(reduce(unary.getOperand()));
+        } else if (expression instanceof Convert) {
+            Convert convert = (Convert) expression;
+            return convert.with(reduce(convert.getOperand()));
+        }
+        return expression;
+    }
+
+    // The product as induction variable * factor, or null if it is not one
+    private Binary normalize(Binary product) {
+        Expression left = product.getLeft();
+        Expression right = product.getRight();
+        if (isInduction(right) && !isInduction(left)) {
+            left = product.getRight();
+            right = product.getLeft();
+        }
+        if (!isInduction(left))
+            return null;
+
+        // The factor is a constant or a variable that does not change in the loop
+        boolean isFactor = right instanceof Constant
+                || right instanceof Load && !written.get(((Load) right).getSlot()) && assigned.get(((Load) right).getSlot());
+        if (!isFactor)
+            return null;
+        return new Binary(TokenType.STAR, left, right, DataType.Int, product.getOffset());
+    }
+
+    // Temporary holding the product, set up before the loop and stepped after its induction variable
+    private int getTemporary(Binary product) {
+        Integer temporary = reduced.get(product);
+        if (temporary != null)
+            return temporary;
+
+        int offset = product.getOffset();
+        int variable = ((Load) product.getLeft()).getSlot();
+        Expression factor = product.getRight();
+        temporary = program.addTemporary(DataType.Int);
+        reduced.put(product, temporary);
+        preheader.add(new Store(temporary, product, offset));
+
+        // c * k, folded when k is a constant
+        int step = steps.get(variable);
+        Expression increment;
+        if (factor instanceof Constant)
+            increment = Constant.ofInt(step * ((Constant) factor).asInt(), offset);
+        else {
+            int stepSlot = program.addTemporary(DataType.Int);
+            preheader.add(new Store(stepSlot, new Binary(TokenType.STAR, Constant.ofInt(step, offset), factor, DataType.Int, offset), offset));
+            increment = new Load(stepSlot, DataType.Int, offset);
+        }
+
+        Expression next = new Binary(TokenType.PLUS, new Load(temporary, DataType.Int, offset), increment, DataType.Int, offset);
+        updates.computeIfAbsent(stepIndexes.get(variable), index -> new ArrayList<>()).add(new Store(temporary, next, offset));
+        return temporary;
+    }
+
+    private boolean isInduction(Expression expression) {
+        return expression instanceof Load && steps.containsKey(((Load) expression).getSlot());
+    }
+
+    // c for a Store of i = i + c, i = c + i or i = i - c to an INT slot, otherwise null
+    private static Integer getStep(Store store) {
+        if (!(store.getValue() instanceof Binary) || store.getValue().getType() != DataType.Int)
+            return null;
+
+        Binary value = (Binary) store.getValue();
+        Load self = new Load(store.getSlot(), DataType.Int, 0);
+        if (value.getOperator() == TokenType.PLUS) {
+            if (value.getLeft().equals(self) && value.getRight() instanceof Constant)
+                return ((Constant) value.getRight()).asInt();
+            if (value.getRight().equals(self) && value.getLeft() instanceof Constant)
+                return ((Constant) value.getLeft()).asInt();
+        } else if (value.getOperator() == TokenType.MINUS && value.getLeft().equals(self) && value.getRight() instanceof Constant)
+            return -((Constant) value.getRight()).asInt();
+        return null;
+    }
+
+    private static boolean isScanned(List<Statement> block, int slot) {
+        for (Statement statement : block) {
+            if (statement instanceof Scan) {
+                for (int scanned : ((Scan) statement).getSlots()) {
+                    if (scanned == slot)
+                        return true;
+                }
+            } else if (statement instanceof If) {
+                if (isScanned(((If) statement).getThenBlock(), slot) || isScanned(((If) statement).getElseBlock(), slot))
+                    return true;
+            } else if (statement instanceof While && isScanned(((While) statement).getBody(), slot))
+                return true;
+        }
+        return false;
+    }
+}
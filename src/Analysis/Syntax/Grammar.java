@@ -1,47 +1,73 @@
 package Analysis.Syntax;
 
 
+import Analysis.IO.ValueParser;
+import Analysis.Table.Value;
 import Analysis.Type.*;
-import java.util.HashMap;
-import java.util.Map;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 public class Grammar {
 
-    public static Token getWordToken(String input, int line, int column) {
-        Map<String, TokenType> keywords = new HashMap<>();
-        keywords.put("BEGIN", TokenType.BEGIN);
-        keywords.put("END", TokenType.END);
-        keywords.put("CODE", TokenType.CODE);
-        keywords.put("IF", TokenType.IF);
-        keywords.put("ELSE", TokenType.ELSE);
-        keywords.put("WHILE", TokenType.WHILE);
-        keywords.put("DISPLAY", TokenType.DISPLAY);
-        keywords.put("SCAN", TokenType.SCAN);
-        keywords.put("AND", TokenType.AND);
-        keywords.put("OR", TokenType.OR);
-        keywords.put("NOT", TokenType.NOT);
+    // Error for a keyword or data type written in the wrong case
+    public static String getMisspelledKeywordMessage(String input, TokenType keyword) {
+        String kind = isDataType(keyword) ? "data type" : "keyword";
+        return "Invalid " + kind + " '" + input + "' should be " + keyword.name();
+    }
+
+    // Keyword or data type spelled by code[start, end), switching on its length and first letter
+    public static TokenType getKeyword(SourceText code, int start, int end, boolean ignoreCase) {
+        char first = Character.toUpperCase(code.charAt(start));
+        switch (end - start) {
+            case 2:
+                if (first == 'I')
+                    return spells(code, start, "IF", ignoreCase) ? TokenType.IF : null;
+                if (first == 'O')
+                    return spells(code, start, "OR", ignoreCase) ? TokenType.OR : null;
+                return null;
+            case 3:
+                if (first == 'E')
+                    return spells(code, start, "END", ignoreCase) ? TokenType.END : null;
+                if (first == 'A')
+                    return spells(code, start, "AND", ignoreCase) ? TokenType.AND : null;
+                if (first == 'N')
+                    return spells(code, start, "NOT", ignoreCase) ? TokenType.NOT : null;
+                if (first == 'I')
+                    return spells(code, start, "INT", ignoreCase) ? TokenType.INT : null;
+                return null;
+            case 4:
+                if (first == 'C') {
+                    if (spells(code, start, "CODE", ignoreCase))
+                        return TokenType.CODE;
+                    return spells(code, start, "CHAR", ignoreCase) ? TokenType.CHAR : null;
+                }
+                if (first == 'E')
+                    return spells(code, start, "ELSE", ignoreCase) ? TokenType.ELSE : null;
+                if (first == 'S')
+                    return spells(code, start, "SCAN", ignoreCase) ? TokenType.SCAN : null;
+                if (first == 'B')
+                    return spells(code, start, "BOOL", ignoreCase) ? TokenType.BOOL : null;
+                return null;
+            case 5:
+                if (first == 'B')
+                    return spells(code, start, "BEGIN", ignoreCase) ? TokenType.BEGIN : null;
+                if (first == 'W')
+                    return spells(code, start, "WHILE", ignoreCase) ? TokenType.WHILE : null;
+                if (first == 'F')
+                    return spells(code, start, "FLOAT", ignoreCase) ? TokenType.FLOAT : null;
+                return null;
+            case 7:
+                return first == 'D' && spells(code, start, "DISPLAY", ignoreCase) ? TokenType.DISPLAY : null;
+            default:
+                return null;
+        }
+    }
 
-        Map<String, TokenType> dataTypes = new HashMap<>();
-        dataTypes.put("INT", TokenType.INT);
-        dataTypes.put("FLOAT", TokenType.FLOAT);
-        dataTypes.put("CHAR", TokenType.CHAR);
-        dataTypes.put("BOOL", TokenType.BOOL);
+    private static boolean spells(SourceText code, int start, String word, boolean ignoreCase) {
+        return code.regionMatches(ignoreCase, start, word);
+    }
 
-        String inputUpperCase = input.toUpperCase();
-        if (keywords.containsKey(inputUpperCase)) {
-            if (keywords.containsKey(input))
-                return new Token(keywords.get(input), input, null, line, column);
-            else
-                return new Token(TokenType.ERROR, input, "Invalid keyword '" + input + "' should be " + inputUpperCase, line, column);
-        } else if (dataTypes.containsKey(inputUpperCase)) {
-            if (dataTypes.containsKey(input))
-                return new Token(dataTypes.get(input), input, null, line, column);
-            else
-                return new Token(TokenType.ERROR, input, "Invalid data type '" + input + "' should be " + inputUpperCase, line, column);
-        } else
-            return new Token(TokenType.IDENTIFIER, input, null, line, column);
+    private static boolean isDataType(TokenType tokenType) {
+        return tokenType == TokenType.INT || tokenType == TokenType.FLOAT ||
+               tokenType == TokenType.CHAR || tokenType == TokenType.BOOL;
     }
 
     public static int getBinaryPrecedence(TokenType tokenType) {
@@ -135,31 +161,11 @@ public class Grammar {
     }
 
     public static Object convertValue(String val) {
-        String floatPattern = "^(?:\\+|\\-)?\\d*\\.\\d+$";
-        String intPattern = "^(?:\\+|\\-)?\\d+$";
-        String charPattern = "^'(?:\\[[\\[\\]\\&\\$\\#']\\])'|'[\\[\\]\\&\\$\\#']'$";
-        String boolPattern = "^\"TRUE\"$|^\"FALSE\"$";
-
-        Pattern floatPatternRegex = Pattern.compile(floatPattern);
-        Pattern intPatternRegex = Pattern.compile(intPattern);
-        Pattern charPatternRegex = Pattern.compile(charPattern);
-        Pattern boolPatternRegex = Pattern.compile(boolPattern);
-
-        Matcher floatMatcher = floatPatternRegex.matcher(val);
-        Matcher intMatcher = intPatternRegex.matcher(val);
-        Matcher charMatcher = charPatternRegex.matcher(val);
-        Matcher boolMatcher = boolPatternRegex.matcher(val);
-
-        if (intMatcher.matches())
-            return Integer.parseInt(val);
-        else if (floatMatcher.matches())
-            return Double.parseDouble(val);
-        else if (charMatcher.matches())
-            return val;
-        else if (boolMatcher.matches())
-            return val.equals("\"TRUE\"") ? true : false;
-        else
+        ValueParser parser = new ValueParser();
+        DataType dataType = parser.parse(val, 0, val.length());
+        if (dataType == null)
             throw new IllegalArgumentException("Runtime Error: Invalid input " + val);
+        return Value.decode(parser.getValue(), dataType);
     }
 
     public static boolean matchDataType(DataType ldt, DataType rdt) {
@@ -4,21 +4,43 @@ package Analysis.Syntax;
 
 import Analysis.Type.*;
 import Analysis.Type.TokenType;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
 
 
 
 public class Lexer {
-    private final String code;
+    private final SourceText code;
     private int position; // Current position in the source code
-    private int line, column; // Current line and column in the source code
+    private final LineMap lineMap; // Where each line starts, line and column are resolved from it on demand
+
+    // Token found by the last scan, as offsets into code
+    private TokenType tokenType;
+    private int tokenStart, tokenEnd;
+    private Object tokenValue;
 
     public Lexer(String code) {
+        this(SourceText.of(code));
+    }
+
+    public Lexer(Reader code) {
+        this(SourceText.of(code));
+    }
+
+    public Lexer(CharBuffer code) {
+        this(SourceText.of(code));
+    }
+
+    // UTF-8 encoded source such as a MappedByteBuffer, decoded as the Lexer advances
+    public Lexer(ByteBuffer code) {
+        this(SourceText.of(code));
+    }
+
+    public Lexer(SourceText code) {
         this.code = code;
         this.position = 0;
-        this.line = 1;
-        this.column = 1;
+        this.lineMap = new LineMap();
     }
 
     private char current() {
@@ -31,244 +53,313 @@ public class Lexer {
 
     private char peek(int offset) {
         int index = position + offset;
-        if (index >= code.length())
+        if (!code.has(index))
             return '\0';   // Returns null character if end of code is reached
         return code.charAt(index); // Returns the character at the current position + offset
     }
 
     private void next(int offset) {
-        position += offset;
-        column += offset; // Moves the position and column forward by the given offset
+        position += offset; // Moves the position forward by the given offset
     }
 
     private void newLine() {
-        line++;        // Moves to the next line and resets the column
-        column = 1;
-        next(1);   // Moves the position forward by 1
+        next(1);   // Moves past the line break and records where the next line starts
+        lineMap.addLine(position);
+    }
+
+    public LineMap getLineMap() {
+        return lineMap;
     }
 
     public Token getToken() {
+        TokenType type = scan();
+        String text = type == TokenType.ENDOFFILE ? "\0" : code.substring(tokenStart, tokenEnd);
+        return new Token(type, text, tokenValue, tokenStart, lineMap);
+    }
+
+    // Scans the whole source into a TokenBuffer, ending with the ENDOFFILE token
+    public TokenBuffer tokenize() {
+        TokenBuffer tokens = new TokenBuffer(code, lineMap);
+        TokenType type;
+        do {
+            type = scan();
+            tokens.add(type, tokenStart, tokenEnd, tokenValue);
+        } while (type != TokenType.ENDOFFILE);
+        return tokens;
+    }
+
+    // Scans the source on a separate thread that runs ahead of the Parser. The
+    // returned TokenBuffer waits for tokens the Lexer has not published yet and
+    // has to be closed once parsing stops, so an abandoned Lexer thread exits.
+    public TokenBuffer tokenizeConcurrently() {
+        TokenRing ring = new TokenRing(8192);
+        TokenBuffer tokens = new TokenBuffer(code, lineMap, ring, 4096);
+
+        Thread thread = new Thread(() -> {
+            try {
+                TokenType type;
+                do {
+                    type = scan();
+                    if (!ring.offer(type, tokenStart, tokenEnd, tokenValue))
+                        return;
+                } while (type != TokenType.ENDOFFILE);
+                ring.finish();
+            } catch (Throwable e) {
+                ring.fail(e);
+            }
+        }, "CODE lexer");
+        thread.setDaemon(true);
+        thread.start();
+        return tokens;
+    }
+
+    // Scans the source only as far as the Parser reads, in batches of up to 256 tokens
+    public TokenBuffer tokenizeOnDemand() {
+        return new TokenBuffer(code, lineMap, buffer -> {
+            TokenType type;
+            int count = 0;
+            do {
+                type = scan();
+                buffer.add(type, tokenStart, tokenEnd, tokenValue);
+            } while (type != TokenType.ENDOFFILE && ++count < 256);
+        }, 1024);
+    }
+
+    private TokenType scan() {
         // Main method to get the next token from the source code
-        while (position < code.length()) {
+        while (code.has(position)) {
             // Handles different types of tokens based on the current character
             if (Character.isLetter(current()))
-                return getKeywordOrDataTypeOrIdentifierToken();
+                return scanWord();
 
             if (Character.isDigit(current()))
-                return getNumberLiteralToken();
+                return scanNumberLiteral();
 
             switch (current()) {
                 case ' ':
                 case '\t':
                     next(1);
                     continue;
+                case '\r':
+                    // A CRLF line break is a single NEWLINE token, a lone '\r' is whitespace
+                    if (lookAhead() == '\n') {
+                        token(TokenType.NEWLINE, position, position + 2, null);
+                        next(1);
+                        newLine();
+                        return TokenType.NEWLINE;
+                    }
+                    next(1);
+                    continue;
                 case '\n':
-                    Token newLineToken = new Token(TokenType.NEWLINE, "\n", null, line, column);
+                    token(TokenType.NEWLINE, position, position + 1, null);
                     newLine();
-                    return newLineToken;
+                    return TokenType.NEWLINE;
                 case '_':
-                    return getKeywordOrDataTypeOrIdentifierToken();
+                    return scanWord();
                 case '\'':
-                    return getCharacterLiteralToken();
+                    return scanCharacterLiteral();
                 case '\"':
-                    return getBooleanOrStringLiteralToken();
+                    return scanBooleanOrStringLiteral();
                 case '.':
-                    return getNumberLiteralToken();
+                    return scanNumberLiteral();
                 case '#':
                     while (current() != '\n' && current() != '\0')
                         next(1);
                     continue;
                 case '*':
                     next(1);
-                    return new Token(TokenType.STAR, "*", null, line, column - 1);
+                    return token(TokenType.STAR, position - 1, position, null);
                 case '/':
                     next(1);
-                    return new Token(TokenType.SLASH, "/", null, line, column - 1);
+                    return token(TokenType.SLASH, position - 1, position, null);
                 case '%':
                     next(1);
-                    return new Token(TokenType.PERCENT, "%", null, line, column - 1);
+                    return token(TokenType.PERCENT, position - 1, position, null);
                 case '+':
                     next(1);
-                    return new Token(TokenType.PLUS, "+", null, line, column - 1);
+                    return token(TokenType.PLUS, position - 1, position, null);
                 case '-':
                     next(1);
-                    return new Token(TokenType.MINUS, "-", null, line, column - 1);
+                    return token(TokenType.MINUS, position - 1, position, null);
                 case '>':
                     if (lookAhead() == '=') {
                         next(2);
-                        return new Token(TokenType.GREATEREQUAL, ">=", null, line, column - 2);
+                        return token(TokenType.GREATEREQUAL, position - 2, position, null);
                     }
                     next(1);
-                    return new Token(TokenType.GREATERTHAN, ">", null, line, column - 1);
+                    return token(TokenType.GREATERTHAN, position - 1, position, null);
                 case '<':
                     if (lookAhead() == '=') {
                         next(2);
-                        return new Token(TokenType.LESSEQUAL, "<=", null, line, column - 2);
+                        return token(TokenType.LESSEQUAL, position - 2, position, null);
                     } else if (lookAhead() == '>') {
                         next(2);
-                        return new Token(TokenType.NOTEQUAL, "<>", null, line, column - 2);
+                        return token(TokenType.NOTEQUAL, position - 2, position, null);
                     }
                     next(1);
-                    return new Token(TokenType.LESSTHAN, "<", null, line, column - 1);
+                    return token(TokenType.LESSTHAN, position - 1, position, null);
                 case '=':
                     if (lookAhead() == '=') {
                         next(2);
-                        return new Token(TokenType.EQUALTO, "==", null, line, column - 2);
+                        return token(TokenType.EQUALTO, position - 2, position, null);
                     }
                     next(1);
-                    return new Token(TokenType.EQUAL, "=", null, line, column - 1);
+                    return token(TokenType.EQUAL, position - 1, position, null);
                 case '$':
                     next(1);
-                    return new Token(TokenType.DOLLAR, "$", null, line, column - 1);
+                    return token(TokenType.DOLLAR, position - 1, position, null);
                 case '&':
                     next(1);
-                    return new Token(TokenType.AMPERSAND, "&", null, line, column - 1);
+                    return token(TokenType.AMPERSAND, position - 1, position, null);
                 case '[':
-                    return getEscapeCodeToken();
+                    return scanEscapeCode();
                 case '(':
                     next(1);
-                    return new Token(TokenType.OPENPARENTHESIS, "(", null, line, column - 1);
+                    return token(TokenType.OPENPARENTHESIS, position - 1, position, null);
                 case ')':
                     next(1);
-                    return new Token(TokenType.CLOSEPARENTHESIS, ")", null, line, column - 1);
+                    return token(TokenType.CLOSEPARENTHESIS, position - 1, position, null);
                 case ',':
                     next(1);
-                    return new Token(TokenType.COMMA, ",", null, line, column - 1);
+                    return token(TokenType.COMMA, position - 1, position, null);
                 case ':':
                     next(1);
-                    return new Token(TokenType.COLON, ":", null, line, column - 1);
+                    return token(TokenType.COLON, position - 1, position, null);
                 default:
                     next(1);
-                    return new Token(TokenType.ERROR, Character.toString(current()), "Unknown symbol", line, column - 1);
+                    return token(TokenType.ERROR, position - 1, position, "Unknown symbol");
             }
         }
-        return new Token(TokenType.ENDOFFILE, "\0", null, line, column);
+        return token(TokenType.ENDOFFILE, position, position, null);
     }
 
     
-    private Token getKeywordOrDataTypeOrIdentifierToken() {
+    private TokenType scanWord() {
         // Handles identifiers, keywords, and data types
         int start = position;
-        int lineCol = column;
     
         while (Character.isLetter(current()) || current() == '_' || Character.isDigit(current()))
             next(1);
     
-        int length = position - start;
-        String text = code.substring(start, start + length);
-    
-        return Grammar.getWordToken(text, line, lineCol);
+        TokenType keyword = Grammar.getKeyword(code, start, position, false);
+        if (keyword != null)
+            return token(keyword, start, position, null);
+
+        keyword = Grammar.getKeyword(code, start, position, true);
+        if (keyword == null)
+            return token(TokenType.IDENTIFIER, start, position, null);
+        return token(TokenType.ERROR, start, position, Grammar.getMisspelledKeywordMessage(code.substring(start, position), keyword));
     }
     
-    private Token getCharacterLiteralToken() {
+    private TokenType scanCharacterLiteral() {
         // Handles character literals
         int start = position;
-        int lineCol = column;
     
         next(1);
         while (current() != '\'' && !Character.isWhitespace(lookAhead()))
             next(1);
         next(1);
     
-        String charPattern = "^'(?:\\[\\[\\]\\&\\$#']\\])'|'[^\\[\\]\\&\\$#']'$";
-        Pattern charRegex = Pattern.compile(charPattern);
-    
         int length = position - start;
-        String text = code.substring(start, start + length);
-        Object value = null;
-    
-        Matcher matcher = charRegex.matcher(text);
-        if (matcher.matches()) {
-            value = text.charAt(text.length() / 2);
-            return new Token(TokenType.CHARLITERAL, text, value, line, lineCol);
+
+        // 'c' for any c other than a reserved symbol, or '[c]' to escape one
+        boolean plain = length == 3 && code.charAt(start + 2) == '\'' && !isReservedSymbol(code.charAt(start + 1));
+        boolean escaped = length == 5 && code.charAt(start + 1) == '[' && isReservedSymbol(code.charAt(start + 2))
+                && code.charAt(start + 3) == ']' && code.charAt(start + 4) == '\'';
+        if (plain || escaped) {
+            Object value = code.charAt(start + length / 2);
+            return token(TokenType.CHARLITERAL, start, position, value);
         }
-        return new Token(TokenType.ERROR, text, "Invalid CHAR literal.", line, lineCol);
+        return token(TokenType.ERROR, start, position, "Invalid CHAR literal.");
     }
-    private Token getBooleanOrStringLiteralToken() {
+
+    private TokenType scanBooleanOrStringLiteral() {
         // Handles boolean and string literals
         int start = position;
-        int lineCol = column;
     
         next(1);
         while (current() != '\"' && !Character.isWhitespace(lookAhead()))
             next(1);
         next(1);
     
-        String boolPattern = "^\"TRUE\"$|^\"FALSE\"$";
-        String stringPattern = "^\"[^\"]*\"$";
-        Pattern boolRegex = Pattern.compile(boolPattern);
-        Pattern stringRegex = Pattern.compile(stringPattern);
-    
         int length = position - start;
-        String text = code.substring(start, start + length);
-    
-        Matcher boolMatcher = boolRegex.matcher(text);
-        Matcher stringMatcher = stringRegex.matcher(text);
+
+        boolean quoted = length >= 2 && code.charAt(position - 1) == '\"' && code.indexOf('\"', start + 1, position) == position - 1;
     
-        if (boolMatcher.matches())
-            return new Token(TokenType.BOOLLITERAL, text, text.equals("\"TRUE\""), line, lineCol);
-        else if (stringMatcher.matches())
-            return new Token(TokenType.STRINGLITERAL, text, text.substring(1, text.length() - 1), line, lineCol);
+        if (isWord(start, length, "\"TRUE\"") || isWord(start, length, "\"FALSE\""))
+            return token(TokenType.BOOLLITERAL, start, position, length == 6);
+        else if (quoted)
+            return token(TokenType.STRINGLITERAL, start, position, code.substring(start + 1, position - 1));
         else {
+            String text = code.substring(start, position);
             String errorMessage = text.contains("TRUE") || text.contains("FALSE") ? "Invalid BOOL literal" : "Invalid STRING literal";
-            return new Token(TokenType.ERROR, text, errorMessage, line, lineCol);
+            return token(TokenType.ERROR, start, position, errorMessage);
         }
     }
       
-    private Token getNumberLiteralToken() {
+    private TokenType scanNumberLiteral() {
         // Handles number literals (integer and float)
         boolean isFloat = current() == '.';
     
         int start = position;
-        int lineCol = column;
     
         while (Character.isDigit(current()) || current() == '.')
             next(1);
     
         int length = position - start;
-        String text = code.substring(start, start + length);
-    
-        String floatPattern = "\\d*\\.\\d+";
-        String intPattern = "\\d+";
-        Pattern floatRegex = Pattern.compile(floatPattern);
-        Pattern intRegex = Pattern.compile(intPattern);
     
-        Object val = null;
-    
-        Matcher floatMatcher = floatRegex.matcher(text);
-        Matcher intMatcher = intRegex.matcher(text);
-    
-        if (intMatcher.matches()) {
-            val = Integer.parseInt(text);
-            return new Token(TokenType.INTLITERAL, text, val, line, lineCol);
-        } else if (floatMatcher.matches()) {
-            val = Float.parseFloat(text);
-            return new Token(TokenType.FLOATLITERAL, text, val, line, lineCol);
+        // Digits only is an INT, digits with a single point followed by at least one digit a FLOAT
+        int point = -1;
+        long value = 0;
+        for (int i = 0; i < length; i++) {
+            char c = code.charAt(start + i);
+            if (c == '.' && point < 0)
+                point = i;
+            else if (c < '0' || c > '9')
+                return token(TokenType.ERROR, start, position, "Invalid Number.");
+            else if (point < 0 && value <= Integer.MAX_VALUE)
+                value = value * 10 + (c - '0');
         }
-        return new Token(TokenType.ERROR, text, "Invalid Number.", line, lineCol);
+
+        if (point < 0 && value <= Integer.MAX_VALUE)
+            return token(TokenType.INTLITERAL, start, position, (int) value);
+        if (point >= 0 && point < length - 1)
+            return token(TokenType.FLOATLITERAL, start, position, Double.parseDouble(code.substring(start, position)));
+        return token(TokenType.ERROR, start, position, "Invalid Number.");
     }
-    private Token getEscapeCodeToken() {
+    private TokenType scanEscapeCode() {
         // Handles escape codes
         int start = position;
-        int lineCol = column;
 
         while (!Character.isWhitespace(current()))
             next(1);
 
         int length = position - start;
-        String text = code.substring(start, start + length);
         Object val = null;
 
-        String escapeSequencePattern = "^\\[[\\]\\[\\&\\$\\#]\\]$";
-//        String escapeSequencePattern = "\\[\\[\\]\\&\\$#\\]\\]";
-        Pattern escapeRegex = Pattern.compile(escapeSequencePattern);
-
-        Matcher matcher = escapeRegex.matcher(text);
-        if (matcher.matches()) {
-            val = text.charAt(1);
-            return new Token(TokenType.ESCAPE, text, val, line, lineCol);
+        // [c] where c is one of the symbols that need escaping
+        if (length == 3 && code.charAt(start + 2) == ']' && "][&$#".indexOf(code.charAt(start + 1)) >= 0) {
+            val = code.charAt(start + 1);
+            return token(TokenType.ESCAPE, start, position, val);
         }
-        return new Token(TokenType.ERROR, text, "Invalid '" + text + "' as escape sequence.", line, lineCol);
+        return token(TokenType.ERROR, start, position, "Invalid '" + code.substring(start, position) + "' as escape sequence.");
+    }
+
+    private boolean isWord(int start, int length, String word) {
+        return length == word.length() && code.regionMatches(false, start, word);
+    }
+
+    private TokenType token(TokenType type, int start, int end, Object value) {
+        tokenType = type;
+        tokenStart = start;
+        tokenEnd = end;
+        tokenValue = value;
+        return type;
+    }
+
+    // Symbols that can only appear in a CHAR literal when escaped
+    private static boolean isReservedSymbol(char c) {
+        return c == '[' || c == ']' || c == '&' || c == '$' || c == '#' || c == '\'';
     }
     
     
@@ -0,0 +1,43 @@
+package Analysis.Syntax;
+
+import java.util.Arrays;
+
+// Sorted offsets at which each source line starts, recorded once by the
+// Lexer. Tokens only keep their offset and resolve line and column here when
+// an error message needs them. Both fields are volatile so the Parser can
+// resolve positions while a concurrent Lexer is still adding lines.
+public final class LineMap {
+    private volatile int[] lineStarts;
+    private volatile int count;
+
+    public LineMap() {
+        lineStarts = new int[64];
+        lineStarts[0] = 0;
+        count = 1;
+    }
+
+    // Records that a new line starts at offset, offsets arrive in increasing order
+    void addLine(int offset) {
+        int[] starts = lineStarts;
+        if (count == starts.length)
+            lineStarts = starts = Arrays.copyOf(starts, count * 2);
+        starts[count] = offset;
+        count++; // Publishes the entry
+    }
+
+    // 1-based line of the character at offset
+    public int getLine(int offset) {
+        int lines = count;
+        int index = Arrays.binarySearch(lineStarts, 0, lines, offset);
+        return index >= 0 ? index + 1 : -index - 1;
+    }
+
+    // 1-based column of the character at offset
+    public int getColumn(int offset) {
+        return offset - lineStarts[getLine(offset) - 1] + 1;
+    }
+
+    public int getLineCount() {
+        return count;
+    }
+}
@@ -0,0 +1,113 @@
+package Analysis.Syntax;
+
+import java.util.Arrays;
+
+// Interns identifier names into dense symbol ids. A name read from the source
+// is hashed and compared in place, so its String is only created the first
+// time it is seen; every later lookup of that name is a probe of an int table.
+public final class NameTable {
+    private int[] table;     // Open addressing, symbol id + 1 or 0 for an empty bucket
+    private int[] hashes;    // Hash of each symbol's name
+    private String[] names;  // Name of each symbol
+    private int count;
+
+    public NameTable() {
+        table = new int[64];
+        hashes = new int[32];
+        names = new String[32];
+    }
+
+    // Symbol id of code[start, start + length), interning it if it is new
+    public int intern(SourceText code, int start, int length) {
+        int hash = hash(code, start, length);
+        int bucket = find(code, start, length, hash);
+        if (table[bucket] != 0)
+            return table[bucket] - 1;
+        return add(code.substring(start, start + length), hash, bucket);
+    }
+
+    public int intern(String name) {
+        int hash = name.hashCode();
+        int bucket = find(name, hash);
+        if (table[bucket] != 0)
+            return table[bucket] - 1;
+        return add(name, hash, bucket);
+    }
+
+    // Symbol id of code[start, start + length), or -1 if the name was never interned
+    public int lookup(SourceText code, int start, int length) {
+        int bucket = find(code, start, length, hash(code, start, length));
+        return table[bucket] - 1;
+    }
+
+    public String getName(int symbol) {
+        return names[symbol];
+    }
+
+    public int size() {
+        return count;
+    }
+
+    private int find(SourceText code, int start, int length, int hash) {
+        int mask = table.length - 1;
+        int bucket = mix(hash) & mask;
+        while (table[bucket] != 0) {
+            int symbol = table[bucket] - 1;
+            if (hashes[symbol] == hash && names[symbol].length() == length && code.regionMatches(false, start, names[symbol]))
+                return bucket;
+            bucket = (bucket + 1) & mask;
+        }
+        return bucket;
+    }
+
+    private int find(String name, int hash) {
+        int mask = table.length - 1;
+        int bucket = mix(hash) & mask;
+        while (table[bucket] != 0) {
+            int symbol = table[bucket] - 1;
+            if (hashes[symbol] == hash && names[symbol].equals(name))
+                return bucket;
+            bucket = (bucket + 1) & mask;
+        }
+        return bucket;
+    }
+
+    private int add(String name, int hash, int bucket) {
+        if (count == names.length) {
+            names = Arrays.copyOf(names, count * 2);
+            hashes = Arrays.copyOf(hashes, count * 2);
+        }
+        names[count] = name;
+        hashes[count] = hash;
+        table[bucket] = count + 1;
+        count++;
+
+        // Keep the table at most half full
+        if (count * 2 > table.length)
+            rehash();
+        return count - 1;
+    }
+
+    private void rehash() {
+        table = new int[table.length * 2];
+        int mask = table.length - 1;
+        for (int symbol = 0; symbol < count; symbol++) {
+            int bucket = mix(hashes[symbol]) & mask;
+            while (table[bucket] != 0)
+                bucket = (bucket + 1) & mask;
+            table[bucket] = symbol + 1;
+        }
+    }
+
+    // Same hash as String.hashCode, so both intern methods agree
+    private static int hash(SourceText code, int start, int length) {
+        int hash = 0;
+        for (int i = 0; i < length; i++)
+            hash = 31 * hash + code.charAt(start + i);
+        return hash;
+    }
+
+    private static int mix(int hash) {
+        return hash ^ (hash >>> 16);
+    }
+}
@@ -1,6 +1,7 @@
 package Analysis.Syntax;
 
 import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -11,15 +12,21 @@ import Analysis.Tree.Expression.ExpressionNode;
 import Analysis.Type.*;
 
 public class Parser {
-    private final Lexer lexer;
-    private Token currentToken;
-    private final List<String> variableNames;
+    private final TokenBuffer tokens;
+    private int current; // Index of the current token in tokens
+    private final NameTable names; // Interned identifier names, nodes refer to them by symbol id
+    private final BitSet declared; // Symbol ids of the names declared so far
     private boolean canDeclare;
 
     public Parser(Lexer lexer) {
-        this.lexer = lexer;
-        this.currentToken = lexer.getToken();
-        this.variableNames = new ArrayList<>();
+        this(lexer.tokenize());
+    }
+
+    public Parser(TokenBuffer tokens) {
+        this.tokens = tokens;
+        this.current = 0;
+        this.names = new NameTable();
+        this.declared = new BitSet();
         this.canDeclare = true;
     }
 
@@ -68,86 +75,160 @@ public class Parser {
 
         // Loop continues as long as the current token is not of type END (indicating the end of the program)
         while (!matchToken(TokenType.END)) {
+            statementList.add(parseStatement());
+
+            // Keep consuming newline tokens (ignoring empty lines) after a statement is parsed
+            while (matchToken(TokenType.NEWLINE))
+                consumeToken(TokenType.NEWLINE);
+        }
 
-            // Check for different data type keywords (int, float, char, bool)
-            if (matchToken(TokenType.INT) || matchToken(TokenType.FLOAT) ||
-                    matchToken(TokenType.CHAR) || matchToken(TokenType.BOOL)) {
-
-                // If variable declarations are allowed at this point (based on canDeclare flag)
-                if (canDeclare) {
-                    // Parse the variable declaration statement and add it to the list
-                    statementList.add(parseVariableDeclarationStatement());
-                } else {
-                    // Throw an exception if variable declaration is not allowed here based on current token's line and column
-                    throw new Exception("(" + currentToken.getLine() + "," + currentToken.getColumn() + "): Invalid syntax.");
+        // Return the list containing the parsed statements as AST nodes
+        return statementList;
+    }
+
+    // Parses the statement starting at the current token. IF and WHILE statements nest through
+    // a stack of the ones still open instead of recursion, so nesting is only limited by memory.
+    private StatementNode parseStatement() throws Exception {
+        if (!matchToken(TokenType.IF) && !matchToken(TokenType.WHILE))
+            return parseSimpleStatement();
+
+        List<OpenStatement> open = new ArrayList<>();
+        canDeclare = false;
+        open.add(openStatement());
+
+        while (true) {
+            OpenStatement statement = open.get(open.size() - 1);
+
+            // Statements of the block being parsed, until its END
+            if (!matchToken(TokenType.END)) {
+                if (matchToken(TokenType.IF) || matchToken(TokenType.WHILE))
+                    open.add(openStatement());
+                else {
+                    statement.statements.add(parseSimpleStatement());
+                    while (matchToken(TokenType.NEWLINE))
+                        consumeToken(TokenType.NEWLINE);
                 }
-            } else if (matchToken(TokenType.IDENTIFIER)) {
-                // Set canDeclare to false (since identifiers are typically used in assignments)
-                canDeclare = false;
-                // Parse the assignment statement and add it to the list
-                statementList.add(parseAssignmentStatement());
-            } else if (matchToken(TokenType.DISPLAY)) {
-                // Set canDeclare to false (since display statements don't allow variable declarations before)
-                canDeclare = false;
-                // Parse the display statement and add it to the list
-                statementList.add(parseDisplayStatement());
-            } else if (matchToken(TokenType.SCAN)) {
-                // Set canDeclare to false (similar to display statements)
-                canDeclare = false;
-                // Parse the scan statement and add it to the list
-                statementList.add(parseScanStatement());
-            } else if (matchToken(TokenType.IF)) {
-                // Set canDeclare to false (since if statements don't allow variable declarations before)
-                canDeclare = false;
-                // Parse the if statement and add it to the list
-                statementList.add(parseIfStatement());
-            } else if (matchToken(TokenType.WHILE)) {
-                // Set canDeclare to false (similar to if statements)
-                canDeclare = false;
-                // Parse the while statement and add it to the list
-                statementList.add(parseWhileStatement());
-            } else if (matchToken(TokenType.ENDOFFILE)) {
-                // Throw an exception if the end of file is reached but a missing "End" statement is detected (based on current token's line and column)
-                throw new Exception("(" + currentToken.getLine() + "," + currentToken.getColumn() + "): Missing End Statement.");
+                continue;
+            }
+
+            closeBlock(statement);
+            if (statement.type == TokenType.IF && matchToken(TokenType.ELSE)) {
+                openElse(statement);
+                continue;
+            }
+
+            StatementNode completed = statement.toStatementNode();
+            open.remove(open.size() - 1);
+            if (open.isEmpty())
+                return completed;
+
+            // The completed statement is one of the statements of the block around it
+            open.get(open.size() - 1).statements.add(completed);
+            while (matchToken(TokenType.NEWLINE))
+                consumeToken(TokenType.NEWLINE);
+        }
+    }
+
+    // Parses a statement other than IF and WHILE
+    private StatementNode parseSimpleStatement() throws Exception {
+        // Check for different data type keywords (int, float, char, bool)
+        if (matchToken(TokenType.INT) || matchToken(TokenType.FLOAT) ||
+                matchToken(TokenType.CHAR) || matchToken(TokenType.BOOL)) {
+
+            // If variable declarations are allowed at this point (based on canDeclare flag)
+            if (canDeclare) {
+                // Parse the variable declaration statement
+                return parseVariableDeclarationStatement();
             } else {
-                // If none of the expected tokens matched, throw an exception with the current token's information (line, column, and code)
-                throw new Exception("(" + currentToken.getLine() + "," + currentToken.getColumn() + "): Invalid syntax \"" + currentToken.getCode() + "\".");
+                // Throw an exception if variable declaration is not allowed here based on current token's line and column
+                throw new Exception("(" + tokens.getLine(current) + "," + tokens.getColumn(current) + "): Invalid syntax.");
             }
+        } else if (matchToken(TokenType.IDENTIFIER)) {
+            // Set canDeclare to false (since identifiers are typically used in assignments)
+            canDeclare = false;
+            // Parse the assignment statement
+            return parseAssignmentStatement();
+        } else if (matchToken(TokenType.DISPLAY)) {
+            // Set canDeclare to false (since display statements don't allow variable declarations before)
+            canDeclare = false;
+            // Parse the display statement
+            return parseDisplayStatement();
+        } else if (matchToken(TokenType.SCAN)) {
+            // Set canDeclare to false (similar to display statements)
+            canDeclare = false;
+            // Parse the scan statement
+            return parseScanStatement();
+        } else if (matchToken(TokenType.ENDOFFILE)) {
+            // Throw an exception if the end of file is reached but a missing "End" statement is detected (based on current token's line and column)
+            throw new Exception("(" + tokens.getLine(current) + "," + tokens.getColumn(current) + "): Missing End Statement.");
+        } else {
+            // If none of the expected tokens matched, throw an exception with the current token's information (line, column, and code)
+            throw new Exception("(" + tokens.getLine(current) + "," + tokens.getColumn(current) + "): Invalid syntax \"" + tokens.getText(current) + "\".");
+        }
+    }
 
-            // Keep consuming newline tokens (ignoring empty lines) after a statement is parsed
+    // Consumes BEGIN CODE, for callers that then read the program one statement at a time
+    public void parseProgramStart() throws Exception {
+        while (matchToken(TokenType.NEWLINE))
+            consumeToken(TokenType.NEWLINE);
+
+        consumeToken(TokenType.BEGIN);
+        consumeToken(TokenType.CODE);
+
+        while (matchToken(TokenType.NEWLINE))
+            consumeToken(TokenType.NEWLINE);
+    }
+
+    // Parses the next top-level statement, or consumes END CODE and returns null at the end of the
+    // program. Tokens of statements already returned are discarded, so they are never held at once.
+    public StatementNode parseNextStatement() throws Exception {
+        tokens.discardBefore(current);
+
+        if (matchToken(TokenType.END)) {
+            consumeToken(TokenType.END);
+            consumeToken(TokenType.CODE);
             while (matchToken(TokenType.NEWLINE))
                 consumeToken(TokenType.NEWLINE);
+            consumeToken(TokenType.ENDOFFILE);
+            return null;
         }
 
-        // Return the list containing the parsed statements as AST nodes
-        return statementList;
+        StatementNode statement = parseStatement();
+        while (matchToken(TokenType.NEWLINE))
+            consumeToken(TokenType.NEWLINE);
+        return statement;
     }
 
 
     private StatementNode parseVariableDeclarationStatement() {
         try {
             // Get the data type token and consume it
-            Token dataTypeToken = currentToken;
+            Token dataTypeToken = tokens.getToken(current);
             consumeToken(dataTypeToken.getTokenType());
         
-            // Map to store variables with their expressions
+            // Map to store variables with their expressions and symbol ids
             Map<String, ExpressionNode> variables = new HashMap<>();
+            Map<String, Integer> symbols = new HashMap<>();
         
             // Get the first variable name and expression
+            int symbol = intern(current);
             Pair<String, ExpressionNode> variable = getVariable();
             variables.put(variable.getFirst(), variable.getSecond());
-            variableNames.add(variable.getFirst());
+            symbols.put(variable.getFirst(), symbol);
+            declared.set(symbol);
         
             // Process remaining variables separated by commas
             while (matchToken(TokenType.COMMA)) {
                 consumeToken(TokenType.COMMA);
+                symbol = intern(current);
                 variable = getVariable();
                 variables.put(variable.getFirst(), variable.getSecond());
-                variableNames.add(variable.getFirst());
+                symbols.put(variable.getFirst(), symbol);
+                declared.set(symbol);
             }
         
             // Create and return the VariableDeclarationNode
-            return new VariableDeclarationNode(dataTypeToken, variables);
+            return new VariableDeclarationNode(dataTypeToken, variables, symbols);
         } catch (Exception e) {
             // Handle the exception
             e.printStackTrace(); // Example of printing the stack trace, replace with appropriate handling
@@ -184,30 +265,33 @@ public class Parser {
 
     private StatementNode parseAssignmentStatement() throws Exception {
         List<String> identifiers = new ArrayList<>();
+        List<Integer> symbols = new ArrayList<>();
         List<Token> equals = new ArrayList<>();
 
-        Token identifierToken = currentToken;
+        int symbol = intern(current);
         consumeToken(TokenType.IDENTIFIER);
-        Token equalToken = currentToken;
+        Token equalToken = tokens.getToken(current);
         consumeToken(TokenType.EQUAL);
 
-        identifiers.add(identifierToken.getCode());
+        identifiers.add(names.getName(symbol));
+        symbols.add(symbol);
         equals.add(equalToken);
 
         ExpressionNode expressionValue = parseExpression();
 
         while (matchToken(TokenType.EQUAL)) {
             IdentifierNode idenExpr = (IdentifierNode) expressionValue;
-            equalToken = currentToken;
+            equalToken = tokens.getToken(current);
             consumeToken(TokenType.EQUAL);
 
             identifiers.add(idenExpr.getName());
+            symbols.add(idenExpr.getSymbol());
             equals.add(equalToken);
 
             expressionValue = parseExpression();
         }
 
-        return new AssignmentNode(identifiers, equals, expressionValue);
+        return new AssignmentNode(identifiers, toArray(symbols), equals, expressionValue);
     }
 
 //    private StatementNode parseDisplayStatement() throws Exception {
@@ -265,7 +349,7 @@ public class Parser {
 //    }
 private StatementNode parseDisplayStatement() throws Exception {
     // Read and remove the current token
-    Token displayToken = currentToken;
+    Token displayToken = tokens.getToken(current);
     consumeToken(TokenType.DISPLAY);
     consumeToken(TokenType.COLON);
 
@@ -275,7 +359,7 @@ private StatementNode parseDisplayStatement() throws Exception {
     // If display starts with '$'
     // ex. DISPLAY: $ ....
     if (matchToken(TokenType.DOLLAR)) {
-        expressions.add(new LiteralNode(currentToken, "\n"));
+        expressions.add(new LiteralNode(tokens.getToken(current), "\n"));
         consumeToken(TokenType.DOLLAR);
 
         // While token is & iterate until no & token.
@@ -284,12 +368,12 @@ private StatementNode parseDisplayStatement() throws Exception {
 
             // If newline is next to & throw an error
             if (matchToken(TokenType.NEWLINE))
-                throw new Exception("(" + currentToken.getLine() + "," + currentToken.getColumn() + "): Unexpected " + currentToken.getTokenType() + " token expected expression token");
+                throw new Exception("(" + tokens.getLine(current) + "," + tokens.getColumn(current) + "): Unexpected " + tokens.getType(current) + " token expected expression token");
 
             // If $ is next to &, create a new Literal Expression with
             // the value \n
             if (matchToken(TokenType.DOLLAR)) {
-                expressions.add(new LiteralNode(currentToken, "\n"));
+                expressions.add(new LiteralNode(tokens.getToken(current), "\n"));
                 consumeToken(TokenType.DOLLAR);
             }
             // Else get the expression
@@ -299,7 +383,7 @@ private StatementNode parseDisplayStatement() throws Exception {
 
         // If the token is not newline then throw an error
         if (!matchToken(TokenType.NEWLINE))
-            throw new Exception("(" + currentToken.getLine() + "," + currentToken.getColumn() + "): Unexpected " + currentToken.getTokenType() + " token expected " + TokenType.NEWLINE + " token");
+            throw new Exception("(" + tokens.getLine(current) + "," + tokens.getColumn(current) + "): Unexpected " + tokens.getType(current) + " token expected " + TokenType.NEWLINE + " token");
 
         // Create the Display Statement
         return new DisplayNode(displayToken, expressions);
@@ -317,12 +401,12 @@ private StatementNode parseDisplayStatement() throws Exception {
 
             // If newline is next to & throw an error
             if (matchToken(TokenType.NEWLINE))
-                throw new Exception("(" + currentToken.getLine() + "," + currentToken.getColumn() + "): Unexpected " + currentToken.getTokenType() + " token expected expression token");
+                throw new Exception("(" + tokens.getLine(current) + "," + tokens.getColumn(current) + "): Unexpected " + tokens.getType(current) + " token expected expression token");
 
             // If $ is next to &, create a new Literal Expression with
             // the value \n
             if (matchToken(TokenType.DOLLAR)) {
-                expressions.add(new LiteralNode(currentToken, "\n"));
+                expressions.add(new LiteralNode(tokens.getToken(current), "\n"));
                 consumeToken(TokenType.DOLLAR);
             }
             // Else get the expression
@@ -332,7 +416,7 @@ private StatementNode parseDisplayStatement() throws Exception {
 
         // If the token is not newline then throw an error
         if (!matchToken(TokenType.NEWLINE))
-            throw new Exception("(" + currentToken.getLine() + "," + currentToken.getColumn() + "): Unexpected " + currentToken.getTokenType() + " token expected " + TokenType.NEWLINE + " token");
+            throw new Exception("(" + tokens.getLine(current) + "," + tokens.getColumn(current) + "): Unexpected " + tokens.getType(current) + " token expected " + TokenType.NEWLINE + " token");
 
         // Create the Display Statement
         return new DisplayNode(displayToken, expressions);
@@ -340,209 +424,278 @@ private StatementNode parseDisplayStatement() throws Exception {
     // If display starts with '&'
     // ex. DISPLAY: & ....
     else
-        throw new Exception("(" + currentToken.getLine() + "," + currentToken.getColumn() + "): Unexpected " + currentToken.getTokenType() + " token expected expression token");
+        throw new Exception("(" + tokens.getLine(current) + "," + tokens.getColumn(current) + "): Unexpected " + tokens.getType(current) + " token expected expression token");
 }
 
 
     private StatementNode parseScanStatement() throws Exception {
-        Token scanToken = currentToken;
+        Token scanToken = tokens.getToken(current);
         consumeToken(TokenType.SCAN);
         consumeToken(TokenType.COLON);
 
         List<String> identifiers = new ArrayList<>();
-        identifiers.add(currentToken.getCode());
+        List<Integer> symbols = new ArrayList<>();
+        int symbol = intern(current);
         consumeToken(TokenType.IDENTIFIER);
+        identifiers.add(names.getName(symbol));
+        symbols.add(symbol);
 
         while (matchToken(TokenType.COMMA)) {
             consumeToken(TokenType.COMMA);
-            identifiers.add(currentToken.getCode());
+            symbol = intern(current);
             consumeToken(TokenType.IDENTIFIER);
+            identifiers.add(names.getName(symbol));
+            symbols.add(symbol);
         }
 
-        return new ScanNode(scanToken, identifiers);
+        return new ScanNode(scanToken, identifiers, toArray(symbols));
     }
 
-    private StatementNode parseIfStatement() throws Exception {
-        boolean isElse = false;
-        List<ExpressionNode> conditions = new ArrayList<>();
-        List<ProgramNode> statementBlocks = new ArrayList<>();
-        List<Token> tokens = new ArrayList<>();
+    // Consumes the IF or WHILE, its condition and the start of its first block
+    private OpenStatement openStatement() throws Exception {
+        OpenStatement statement = new OpenStatement(tokens.getType(current));
+        statement.tokens.add(tokens.getToken(current));
+        consumeToken(statement.type);
+        statement.conditions.add(parseConditionExpression());
+        openBlock(statement);
+        return statement;
+    }
 
-        tokens.add(currentToken);
-        consumeToken(TokenType.IF);
-        conditions.add(parseConditionExpression());
-        statementBlocks.add(parseProgram(TokenType.IF));
+    // Consumes an ELSE or ELSE IF with its condition and the start of its block
+    private void openElse(OpenStatement statement) throws Exception {
+        if (statement.isElse)
+            throw new Exception("(" + tokens.getLine(current) + ", " + tokens.getColumn(current) + "): Invalid syntax " + tokens.getType(current));
 
-        while (matchToken(TokenType.ELSE)) {
-            if (isElse)
-                throw new Exception("(" + currentToken.getLine() + ", " + currentToken.getColumn() + "): Invalid syntax " + currentToken.getTokenType());
+        statement.tokens.add(tokens.getToken(current));
+        consumeToken(TokenType.ELSE);
 
-            tokens.add(currentToken);
-            consumeToken(TokenType.ELSE);
+        if (matchToken(TokenType.IF)) {
+            consumeToken(TokenType.IF);
+            statement.conditions.add(parseConditionExpression());
+        } else {
+            statement.conditions.add(null);
+            statement.isElse = true;
+        }
+        openBlock(statement);
+    }
 
-            if (matchToken(TokenType.IF)) {
-                consumeToken(TokenType.IF);
-                conditions.add(parseConditionExpression());
-            } else {
-                conditions.add(null);
-                isElse = true;
-            }
+    // BEGIN IF or BEGIN WHILE, like the start of parseProgram
+    private void openBlock(OpenStatement statement) throws Exception {
+        while (matchToken(TokenType.NEWLINE))
+            consumeToken(TokenType.NEWLINE);
 
-            statementBlocks.add(parseProgram(TokenType.IF));
-        }
+        consumeToken(TokenType.BEGIN);
+        consumeToken(statement.type);
 
-        return new ConditionalNode(tokens, conditions, statementBlocks);
+        while (matchToken(TokenType.NEWLINE))
+            consumeToken(TokenType.NEWLINE);
+        statement.statements = new ArrayList<>();
     }
 
-    private StatementNode parseWhileStatement() throws Exception {
-        Token whileToken = currentToken;
-        consumeToken(TokenType.WHILE);
+    // END IF or END WHILE, like the end of parseProgram
+    private void closeBlock(OpenStatement statement) throws Exception {
+        while (matchToken(TokenType.NEWLINE))
+            consumeToken(TokenType.NEWLINE);
 
-        ExpressionNode condition = parseConditionExpression();
-        ProgramNode statementBlock = parseProgram(TokenType.WHILE);
+        consumeToken(TokenType.END);
+        consumeToken(statement.type);
 
-        return new LoopNode(whileToken, condition, statementBlock);
+        while (matchToken(TokenType.NEWLINE))
+            consumeToken(TokenType.NEWLINE);
+        statement.blocks.add(new ProgramNode(statement.statements));
     }
 
+    // Parses an expression without recursion: constructs that wait for an operand, such as an
+    // open parenthesis or an operator whose right side is being read, are kept in pending. The
+    // trees built are the ones the grammar's recursive rules describe, see Pending.
     private ExpressionNode parseExpression() throws Exception {
-        ExpressionNode expression;
-
-        if (matchToken(TokenType.ESCAPE)) {
-            Token escapeToken = currentToken;
-            consumeToken(TokenType.ESCAPE);
-            return new LiteralNode(escapeToken, escapeToken.getValue());
-        } else if (matchToken(TokenType.OPENPARENTHESIS)) {
-            expression = parseParenthesisExpression();
-            return expression;
-        } else if (matchToken(TokenType.PLUS) || matchToken(TokenType.MINUS) || matchToken(TokenType.NOT)) {
-            expression = parseUnaryExpression();
-            return expression;
-        } else if (matchToken(TokenType.IDENTIFIER) || matchToken(TokenType.INTLITERAL) || matchToken(TokenType.FLOATLITERAL)
-                || matchToken(TokenType.CHARLITERAL) || matchToken(TokenType.BOOLLITERAL) || matchToken(TokenType.STRINGLITERAL)) {
-            expression = parseBinaryExpression(null);
-            return expression;
-        } else
-            throw new Exception("(" + currentToken.getLine() + ", " + currentToken.getColumn() + "): Unexpected " + currentToken.getTokenType() + " token expected expression token.");
+        List<Pending> pending = new ArrayList<>();
+        ExpressionNode value = beginExpression(pending, false);
+
+        while (!pending.isEmpty()) {
+            Pending top = pending.remove(pending.size() - 1);
+            switch (top.kind) {
+                case PARENTHESIS:
+                    Token closeParenthesis = tokens.getToken(current);
+                    consumeToken(TokenType.CLOSEPARENTHESIS);
+                    value = continueBinary(pending, new ParenthesisNode(top.token, value, closeParenthesis));
+                    break;
+                case UNARY:
+                    value = continueBinary(pending, new UnaryNode(top.token, value));
+                    break;
+                case LEFT:
+                    value = continueBinary(pending, value);
+                    break;
+                case RIGHT:
+                    // An operator binding tighter than this one takes the right side as its left side
+                    if (Grammar.getBinaryPrecedence(tokens.getType(current)) > top.precedence) {
+                        pending.add(new Pending(PendingKind.NESTED, top.token, top.left, 0));
+                        value = continueBinary(pending, value);
+                    } else
+                        value = continueBinary(pending, new BinaryNode(top.left, top.token, value));
+                    break;
+                case NESTED:
+                    value = continueBinary(pending, new BinaryNode(top.left, top.token, value));
+                    break;
+            }
+        }
+        return value;
     }
 
-    private ExpressionNode parseParenthesisExpression() throws Exception {
-        Token openParenthesis = currentToken;
-        consumeToken(TokenType.OPENPARENTHESIS);
-
-        ExpressionNode expression = parseExpression();
-
-        Token closeParenthesis = currentToken;
-        consumeToken(TokenType.CLOSEPARENTHESIS);
-
-        int precedence = Grammar.getBinaryPrecedence(currentToken.getTokenType());
-
-        if (precedence > 0) {
-            ParenthesisNode parenExpr = new ParenthesisNode(openParenthesis, expression, closeParenthesis);
-            return parseBinaryExpression(parenExpr);
+    // Consumes tokens up to the first operand and returns it, pushing what is opened on the way.
+    // A term is an operand on its own, an expression starting with one continues into operators.
+    private ExpressionNode beginExpression(List<Pending> pending, boolean term) throws Exception {
+        while (true) {
+            if (matchToken(TokenType.IDENTIFIER)) {
+                if (!term)
+                    pending.add(new Pending(PendingKind.LEFT, null, null, 0));
+                Token identifierToken = tokens.getToken(current);
+                int symbol = intern(current);
+                consumeToken(TokenType.IDENTIFIER);
+                return new IdentifierNode(identifierToken, names.getName(symbol), symbol);
+            } else if (matchToken(TokenType.INTLITERAL) || matchToken(TokenType.FLOATLITERAL) || matchToken(TokenType.CHARLITERAL)
+                    || matchToken(TokenType.BOOLLITERAL) || matchToken(TokenType.STRINGLITERAL)) {
+                if (!term)
+                    pending.add(new Pending(PendingKind.LEFT, null, null, 0));
+                Token literalToken = tokens.getToken(current);
+                consumeToken(literalToken.getTokenType());
+                return new LiteralNode(literalToken, literalToken.getValue());
+            } else if (matchToken(TokenType.ESCAPE)) {
+                Token escapeToken = tokens.getToken(current);
+                consumeToken(TokenType.ESCAPE);
+                return new LiteralNode(escapeToken, escapeToken.getValue());
+            } else if (matchToken(TokenType.OPENPARENTHESIS)) {
+                pending.add(new Pending(PendingKind.PARENTHESIS, tokens.getToken(current), null, 0));
+                consumeToken(TokenType.OPENPARENTHESIS);
+                term = false;
+            } else if (matchToken(TokenType.PLUS) || matchToken(TokenType.MINUS) || matchToken(TokenType.NOT)) {
+                Token unaryToken = tokens.getToken(current);
+                pending.add(new Pending(PendingKind.UNARY, unaryToken, null, 0));
+                consumeToken(unaryToken.getTokenType());
+                term = !matchToken(TokenType.OPENPARENTHESIS);
+            } else
+                throw new Exception("(" + tokens.getLine(current) + ", " + tokens.getColumn(current) + "): Unexpected " + tokens.getType(current) + " token expected expression token.");
         }
+    }
 
-        return new ParenthesisNode(openParenthesis, expression, closeParenthesis);
+    // With left complete, reads the next operator if there is one and begins its right side
+    private ExpressionNode continueBinary(List<Pending> pending, ExpressionNode left) throws Exception {
+        int precedence = Grammar.getBinaryPrecedence(tokens.getType(current));
+        if (precedence <= 0)
+            return left;
+
+        Token binaryToken = tokens.getToken(current);
+        consumeToken(binaryToken.getTokenType());
+        pending.add(new Pending(PendingKind.RIGHT, binaryToken, left, precedence));
+        return beginExpression(pending, true);
     }
 
     private ExpressionNode parseConditionExpression() throws Exception {
-        Token openParenthesis = currentToken;
+        Token openParenthesis = tokens.getToken(current);
         consumeToken(TokenType.OPENPARENTHESIS);
 
         ExpressionNode expression = parseExpression();
 
-        Token closeParenthesis = currentToken;
+        Token closeParenthesis = tokens.getToken(current);
         consumeToken(TokenType.CLOSEPARENTHESIS);
 
         return new ParenthesisNode(openParenthesis, expression, closeParenthesis);
     }
 
-    private ExpressionNode parseUnaryExpression() throws Exception {
-        Token unaryToken = currentToken;
-        consumeToken(unaryToken.getTokenType());
-
-        ExpressionNode expression;
-        if (matchToken(TokenType.OPENPARENTHESIS))
-            expression = parseExpression();
-        else
-            expression = parseTerm();
-
-        UnaryNode unaryExpr = new UnaryNode(unaryToken, expression);
-
-        if (Grammar.getBinaryPrecedence(currentToken.getTokenType()) > 0)
-            return parseBinaryExpression(unaryExpr);
-
-        return unaryExpr;
-    }
-
-    private ExpressionNode parseBinaryExpression(ExpressionNode prevLeft) throws Exception {
-        ExpressionNode left = prevLeft != null ? prevLeft : parseTerm();
-
-        int precedence = Grammar.getBinaryPrecedence(currentToken.getTokenType());
-
-        while (precedence > 0) {
-            Token binaryToken = currentToken;
-            consumeToken(binaryToken.getTokenType());
-
-            ExpressionNode right = parseTerm();
-            int nextPrecedence = Grammar.getBinaryPrecedence(currentToken.getTokenType());
-
-            if (nextPrecedence > precedence)
-                right = parseBinaryExpression(right);
-
-            left = new BinaryNode(left, binaryToken, right);
-            precedence = Grammar.getBinaryPrecedence(currentToken.getTokenType());
-        }
-
-        return left;
-    }
-
-    private ExpressionNode parseTerm() throws Exception {
-        if (matchToken(TokenType.IDENTIFIER)) {
-            Token identifierToken = currentToken;
-            consumeToken(TokenType.IDENTIFIER);
-            return new IdentifierNode(identifierToken, identifierToken.getCode());
-        } else if (matchToken(TokenType.INTLITERAL) || matchToken(TokenType.FLOATLITERAL) || matchToken(TokenType.CHARLITERAL)
-                || matchToken(TokenType.BOOLLITERAL) || matchToken(TokenType.STRINGLITERAL)) {
-            Token literalToken = currentToken;
-            consumeToken(literalToken.getTokenType());
-            return new LiteralNode(literalToken, literalToken.getValue());
-        } else
-            return parseExpression();
-    }
-
     private void consumeToken(TokenType tokenType) throws Exception {
         if (matchToken(tokenType)) {
-            Token prevToken = currentToken;
-            currentToken = lexer.getToken();
+            TokenType prevTokenType = tokens.getType(current);
+            if (prevTokenType != TokenType.ENDOFFILE)
+                current++;
             if (matchToken(TokenType.ERROR)) {
-                if (prevToken.getTokenType() == TokenType.INT || prevToken.getTokenType() == TokenType.FLOAT || prevToken.getTokenType() == TokenType.CHAR || prevToken.getTokenType() == TokenType.BOOL) {
-                    if (currentToken.getValue().toString().contains("Invalid keyword") || currentToken.getValue().toString().contains("Invalid data type")) {
-                        currentToken.setTokenType(TokenType.IDENTIFIER);
-                        currentToken.setValue(null);
+                if (prevTokenType == TokenType.INT || prevTokenType == TokenType.FLOAT || prevTokenType == TokenType.CHAR || prevTokenType == TokenType.BOOL) {
+                    if (tokens.getValue(current).toString().contains("Invalid keyword") || tokens.getValue(current).toString().contains("Invalid data type")) {
+                        tokens.setType(current, TokenType.IDENTIFIER);
+                        tokens.clearValue(current);
                     }
-                } else if (variableNames.contains(currentToken.getCode())) {
-                    currentToken.setTokenType(TokenType.IDENTIFIER);
-                    currentToken.setValue(null);
+                } else if (isDeclared(current)) {
+                    tokens.setType(current, TokenType.IDENTIFIER);
+                    tokens.clearValue(current);
                 } else
-                    throw new Exception("(" + currentToken.getLine() + ", " + currentToken.getColumn() + "): " + currentToken.getValue());
+                    throw new Exception("(" + tokens.getLine(current) + ", " + tokens.getColumn(current) + "): " + tokens.getValue(current));
             }
         } else
-            throw new Exception("(" + currentToken.getLine() + "," + currentToken.getColumn() + "): Unexpected token " + currentToken.getTokenType() + " token expected " + tokenType + " token");
+            throw new Exception("(" + tokens.getLine(current) + "," + tokens.getColumn(current) + "): Unexpected token " + tokens.getType(current) + " token expected " + tokenType + " token");
     }
 
     private boolean matchToken(TokenType tokenType) {
-        return currentToken.getTokenType() == tokenType;
+        return tokens.getType(current) == tokenType;
+    }
+
+    // Symbol id of the name of the token at index, its text is only copied the first time it is seen
+    private int intern(int index) {
+        return names.intern(tokens.getSource(), tokens.getStart(index), tokens.getLength(index));
+    }
+
+    private boolean isDeclared(int index) {
+        int symbol = names.lookup(tokens.getSource(), tokens.getStart(index), tokens.getLength(index));
+        return symbol >= 0 && declared.get(symbol);
+    }
+
+    private static int[] toArray(List<Integer> symbols) {
+        int[] result = new int[symbols.size()];
+        for (int i = 0; i < result.length; i++)
+            result[i] = symbols.get(i);
+        return result;
     }
 
     private Pair<String, ExpressionNode> getVariable() throws Exception {
-        Token identifier = currentToken;
+        String identifier = names.getName(intern(current));
         consumeToken(TokenType.IDENTIFIER);
 
         if (matchToken(TokenType.EQUAL)) {
             consumeToken(TokenType.EQUAL);
-            return new Pair<>(identifier.getCode(), parseExpression());
+            return new Pair<>(identifier, parseExpression());
+        }
+        return new Pair<>(identifier, null);
+    }
+
+    // An IF or WHILE whose blocks are still being parsed
+    private static final class OpenStatement {
+        private final TokenType type;
+        private final List<Token> tokens = new ArrayList<>();
+        private final List<ExpressionNode> conditions = new ArrayList<>();
+        private final List<ProgramNode> blocks = new ArrayList<>();
+        private List<StatementNode> statements; // Of the block being parsed
+        private boolean isElse;
+
+        private OpenStatement(TokenType type) {
+            this.type = type;
+        }
+
+        private StatementNode toStatementNode() {
+            if (type == TokenType.WHILE)
+                return new LoopNode(tokens.get(0), conditions.get(0), blocks.get(0));
+            return new ConditionalNode(tokens, conditions, blocks);
+        }
+    }
+
+    // What a construct waiting for an operand does with it
+    private enum PendingKind {
+        PARENTHESIS, // Expects ')' and wraps the operand, which may continue into operators after it
+        UNARY,       // Applies the operator, the result may continue into operators after it
+        LEFT,        // The operand is the left side of a run of operators
+        RIGHT,       // The operand is the right side of token, unless an operator binding tighter follows
+        NESTED       // The operand is the right side of token, extended by tighter operators
+    }
+
+    private static final class Pending {
+        private final PendingKind kind;
+        private final Token token;
+        private final ExpressionNode left;
+        private final int precedence;
+
+        private Pending(PendingKind kind, Token token, ExpressionNode left, int precedence) {
+            this.kind = kind;
+            this.token = token;
+            this.left = left;
+            this.precedence = precedence;
         }
-        return new Pair<>(identifier.getCode(), null);
     }
 
     public class Pair<F, S> {
@@ -8,41 +8,75 @@ import Analysis.Tree.Expression.LiteralNode;
 import Analysis.Tree.Expression.ParenthesisNode;
 import Analysis.Tree.Expression.UnaryNode;
 import Analysis.Tree.Expression.BinaryNode;
-import Analysis.Table.VariableTable;
+import Analysis.Table.SymbolTable;
 import Analysis.Tree.Statement.*;
 import Analysis.Type.*;
+import java.util.ArrayList;
 import java.util.List;
 
 public class Semantic {
-    private VariableTable variableTable;
+    private SymbolTable symbolTable;
 
     public Semantic() {
-        variableTable = new VariableTable();
+        symbolTable = new SymbolTable();
+    }
+
+    // Declared identifiers and their slots, complete once analyze has run
+    public SymbolTable getSymbolTable() {
+        return symbolTable;
     }
 
     public void analyze(ProgramNode program) {
         List<StatementNode> statements = program.getStatements();
-        for (StatementNode statement : statements) {
-            if (statement instanceof VariableDeclarationNode) {
-                analyzeVariableDeclaration((VariableDeclarationNode) statement);
-            } else if (statement instanceof AssignmentNode) {
-                analyzeAssignment((AssignmentNode) statement);
-            } else if (statement instanceof DisplayNode) {
-                analyzeDisplay((DisplayNode) statement);
-            } else if (statement instanceof ScanNode) {
-                analyzeScan((ScanNode) statement);
-            } else if (statement instanceof ConditionalNode) {
-                analyzeCondition((ConditionalNode) statement);
-            } else if (statement instanceof LoopNode) {
-                analyzeLoop((LoopNode) statement);
-            }
+        for (StatementNode statement : statements)
+            analyzeStatement(statement);
+    }
+
+    // Checks one statement against the declarations analyzed before it. The blocks of IF and
+    // WHILE statements are walked with a stack of the statements left to check, in source
+    // order, so nesting does not grow the Java stack.
+    public void analyzeStatement(StatementNode root) {
+        List<Object> pending = new ArrayList<>(); // StatementNodes, and Branches of IF statements
+        pending.add(root);
+
+        while (!pending.isEmpty()) {
+            Object next = pending.remove(pending.size() - 1);
+            if (next instanceof ConditionalNode)
+                pending.add(new Branch((ConditionalNode) next, 0));
+            else if (next instanceof Branch)
+                analyzeBranch((Branch) next, pending);
+            else if (next instanceof LoopNode) {
+                analyzeLoop((LoopNode) next);
+                addBlock(((LoopNode) next).getStatement(), pending);
+            } else
+                analyzeSimpleStatement((StatementNode) next);
+        }
+    }
+
+    // Pushes the statements of the block so the first one is checked next
+    private static void addBlock(ProgramNode block, List<Object> pending) {
+        List<StatementNode> statements = block.getStatements();
+        for (int i = statements.size() - 1; i >= 0; i--)
+            pending.add(statements.get(i));
+    }
+
+    private void analyzeSimpleStatement(StatementNode statement) {
+        if (statement instanceof VariableDeclarationNode) {
+            analyzeVariableDeclaration((VariableDeclarationNode) statement);
+        } else if (statement instanceof AssignmentNode) {
+            analyzeAssignment((AssignmentNode) statement);
+        } else if (statement instanceof DisplayNode) {
+            analyzeDisplay((DisplayNode) statement);
+        } else if (statement instanceof ScanNode) {
+            analyzeScan((ScanNode) statement);
         }
     }
 
     private void analyzeVariableDeclaration(VariableDeclarationNode statement) {
         DataType dataType = Grammar.getDataType(statement.getDataTypeToken().getTokenType());
         for (String identifier : statement.getVariables().keySet()) {
-            if (!variableTable.exists(identifier)) {
+            int symbol = statement.getSymbol(identifier);
+            if (!symbolTable.exists(symbol)) {
                 ExpressionNode value = statement.getVariables().get(identifier);
                 if (value != null) {
                     DataType expressionType = analyzeExpression(value);
@@ -52,7 +86,7 @@ public class Semantic {
                                 expressionType, identifier));
                     }
                 }
-                variableTable.addIdentifier(identifier, dataType);
+                statement.setSlot(identifier, symbolTable.addIdentifier(symbol, identifier, dataType));
             } else {
                 throw new RuntimeException(String.format("(%d,%d): Variable \"%s\" already exists.",
                         statement.getDataTypeToken().getLine(), statement.getDataTypeToken().getColumn(), identifier));
@@ -61,10 +95,12 @@ public class Semantic {
     }
 
     private void analyzeAssignment(AssignmentNode statement) {
+        int[] slots = new int[statement.getIdentifiers().size()];
         for (int i = 0; i < statement.getIdentifiers().size(); i++) {
             String identifier = statement.getIdentifiers().get(i);
-            if (variableTable.exists(identifier)) {
-                DataType dataType = variableTable.getType(identifier);
+            slots[i] = symbolTable.getSlot(statement.getSymbols()[i]);
+            if (slots[i] >= 0) {
+                DataType dataType = symbolTable.getType(slots[i]);
                 DataType expressionType = analyzeExpression(statement.getExpression());
                 if (!Grammar.matchDataType(dataType, expressionType)) {
                     throw new RuntimeException(String.format("(%d,%d): Unable to assign %s on \"%s\".",
@@ -77,51 +113,43 @@ public class Semantic {
                         identifier));
             }
         }
+        statement.setSlots(slots);
     }
 
     private void analyzeDisplay(DisplayNode statement) {
-        for (ExpressionNode expression : statement.getExpressions()) {
-            if (expression instanceof IdentifierNode) {
-                IdentifierNode identifierNode = (IdentifierNode) expression;
-                if (!variableTable.exists(identifierNode.getName())) {
-                    throw new RuntimeException(String.format("(%d,%d): Variable \"%s\" does not exist.",
-                            identifierNode.getIdentifierToken().getLine(), identifierNode.getIdentifierToken().getColumn(),
-                            identifierNode.getName()));
-                }
-            }
-        }
+        // Every displayed expression is typed so the compiler knows how to print it
+        for (ExpressionNode expression : statement.getExpressions())
+            analyzeExpression(expression);
     }
 
     private void analyzeScan(ScanNode statement) {
-        for (String identifier : statement.getIdentifiers()) {
-            if (!variableTable.exists(identifier)) {
+        int[] slots = new int[statement.getIdentifiers().size()];
+        for (int i = 0; i < slots.length; i++) {
+            slots[i] = symbolTable.getSlot(statement.getSymbols()[i]);
+            if (slots[i] < 0) {
                 throw new RuntimeException(String.format("(%d,%d): Variable \"%s\" does not exist.",
-                        statement.getScanToken().getLine(), statement.getScanToken().getColumn(), identifier));
+                        statement.getScanToken().getLine(), statement.getScanToken().getColumn(), statement.getIdentifiers().get(i)));
             }
         }
+        statement.setSlots(slots);
     }
 
-    private void analyzeCondition(ConditionalNode statement) {
-    int index = 0;
-    // Loop through a list of expressions
-    for (ExpressionNode expression : statement.getExpressions()) {
-        // If expression is not null means that the statement is either if or else if
-        if (expression != null) {
-            // If the data type of the expression is not bool
-            if (analyzeExpression(expression) != DataType.Bool) {
-                throw new RuntimeException(String.format("(%d,%d): Expression is not %s",
-                        statement.getTokens().get(index).getLine(), statement.getTokens().get(index).getColumn(),
-                        DataType.Bool));
-            }
+    // Checks the condition of one IF / ELSE IF, a null condition is the ELSE block, then
+    // schedules its block followed by the next branch
+    private void analyzeBranch(Branch branch, List<Object> pending) {
+        ConditionalNode statement = branch.statement;
+        int index = branch.index;
+        ExpressionNode expression = statement.getExpressions().get(index);
+        if (expression != null && analyzeExpression(expression) != DataType.Bool) {
+            throw new RuntimeException(String.format("(%d,%d): Expression is not %s",
+                    statement.getTokens().get(index).getLine(), statement.getTokens().get(index).getColumn(),
+                    DataType.Bool));
         }
 
-        // Analyze the statement block of if, else if, else statement
-        analyze(statement.getStatements().get(index));
-
-        index++;
+        if (index + 1 < statement.getExpressions().size())
+            pending.add(new Branch(statement, index + 1));
+        addBlock(statement.getStatements().get(index), pending);
     }
-}
-
 
     private void analyzeLoop(LoopNode statement) {
         DataType expressionType = analyzeExpression(statement.getExpression());
@@ -129,29 +157,71 @@ public class Semantic {
             throw new RuntimeException(String.format("(%d,%d): Expression is not %s",
                     statement.getWhileToken().getLine(), statement.getWhileToken().getColumn(), DataType.Bool));
         }
-        analyze(statement.getStatement());
-    }
-
-    private DataType analyzeExpression(ExpressionNode expression) {
-        if (expression instanceof BinaryNode) {
-            return analyzeBinaryExpression((BinaryNode) expression);
-        } else if (expression instanceof UnaryNode) {
-            return analyzeUnaryExpression((UnaryNode) expression);
-        } else if (expression instanceof ParenthesisNode) {
-            return analyzeExpression(((ParenthesisNode) expression).getExpression());
-        } else if (expression instanceof IdentifierNode) {
-            return analyzeIdentifierExpression((IdentifierNode) expression);
-        } else if (expression instanceof LiteralNode) {
-            return analyzeLiteralExpression((LiteralNode) expression);
-        } else {
-            throw new RuntimeException("Unknown expression.");
+    }
+
+    // Types the expression bottom-up, operands before the node using them, and records the
+    // type on every node for the back ends. Nodes whose operands are being typed wait on a
+    // stack, so the depth of the expression does not grow the Java stack.
+    private DataType analyzeExpression(ExpressionNode root) {
+        List<ExpressionNode> nodes = new ArrayList<>();
+        List<Boolean> expanded = new ArrayList<>(); // Whether the node's operands are already pushed
+        List<DataType> types = new ArrayList<>();   // Types of the operands typed so far
+        nodes.add(root);
+        expanded.add(false);
+
+        while (!nodes.isEmpty()) {
+            int top = nodes.size() - 1;
+            ExpressionNode expression = nodes.get(top);
+
+            if (!expanded.get(top)) {
+                expanded.set(top, true);
+                if (expression instanceof BinaryNode) {
+                    // Pushed right first so the left side is typed first
+                    push(nodes, expanded, ((BinaryNode) expression).getRight());
+                    push(nodes, expanded, ((BinaryNode) expression).getLeft());
+                    continue;
+                } else if (expression instanceof UnaryNode) {
+                    push(nodes, expanded, ((UnaryNode) expression).getExpression());
+                    continue;
+                } else if (expression instanceof ParenthesisNode) {
+                    push(nodes, expanded, ((ParenthesisNode) expression).getExpression());
+                    continue;
+                }
+            }
+
+            nodes.remove(top);
+            expanded.remove(top);
+            DataType dataType;
+            if (expression instanceof BinaryNode) {
+                DataType rightDataType = types.remove(types.size() - 1);
+                DataType leftDataType = types.remove(types.size() - 1);
+                dataType = analyzeBinaryExpression((BinaryNode) expression, leftDataType, rightDataType);
+            } else if (expression instanceof UnaryNode) {
+                dataType = analyzeUnaryExpression((UnaryNode) expression, types.remove(types.size() - 1));
+            } else if (expression instanceof ParenthesisNode) {
+                dataType = types.remove(types.size() - 1);
+            } else if (expression instanceof IdentifierNode) {
+                dataType = analyzeIdentifierExpression((IdentifierNode) expression);
+            } else if (expression instanceof LiteralNode) {
+                dataType = analyzeLiteralExpression((LiteralNode) expression);
+            } else {
+                throw new RuntimeException("Unknown expression.");
+            }
+
+            // Record the static type on the node for the back ends
+            expression.setDataType(dataType);
+            types.add(dataType);
         }
+        return types.get(0);
     }
 
-    private DataType analyzeBinaryExpression(BinaryNode expression) {
+    private static void push(List<ExpressionNode> nodes, List<Boolean> expanded, ExpressionNode expression) {
+        nodes.add(expression);
+        expanded.add(false);
+    }
+
+    private DataType analyzeBinaryExpression(BinaryNode expression, DataType leftDataType, DataType rightDataType) {
         Token operatorToken = expression.getTokenOperator();
-        DataType leftDataType = analyzeExpression(expression.getLeft());
-        DataType rightDataType = analyzeExpression(expression.getRight());
         if (!matchExpressionDataType(leftDataType, rightDataType)) {
             throw new RuntimeException(String.format("(%d,%d): Operator '%s' cannot be applied to operands of type %s and %s",
                     operatorToken.getLine(), operatorToken.getColumn(), operatorToken.getCode(), leftDataType, rightDataType));
@@ -165,13 +235,21 @@ public class Semantic {
                 !matchExpressionDataType(leftDataType, rightDataType)) {
             throw new RuntimeException(String.format("(%d,%d): Operator '%s' cannot be applied to operands of type %s and %s",
                     operatorToken.getLine(), operatorToken.getColumn(), operatorToken.getCode(), leftDataType, rightDataType));
+        } else if (isLogicalOperator(operatorToken.getTokenType()) &&
+                (leftDataType != DataType.Bool || rightDataType != DataType.Bool)) {
+            throw new RuntimeException(String.format("(%d,%d): Operator '%s' cannot be applied to operands of type %s and %s",
+                    operatorToken.getLine(), operatorToken.getColumn(), operatorToken.getCode(), leftDataType, rightDataType));
         }
-        return Grammar.isComparisonOperator(operatorToken.getTokenType()) ? DataType.Bool : leftDataType;
+        if (Grammar.isComparisonOperator(operatorToken.getTokenType()))
+            return DataType.Bool;
+        // INT operands are promoted when mixed with FLOAT
+        if (leftDataType == DataType.Int && rightDataType == DataType.Float)
+            return DataType.Float;
+        return leftDataType;
     }
 
-    private DataType analyzeUnaryExpression(UnaryNode expression) {
+    private DataType analyzeUnaryExpression(UnaryNode expression, DataType expressionDataType) {
         Token operatorToken = expression.getTokenOperator();
-        DataType expressionDataType = analyzeExpression(expression.getExpression());
         if (operatorToken.getTokenType() == TokenType.NOT) {
             if (expressionDataType != DataType.Bool) {
                 throw new RuntimeException(String.format("(%d,%d): Operator '%s' cannot be applied to %s",
@@ -179,15 +257,27 @@ public class Semantic {
             }
             return DataType.Bool;
         }
+        // Negation is arithmetic, like the binary operators it only applies to numbers
+        if (operatorToken.getTokenType() == TokenType.MINUS &&
+                expressionDataType != DataType.Int && expressionDataType != DataType.Float) {
+            throw new RuntimeException(String.format("(%d,%d): Operator '%s' cannot be applied to %s",
+                    operatorToken.getLine(), operatorToken.getColumn(), operatorToken.getCode(), expressionDataType));
+        }
         return expressionDataType;
     }
 
+    private static boolean isLogicalOperator(TokenType tokenType) {
+        return tokenType == TokenType.AND || tokenType == TokenType.OR;
+    }
+
     private DataType analyzeIdentifierExpression(IdentifierNode expression) {
-        if (!variableTable.exists(expression.getName())) {
+        int slot = symbolTable.getSlot(expression.getSymbol());
+        if (slot < 0) {
             throw new RuntimeException(String.format("(%d,%d): Variable \"%s\" does not exist.",
                     expression.getIdentifierToken().getLine(), expression.getIdentifierToken().getColumn(), expression.getName()));
         }
-        return variableTable.getType(expression.getName());
+        expression.setSlot(slot);
+        return symbolTable.getType(slot);
     }
 
     private DataType analyzeLiteralExpression(LiteralNode expression) {
@@ -208,6 +298,17 @@ public class Semantic {
         }
     }
 
+    // An IF statement whose branch index is checked next
+    private static final class Branch {
+        private final ConditionalNode statement;
+        private final int index;
+
+        private Branch(ConditionalNode statement, int index) {
+            this.statement = statement;
+            this.index = index;
+        }
+    }
+
     private boolean matchExpressionDataType(DataType ldt, DataType rdt) {
         if ((ldt == DataType.Int && rdt == DataType.Float) || (ldt == DataType.Float && rdt == DataType.Int))
             return true;
@@ -0,0 +1,241 @@
+package Analysis.Syntax;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+// Characters of a CODE source as the Lexer reads them. Readers and byte
+// buffers are decoded on demand while the Lexer advances, so a source file
+// never has to be copied into a String first.
+public abstract class SourceText {
+
+    public static SourceText of(String code) {
+        return new StringText(code);
+    }
+
+    public static SourceText of(CharBuffer chars) {
+        return new CharBufferText(chars);
+    }
+
+    public static SourceText of(Reader reader) {
+        return new ReaderText(reader);
+    }
+
+    // UTF-8 encoded source, such as a MappedByteBuffer over a file
+    public static SourceText of(ByteBuffer bytes) {
+        return new DecodingText(bytes);
+    }
+
+    // Source file mapped into memory, decoded as the Lexer reaches it
+    public static SourceText map(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE)
+                throw new IOException("Source file " + path + " is larger than 2GB.");
+            // The mapping stays valid after the channel is closed
+            return of(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    // Whether the source has a character at index, reading further into the source if needed
+    public abstract boolean has(int index);
+
+    // Character at index, which has been checked with has
+    public abstract char charAt(int index);
+
+    public abstract String substring(int start, int end);
+
+    // Expected number of characters, used to size token arrays
+    public abstract int sizeHint();
+
+    public boolean regionMatches(boolean ignoreCase, int start, String word) {
+        if (!has(start + word.length() - 1))
+            return false;
+        for (int i = 0; i < word.length(); i++) {
+            char c = charAt(start + i);
+            char expected = word.charAt(i);
+            if (c != expected && !(ignoreCase && Character.toUpperCase(c) == Character.toUpperCase(expected)))
+                return false;
+        }
+        return true;
+    }
+
+    // First index of c in [from, to), or -1
+    public int indexOf(char c, int from, int to) {
+        for (int i = from; i < to; i++) {
+            if (charAt(i) == c)
+                return i;
+        }
+        return -1;
+    }
+
+    private static final class StringText extends SourceText {
+        private final String code;
+
+        StringText(String code) {
+            this.code = code;
+        }
+
+        @Override
+        public boolean has(int index) {
+            return index < code.length();
+        }
+
+        @Override
+        public char charAt(int index) {
+            return code.charAt(index);
+        }
+
+        @Override
+        public String substring(int start, int end) {
+            return code.substring(start, end);
+        }
+
+        @Override
+        public int sizeHint() {
+            return code.length();
+        }
+
+        @Override
+        public boolean regionMatches(boolean ignoreCase, int start, String word) {
+            return code.regionMatches(ignoreCase, start, word, 0, word.length());
+        }
+    }
+
+    private static final class CharBufferText extends SourceText {
+        private final CharBuffer chars;
+        private final int base;
+
+        CharBufferText(CharBuffer chars) {
+            this.chars = chars;
+            this.base = chars.position();
+        }
+
+        @Override
+        public boolean has(int index) {
+            return base + index < chars.limit();
+        }
+
+        @Override
+        public char charAt(int index) {
+            return chars.get(base + index);
+        }
+
+        @Override
+        public String substring(int start, int end) {
+            return chars.duplicate().position(base + start).limit(base + end).toString();
+        }
+
+        @Override
+        public int sizeHint() {
+            return chars.limit() - base;
+        }
+    }
+
+    // Source read in chunks into a growing char array as the Lexer asks for more.
+    // chars is volatile so a Parser thread reading token text sees a grown array's contents.
+    private abstract static class StreamText extends SourceText {
+        private static final int CHUNK = 65536;
+
+        private volatile char[] chars;
+        private int loaded;
+        private boolean ended;
+
+        StreamText(int initialCapacity) {
+            this.chars = new char[Math.max(initialCapacity, 1024)];
+        }
+
+        // Reads at most length characters into chars[offset..], returns -1 at the end of the source
+        protected abstract int read(char[] chars, int offset, int length);
+
+        @Override
+        public boolean has(int index) {
+            while (index >= loaded && !ended) {
+                // Room for at least a surrogate pair
+                if (chars.length - loaded < 2)
+                    chars = Arrays.copyOf(chars, chars.length * 2);
+                int count = read(chars, loaded, Math.min(chars.length - loaded, CHUNK));
+                if (count < 0)
+                    ended = true;
+                else
+                    loaded += count;
+            }
+            return index < loaded;
+        }
+
+        @Override
+        public char charAt(int index) {
+            return chars[index];
+        }
+
+        @Override
+        public String substring(int start, int end) {
+            return new String(chars, start, end - start);
+        }
+
+        @Override
+        public int sizeHint() {
+            return chars.length;
+        }
+    }
+
+    private static final class ReaderText extends StreamText {
+        private final Reader reader;
+
+        ReaderText(Reader reader) {
+            super(8192);
+            this.reader = reader;
+        }
+
+        @Override
+        protected int read(char[] chars, int offset, int length) {
+            try {
+                return reader.read(chars, offset, length);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    private static final class DecodingText extends StreamText {
+        private final ByteBuffer bytes;
+        private final CharsetDecoder decoder;
+        private boolean flushed;
+
+        DecodingText(ByteBuffer bytes) {
+            // UTF-8 never decodes to more chars than it has bytes
+            super(Math.min(bytes.remaining(), 1 << 20));
+            this.bytes = bytes.duplicate();
+            this.decoder = StandardCharsets.UTF_8.newDecoder()
+                    .onMalformedInput(CodingErrorAction.REPLACE)
+                    .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        }
+
+        @Override
+        protected int read(char[] chars, int offset, int length) {
+            if (flushed)
+                return -1;
+
+            CharBuffer out = CharBuffer.wrap(chars, offset, length);
+            decoder.decode(bytes, out, true);
+            if (!bytes.hasRemaining()) {
+                decoder.flush(out);
+                flushed = true;
+            }
+            return out.position() - offset;
+        }
+
+        @Override
+        public int sizeHint() {
+            return bytes.capacity();
+        }
+    }
+}
@@ -6,15 +6,29 @@ public class Token {
     private TokenType tokenType;
     private String code;
     private Object value;
-    private int line;
-    private int column;
+    private final int offset; // Position in the source, line and column are resolved from it
+    private final LineMap lineMap;
+    private SourceText source; // Source of the text while it has not been materialized
+    private int length;
 
-    public Token(TokenType tokenType, String code, Object value, int line, int column) {
+    public Token(TokenType tokenType, String code, Object value, int offset, LineMap lineMap) {
         this.tokenType = tokenType;
         this.code = code;
         this.value = value;
-        this.line = line;
-        this.column = column;
+        this.offset = offset;
+        this.lineMap = lineMap;
+    }
+
+    // Token for an entry of a TokenBuffer, its text is copied from the source on the first getCode
+    Token(TokenBuffer buffer, int index) {
+        this.tokenType = buffer.getType(index);
+        this.value = buffer.getValue(index);
+        this.offset = buffer.getStart(index);
+        this.lineMap = buffer.getLineMap();
+        this.source = buffer.getSource();
+        this.length = buffer.getLength(index);
+        if (tokenType == TokenType.ENDOFFILE)
+            this.code = "\0";
     }
 
     public TokenType getTokenType() {
@@ -26,6 +40,9 @@ public class Token {
     }
 
     public String getCode() {
+        // Racing threads at worst copy the same text twice
+        if (code == null && source != null)
+            code = source.substring(offset, offset + length);
         return code;
     }
 
@@ -37,16 +54,24 @@ public class Token {
         this.value = value;
     }
 
+    public int getOffset() {
+        return offset;
+    }
+
+    public LineMap getLineMap() {
+        return lineMap;
+    }
+
     public int getLine() {
-        return line;
+        return lineMap.getLine(offset);
     }
 
     public int getColumn() {
-        return column;
+        return lineMap.getColumn(offset);
     }
 
     @Override
     public String toString() {
-        return "Token(" + tokenType + ", " + code + ", " + value + ")";
+        return "Token(" + tokenType + ", " + getCode() + ", " + value + ")";
     }
 }
\ No newline at end of file
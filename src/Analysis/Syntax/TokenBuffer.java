@@ -0,0 +1,190 @@
+package Analysis.Syntax;
+
+import Analysis.Type.TokenType;
+import java.util.Arrays;
+
+// Token stream of a source kept as parallel primitive arrays over the source
+// text, positions are resolved through the Lexer's LineMap. A token's text is
+// only copied out of the source when asked for, and a Token object only exists
+// for the tokens the AST holds on to.
+//
+// Tokens are addressed by their absolute index in the stream. A buffer with a
+// TokenSource receives tokens as the Parser reaches them, and discardBefore
+// drops the ones a streaming Parser is done with.
+public final class TokenBuffer {
+    private static final TokenType[] TYPES = TokenType.values();
+
+    private final SourceText code;
+    private final LineMap lineMap;
+    private byte[] types; // TokenType ordinals
+    private int[] starts;
+    private int[] lengths;
+    private int[] values; // Index into valuePool, -1 when the token has no value
+    private Object[] valuePool;
+    private int base; // Absolute index of the first token held
+    private int size; // Absolute index one past the last token held
+    private int valueCount;
+    private final TokenSource source; // null when the source was tokenized up front
+
+    public TokenBuffer(SourceText code, LineMap lineMap) {
+        this(code, lineMap, null, Math.max(16, code.sizeHint() / 4));
+    }
+
+    TokenBuffer(SourceText code, LineMap lineMap, TokenSource source, int capacity) {
+        this.code = code;
+        this.lineMap = lineMap;
+        this.source = source;
+        types = new byte[capacity];
+        starts = new int[capacity];
+        lengths = new int[capacity];
+        values = new int[capacity];
+        valuePool = new Object[16];
+    }
+
+    void add(TokenType tokenType, int start, int end, Object value) {
+        int index = size - base;
+        if (index == types.length)
+            grow();
+
+        types[index] = (byte) tokenType.ordinal();
+        starts[index] = start;
+        lengths[index] = end - start;
+        values[index] = value == null ? -1 : addValue(value);
+        size++;
+    }
+
+    // Number of tokens received so far
+    public int size() {
+        return size;
+    }
+
+    public TokenType getType(int index) {
+        int slot = slot(index);
+        return TYPES[types[slot]];
+    }
+
+    // Used by the Parser to reinterpret an ERROR token as an IDENTIFIER
+    public void setType(int index, TokenType tokenType) {
+        int slot = slot(index);
+        types[slot] = (byte) tokenType.ordinal();
+    }
+
+    public Object getValue(int index) {
+        int slot = slot(index);
+        int value = values[slot];
+        return value < 0 ? null : valuePool[value];
+    }
+
+    public void clearValue(int index) {
+        int slot = slot(index);
+        values[slot] = -1;
+    }
+
+    public int getStart(int index) {
+        int slot = slot(index);
+        return starts[slot];
+    }
+
+    public int getLength(int index) {
+        int slot = slot(index);
+        return lengths[slot];
+    }
+
+    public int getLine(int index) {
+        return lineMap.getLine(getStart(index));
+    }
+
+    public int getColumn(int index) {
+        return lineMap.getColumn(getStart(index));
+    }
+
+    public LineMap getLineMap() {
+        return lineMap;
+    }
+
+    public SourceText getSource() {
+        return code;
+    }
+
+    // Copies the token's text out of the source
+    public String getText(int index) {
+        if (getType(index) == TokenType.ENDOFFILE)
+            return "\0";
+        int start = getStart(index);
+        return code.substring(start, start + getLength(index));
+    }
+
+    // Whether the token's text equals text, without copying it
+    public boolean textEquals(int index, String text) {
+        return getLength(index) == text.length() && code.regionMatches(false, getStart(index), text);
+    }
+
+    // Token object for an AST node, its text is still only copied on demand
+    public Token getToken(int index) {
+        return new Token(this, index);
+    }
+
+    // Drops the tokens before index, which must not be read again
+    public void discardBefore(int index) {
+        int count = Math.min(index, size) - base;
+        if (count <= 0)
+            return;
+
+        int kept = size - base - count;
+        System.arraycopy(types, count, types, 0, kept);
+        System.arraycopy(starts, count, starts, 0, kept);
+        System.arraycopy(lengths, count, lengths, 0, kept);
+        System.arraycopy(values, count, values, 0, kept);
+        base += count;
+
+        // Values are pooled in token order, so the kept ones form the tail of the pool
+        int firstValue = valueCount;
+        for (int i = 0; i < kept && firstValue == valueCount; i++) {
+            if (values[i] >= 0)
+                firstValue = values[i];
+        }
+        System.arraycopy(valuePool, firstValue, valuePool, 0, valueCount - firstValue);
+        Arrays.fill(valuePool, valueCount - firstValue, valueCount, null);
+        valueCount -= firstValue;
+        for (int i = 0; i < kept; i++) {
+            if (values[i] >= 0)
+                values[i] -= firstValue;
+        }
+    }
+
+    // Stops the TokenSource feeding this buffer, if any, once the Parser is done with it
+    public void close() {
+        if (source != null)
+            source.close();
+    }
+
+    // Position of the token in the arrays. Waiting for the token can grow the arrays,
+    // so callers read the field only after this returns.
+    private int slot(int index) {
+        if (index >= size)
+            await(index);
+        return index - base;
+    }
+
+    private void await(int index) {
+        if (source == null)
+            throw new IndexOutOfBoundsException("Token " + index + " of " + size);
+        while (index >= size)
+            source.fill(this);
+    }
+
+    private int addValue(Object value) {
+        if (valueCount == valuePool.length)
+            valuePool = Arrays.copyOf(valuePool, valueCount * 2);
+        valuePool[valueCount] = value;
+        return valueCount++;
+    }
+
+    private void grow() {
+        int capacity = types.length * 2;
+        types = Arrays.copyOf(types, capacity);
+        starts = Arrays.copyOf(starts, capacity);
+        lengths = Arrays.copyOf(lengths, capacity);
+        values = Arrays.copyOf(values, capacity);
+    }
+}
@@ -0,0 +1,102 @@
+package Analysis.Syntax;
+
+import Analysis.Type.TokenType;
+import java.util.concurrent.locks.LockSupport;
+
+// Bounded single-producer/single-consumer queue of tokens between a Lexer
+// running on its own thread and the TokenBuffer the Parser reads. The lexer
+// publishes tokens in batches; the counters only ever grow and a slot is
+// found by masking them with the power-of-two capacity.
+final class TokenRing implements TokenSource {
+    private static final int BATCH = 256;
+    private static final TokenType[] TYPES = TokenType.values();
+
+    private final byte[] types;
+    private final int[] starts;
+    private final int[] ends;
+    private final Object[] values;
+    private final int mask;
+
+    private long produced;             // Written by the producer only
+    private volatile long published;   // Tokens visible to the consumer
+    private volatile long consumed;    // Tokens the consumer has copied out
+    private volatile boolean finished; // The producer has published its last token
+    private volatile Throwable failure;
+    private volatile boolean closed;   // The consumer stopped reading
+
+    TokenRing(int capacity) {
+        int size = Integer.highestOneBit(Math.max(capacity, BATCH * 2) - 1) << 1;
+        types = new byte[size];
+        starts = new int[size];
+        ends = new int[size];
+        values = new Object[size];
+        mask = size - 1;
+    }
+
+    // Producer side, returns false once the consumer has closed the ring
+    boolean offer(TokenType tokenType, int start, int end, Object value) {
+        while (produced - consumed > mask) {
+            publish();
+            if (closed)
+                return false;
+            pause();
+        }
+
+        int slot = (int) produced & mask;
+        types[slot] = (byte) tokenType.ordinal();
+        starts[slot] = start;
+        ends[slot] = end;
+        values[slot] = value;
+        produced++;
+
+        if (produced - published >= BATCH)
+            publish();
+        return true;
+    }
+
+    void finish() {
+        publish();
+        finished = true;
+    }
+
+    void fail(Throwable throwable) {
+        failure = throwable;
+        finish();
+    }
+
+    private void publish() {
+        published = produced;
+    }
+
+    // Consumer side, moves every published token into buffer, waiting if none is available
+    @Override
+    public void fill(TokenBuffer buffer) {
+        long from = consumed;
+        long to;
+        while ((to = published) == from) {
+            if (finished && (to = published) == from) {
+                if (failure != null)
+                    throw new RuntimeException("Lexer failed: " + failure.getMessage(), failure);
+                throw new IllegalStateException("Read past the end of the token stream.");
+            }
+            pause();
+        }
+
+        for (long i = from; i < to; i++) {
+            int slot = (int) i & mask;
+            buffer.add(TYPES[types[slot]], starts[slot], ends[slot], values[slot]);
+            values[slot] = null;
+        }
+        consumed = to;
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+    }
+
+    private static void pause() {
+        Thread.onSpinWait();
+        LockSupport.parkNanos(10_000);
+    }
+}
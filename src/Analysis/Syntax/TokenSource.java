@@ -0,0 +1,12 @@
+package Analysis.Syntax;
+
+// Supplies a TokenBuffer with tokens it does not have yet, either from a
+// Lexer running on its own thread or by scanning on demand.
+interface TokenSource {
+    // Adds at least one token to buffer
+    void fill(TokenBuffer buffer);
+
+    // Called once the Parser no longer needs tokens
+    default void close() {
+    }
+}
@@ -0,0 +1,65 @@
+package Analysis.Table;
+
+
+import Analysis.Type.DataType;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+
+
+
+// Compile time table of declared identifiers, keyed by the symbol ids the
+// Parser interned their names into. Every identifier gets the next free slot
+// of the runtime VariableTable frame.
+public class SymbolTable {
+    private int[] slots; // Slot of each symbol id, -1 while undeclared
+    private final List<String> names;
+    private final List<DataType> types;
+
+    public SymbolTable() {
+        slots = new int[64];
+        Arrays.fill(slots, -1);
+        names = new ArrayList<>();
+        types = new ArrayList<>();
+    }
+
+    public int addIdentifier(int symbol, String identifier, DataType dataType) {
+        // Check for duplicate identifier and throw exception if found
+        if (exists(symbol)) {
+            throw new IllegalArgumentException("Identifier already exists");
+        }
+
+        if (symbol >= slots.length) {
+            int length = slots.length;
+            slots = Arrays.copyOf(slots, Math.max(length * 2, symbol + 1));
+            Arrays.fill(slots, length, slots.length, -1);
+        }
+
+        int slot = names.size();
+        slots[symbol] = slot;
+        names.add(identifier);
+        types.add(dataType);
+        return slot;
+    }
+
+    public boolean exists(int symbol) {
+        return getSlot(symbol) >= 0;
+    }
+
+    public int getSlot(int symbol) {
+        return symbol >= 0 && symbol < slots.length ? slots[symbol] : -1;
+    }
+
+    public String getName(int slot) {
+        return names.get(slot);
+    }
+
+    public DataType getType(int slot) {
+        return types.get(slot);
+    }
+
+    public int size() {
+        return names.size();
+    }
+}
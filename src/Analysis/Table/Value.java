@@ -0,0 +1,41 @@
+package Analysis.Table;
+
+import Analysis.Type.DataType;
+
+// Encoding of CODE values in the untyped long slots shared by the VariableTable
+// frame and the VirtualMachine. INT and CHAR are stored as their numeric value,
+// BOOL as 0 or 1 and FLOAT as the raw bits of a double.
+public final class Value {
+    private Value() {
+    }
+
+    public static long encode(Object value, DataType dataType) {
+        switch (dataType) {
+            case Int:
+                return ((Number) value).intValue();
+            case Float:
+                return Double.doubleToRawLongBits(((Number) value).doubleValue());
+            case Char:
+                return (Character) value;
+            case Bool:
+                return (Boolean) value ? 1 : 0;
+            default:
+                throw new IllegalArgumentException("Unable to encode " + dataType + " value.");
+        }
+    }
+
+    public static Object decode(long value, DataType dataType) {
+        switch (dataType) {
+            case Int:
+                return (int) value;
+            case Float:
+                return Double.longBitsToDouble(value);
+            case Char:
+                return (char) value;
+            case Bool:
+                return value != 0;
+            default:
+                throw new IllegalArgumentException("Unable to decode " + dataType + " value.");
+        }
+    }
+}
@@ -1,73 +1,112 @@
 package Analysis.Table;
 
 
-// import Analysis.Tree.Expression.*;
 import Analysis.Type.DataType;
-import java.util.HashMap;
-import java.util.Map;
+import java.util.Arrays;
 
 
 
 
+// Runtime frame of a program. Variables are addressed by the slot Semantic
+// resolved for them and kept unboxed in the Value encoding, so reads and
+// writes are plain array accesses.
 public class VariableTable {
-    private Map<String, Map.Entry<DataType, Object>> variableTable;
+    private DataType[] types;
+    private long[] values;
+    private boolean[] assigned; // false until the variable gets a value
+
+    public VariableTable(DataType[] types) {
+        this.types = types.clone();
+        values = new long[types.length];
+        assigned = new boolean[types.length];
+    }
+
+    // Adds slots for identifiers declared in symbolTable since the frame was created or last
+    // grown, for programs executed while they are still being parsed. Engines that hold on
+    // to the backing arrays must not be used on a frame that grows.
+    public void addSlots(SymbolTable symbolTable) {
+        int count = types.length;
+        if (symbolTable.size() == count)
+            return;
+
+        types = Arrays.copyOf(types, symbolTable.size());
+        values = Arrays.copyOf(values, types.length);
+        assigned = Arrays.copyOf(assigned, types.length);
+        for (int slot = count; slot < types.length; slot++)
+            types[slot] = symbolTable.getType(slot);
+    }
 
-    public VariableTable() {
-        variableTable = new HashMap<>();
+    // Boxed access, used for SCAN input
+    public void addValue(int slot, Object val) {
+        values[slot] = Value.encode(val, types[slot]);
+        assigned[slot] = true;
     }
 
-    public void addVariable(String identifier, DataType dataType, Object val) {
-        // Ensure val is not null, using a placeholder object if necessary
-        Object valueToStore = val != null ? val : new Object(); // Placeholder object
+    public DataType getType(int slot) {
+        return types[slot];
+    }
 
-        // Create a Map.Entry directly using Map.entry and add it to the variableTable
-        variableTable.put(identifier, Map.entry(dataType, valueToStore));
+    // Boxed access, returns null while the variable has no value
+    public Object getValue(int slot) {
+        return assigned[slot] ? Value.decode(values[slot], types[slot]) : null;
     }
 
+    public boolean isAssigned(int slot) {
+        return assigned[slot];
+    }
 
-    //    public void addIdentifier(String identifier, DataType dataType) {
-//        if (variableTable == null) {
-//            variableTable = new HashMap<>(); // Initialize if null
-//        }
-//        variableTable.put(identifier, Map.entry(dataType, null));
-//    }
-public void addIdentifier(String identifier, DataType dataType) {
-    // Ensure variableTable is initialized, creating it as a HashMap if null
-    if (this.variableTable == null) {
-        this.variableTable = new HashMap<>();
+    public int getInt(int slot) {
+        return (int) values[slot];
     }
 
-    // Check for duplicate identifier and throw exception if found
-    if (this.variableTable.containsKey(identifier)) {
-        throw new IllegalArgumentException("Identifier already exists");
+    public void setInt(int slot, int val) {
+        values[slot] = val;
+        assigned[slot] = true;
     }
 
-    // Use a placeholder object instead of null
-    Object placeholder = new Object();
+    public double getFloat(int slot) {
+        return Double.longBitsToDouble(values[slot]);
+    }
 
-    // Create a Map.Entry directly using Map.entry and add it to the variableTable
-    this.variableTable.put(identifier, Map.entry(dataType, placeholder));
-}
+    public void setFloat(int slot, double val) {
+        values[slot] = Double.doubleToRawLongBits(val);
+        assigned[slot] = true;
+    }
 
+    public boolean getBool(int slot) {
+        return values[slot] != 0;
+    }
+
+    public void setBool(int slot, boolean val) {
+        values[slot] = val ? 1 : 0;
+        assigned[slot] = true;
+    }
+
+    public char getChar(int slot) {
+        return (char) values[slot];
+    }
+
+    public void setChar(int slot, char val) {
+        values[slot] = val;
+        assigned[slot] = true;
+    }
 
-    public void addValue(String identifier, Object val) {
-        Map.Entry<DataType, Object> entry = variableTable.get(identifier);
-        if (entry != null) {
-            variableTable.put(identifier, Map.entry(entry.getKey(), val));
-        }
+    // Stores a value already in the Value encoding of the slot's type
+    public void setRaw(int slot, long val) {
+        values[slot] = val;
+        assigned[slot] = true;
     }
 
-    public DataType getType(String identifier) {
-        Map.Entry<DataType, Object> entry = variableTable.get(identifier);
-        return entry != null ? entry.getKey() : null;
+    public int size() {
+        return values.length;
     }
 
-    public Object getValue(String identifier) {
-        Map.Entry<DataType, Object> entry = variableTable.get(identifier);
-        return entry != null ? entry.getValue() : null;
+    // Backing arrays, for engines such as the VirtualMachine that address slots directly
+    public long[] getValues() {
+        return values;
     }
 
-    public boolean exists(String identifier) {
-        return variableTable.containsKey(identifier);
+    public boolean[] getAssigned() {
+        return assigned;
     }
 }
@@ -2,6 +2,7 @@ package Analysis.Tree.Expression;
 
 
 import Analysis.Syntax.Token;
+import Analysis.Type.DataType;
 
 public class BinaryNode extends ExpressionNode {
     private final ExpressionNode left;
@@ -25,4 +26,30 @@ public class BinaryNode extends ExpressionNode {
     public ExpressionNode getRight() {
         return right;
     }
+
+    // Operands are compared in their own type, FLOAT if either side is FLOAT
+    @Override
+    public ExpressionNode specialize() {
+        ExpressionNode left = this.left.specialize();
+        ExpressionNode right = this.right.specialize();
+
+        switch (tokenOperator.getTokenType()) {
+            case AND:
+            case OR:
+                return LogicalNode.create(this, left, right);
+            case LESSTHAN:
+            case GREATERTHAN:
+            case LESSEQUAL:
+            case GREATEREQUAL:
+            case EQUALTO:
+            case NOTEQUAL:
+                if (left.getDataType() == DataType.Float || right.getDataType() == DataType.Float)
+                    return FloatComparisonNode.create(this, left, right);
+                return IntComparisonNode.create(this, left, right);
+            default:
+                if (getDataType() == DataType.Float)
+                    return FloatArithmeticNode.create(this, left, right);
+                return IntArithmeticNode.create(this, left, right);
+        }
+    }
 }
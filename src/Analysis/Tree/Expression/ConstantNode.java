@@ -0,0 +1,103 @@
+package Analysis.Tree.Expression;
+
+import Analysis.Tree.Frame;
+
+// A LiteralNode with its value unboxed, specialized on the type of the literal
+public abstract class ConstantNode extends LiteralNode {
+    private ConstantNode(LiteralNode node) {
+        super(node.getLiteralToken(), node.getLiteral());
+        setDataType(node.getDataType());
+    }
+
+    static ConstantNode create(LiteralNode node) {
+        switch (node.getDataType()) {
+            case Int:
+                return new OfInt(node);
+            case Float:
+                return new OfFloat(node);
+            case Bool:
+                return new OfBool(node);
+            case Char:
+                return new OfChar(node);
+            default:
+                return new OfString(node);
+        }
+    }
+
+    @Override
+    public ExpressionNode specialize() {
+        return this;
+    }
+
+    public static final class OfInt extends ConstantNode {
+        private final int value;
+
+        private OfInt(LiteralNode node) {
+            super(node);
+            this.value = ((Number) node.getLiteral()).intValue();
+        }
+
+        @Override
+        public int evaluateInt(Frame frame) {
+            return value;
+        }
+
+        @Override
+        public double evaluateFloat(Frame frame) {
+            return value;
+        }
+    }
+
+    public static final class OfFloat extends ConstantNode {
+        private final double value;
+
+        private OfFloat(LiteralNode node) {
+            super(node);
+            this.value = ((Number) node.getLiteral()).doubleValue();
+        }
+
+        @Override
+        public double evaluateFloat(Frame frame) {
+            return value;
+        }
+    }
+
+    public static final class OfBool extends ConstantNode {
+        private final boolean value;
+
+        private OfBool(LiteralNode node) {
+            super(node);
+            this.value = (Boolean) node.getLiteral();
+        }
+
+        @Override
+        public boolean evaluateBool(Frame frame) {
+            return value;
+        }
+    }
+
+    public static final class OfChar extends ConstantNode {
+        private final char value;
+
+        private OfChar(LiteralNode node) {
+            super(node);
+            this.value = (Character) node.getLiteral();
+        }
+
+        @Override
+        public char evaluateChar(Frame frame) {
+            return value;
+        }
+    }
+
+    public static final class OfString extends ConstantNode {
+        private OfString(LiteralNode node) {
+            super(node);
+        }
+
+        @Override
+        public byte[] evaluateString(Frame frame) {
+            return getEncodedLiteral();
+        }
+    }
+}
@@ -2,7 +2,66 @@ package Analysis.Tree.Expression;
 
 import Analysis.Type.*;
 import Analysis.Tree.ASTNode;
+import Analysis.Tree.Frame;
 
+// Expressions evaluate themselves. A node as the Parser builds it is generic; the
+// first time the statement holding it runs, the expression is replaced by the tree
+// specialize returns, where every node is a subclass for its operator and operand
+// types, such as IntArithmeticNode.Add, that evaluates without looking at either.
+// Specialized nodes extend the generic class they stand for, so everything that
+// reads the AST after that, such as the Lowering of a hot loop, still works on it.
 public abstract class ExpressionNode extends ASTNode {
-    // Any additional members or methods can be added here if needed
-}
\ No newline at end of file
+    // Static type of the expression, recorded by Semantic.analyze
+    private DataType dataType;
+
+    public DataType getDataType() {
+        return dataType;
+    }
+
+    public void setDataType(DataType dataType) {
+        this.dataType = dataType;
+    }
+
+    // A specialized copy of the expression, or the node itself once it is specialized
+    public abstract ExpressionNode specialize();
+
+    // Specialized nodes override the evaluate methods of the type they produce. The
+    // rest fall back to evaluating a specialized copy of the node, which is correct
+    // but allocates, so statements specialize their expressions before running them.
+
+    // INT value, or the code of a CHAR and 1 / 0 for a BOOL, so integral comparisons share one path
+    public int evaluateInt(Frame frame) {
+        if (dataType == DataType.Char)
+            return evaluateChar(frame);
+        if (dataType == DataType.Bool)
+            return evaluateBool(frame) ? 1 : 0;
+        return specialized().evaluateInt(frame);
+    }
+
+    // INT expressions are promoted, so mixed INT / FLOAT arithmetic keeps its decimals
+    public double evaluateFloat(Frame frame) {
+        if (dataType == DataType.Int)
+            return evaluateInt(frame);
+        return specialized().evaluateFloat(frame);
+    }
+
+    public boolean evaluateBool(Frame frame) {
+        return specialized().evaluateBool(frame);
+    }
+
+    public char evaluateChar(Frame frame) {
+        return specialized().evaluateChar(frame);
+    }
+
+    // STRING values only exist as literals, e.g. DISPLAY: "text" & $, and are kept encoded
+    public byte[] evaluateString(Frame frame) {
+        return specialized().evaluateString(frame);
+    }
+
+    private ExpressionNode specialized() {
+        ExpressionNode node = specialize();
+        if (node == this)
+            throw new RuntimeException("Unknown expression.");
+        return node;
+    }
+}
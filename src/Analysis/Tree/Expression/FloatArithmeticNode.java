@@ -0,0 +1,88 @@
+package Analysis.Tree.Expression;
+
+import Analysis.Tree.Frame;
+
+// A BinaryNode of FLOAT arithmetic, one subclass per operator so evaluating it does not switch
+public abstract class FloatArithmeticNode extends BinaryNode {
+    private FloatArithmeticNode(BinaryNode node, ExpressionNode left, ExpressionNode right) {
+        super(left, node.getTokenOperator(), right);
+        setDataType(node.getDataType());
+    }
+
+    static FloatArithmeticNode create(BinaryNode node, ExpressionNode left, ExpressionNode right) {
+        switch (node.getTokenOperator().getTokenType()) {
+            case PLUS:
+                return new Add(node, left, right);
+            case MINUS:
+                return new Subtract(node, left, right);
+            case STAR:
+                return new Multiply(node, left, right);
+            case SLASH:
+                return new Divide(node, left, right);
+            case PERCENT:
+                return new Remainder(node, left, right);
+            default:
+                throw new RuntimeException("Unknown operator.");
+        }
+    }
+
+    @Override
+    public ExpressionNode specialize() {
+        return this;
+    }
+
+    public static final class Add extends FloatArithmeticNode {
+        private Add(BinaryNode node, ExpressionNode left, ExpressionNode right) {
+            super(node, left, right);
+        }
+
+        @Override
+        public double evaluateFloat(Frame frame) {
+            return getLeft().evaluateFloat(frame) + getRight().evaluateFloat(frame);
+        }
+    }
+
+    public static final class Subtract extends FloatArithmeticNode {
+        private Subtract(BinaryNode node, ExpressionNode left, ExpressionNode right) {
+            super(node, left, right);
+        }
+
+        @Override
+        public double evaluateFloat(Frame frame) {
+            return getLeft().evaluateFloat(frame) - getRight().evaluateFloat(frame);
+        }
+    }
+
+    public static final class Multiply extends FloatArithmeticNode {
+        private Multiply(BinaryNode node, ExpressionNode left, ExpressionNode right) {
+            super(node, left, right);
+        }
+
+        @Override
+        public double evaluateFloat(Frame frame) {
+            return getLeft().evaluateFloat(frame) * getRight().evaluateFloat(frame);
+        }
+    }
+
+    public static final class Divide extends FloatArithmeticNode {
+        private Divide(BinaryNode node, ExpressionNode left, ExpressionNode right) {
+            super(node, left, right);
+        }
+
+        @Override
+        public double evaluateFloat(Frame frame) {
+            return getLeft().evaluateFloat(frame) / getRight().evaluateFloat(frame);
+        }
+    }
+
+    public static final class Remainder extends FloatArithmeticNode {
+        private Remainder(BinaryNode node, ExpressionNode left, ExpressionNode right) {
+            super(node, left, right);
+        }
+
+        @Override
+        public double evaluateFloat(Frame frame) {
+            return getLeft().evaluateFloat(frame) % getRight().evaluateFloat(frame);
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package Analysis.Tree.Expression;
+
+import Analysis.Tree.Frame;
+
+// A comparison of operands of which at least one is FLOAT, one subclass per operator so evaluating it does not switch
+public abstract class FloatComparisonNode extends BinaryNode {
+    private FloatComparisonNode(BinaryNode node, ExpressionNode left, ExpressionNode right) {
+        super(left, node.getTokenOperator(), right);
+        setDataType(node.getDataType());
+    }
+
+    static FloatComparisonNode create(BinaryNode node, ExpressionNode left, ExpressionNode right) {
+        switch (node.getTokenOperator().getTokenType()) {
+            case LESSTHAN:
+                return new LessThan(node, left, right);
+            case GREATERTHAN:
+                return new GreaterThan(node, left, right);
+            case LESSEQUAL:
+                return new LessEqual(node, left, right);
+            case GREATEREQUAL:
+                return new GreaterEqual(node, left, right);
+            case EQUALTO:
+                return new EqualTo(node, left, right);
+            case NOTEQUAL:
+                return new NotEqual(node, left, right);
+            default:
+                throw new RuntimeException("Unknown operator.");
+        }
+    }
+
+    @Override
+    public ExpressionNode specialize() {
+        return this;
+    }
+
+    public static final class LessThan extends FloatComparisonNode {
+        private LessThan(BinaryNode node, ExpressionNode left, ExpressionNode right) {
+            super(node, left, right);
+        }
+
+        @Override
+        public boolean evaluateBool(Frame frame) {
+            return getLeft().evaluateFloat(frame) < getRight().evaluateFloat(frame);
+        }
+    }
+
+    public static final class GreaterThan extends FloatComparisonNode {
+        private GreaterThan(BinaryNode node, ExpressionNode left, ExpressionNode right) {
+            super(node, left, right);
+        }
+
+        @Override
+        public boolean evaluateBool(Frame frame) {
+            return getLeft().evaluateFloat(frame) > getRight().evaluateFloat(frame);
+        }
+    }
+
+    public static final class LessEqual extends FloatComparisonNode {
+        private LessEqual(BinaryNode node, ExpressionNode left, ExpressionNode right) {
+            super(node, left, right);
+        }
+
+        @Override
+        public boolean evaluateBool(Frame frame) {
+            return getLeft().evaluateFloat(frame) <= getRight().evaluateFloat(frame);
+        }
+    }
+
+    public static final class GreaterEqual extends FloatComparisonNode {
+        private GreaterEqual(BinaryNode node, ExpressionNode left, ExpressionNode right) {
+            super(node, left, right);
+        }
+
+        @Override
+        public boolean evaluateBool(Frame frame) {
+            return getLeft().evaluateFloat(frame) >= getRight().evaluateFloat(frame);
+        }
+    }
+
+    public static final class EqualTo extends FloatComparisonNode {
+        private EqualTo(BinaryNode node, ExpressionNode left, ExpressionNode right) {
+            super(node, left, right);
+        }
+
+        @Override
+        public boolean evaluateBool(Frame frame) {
+            return getLeft().evaluateFloat(frame) == getRight().evaluateFloat(frame);
+        }
+    }
+
+    public static final class NotEqual extends FloatComparisonNode {
+        private NotEqual(BinaryNode node, ExpressionNode left, ExpressionNode right) {
+            super(node, left, right);
+        }
+
+        @Override
+        public boolean evaluateBool(Frame frame) {
+            return getLeft().evaluateFloat(frame) != getRight().evaluateFloat(frame);
+        }
+    }
+}
@@ -8,10 +8,14 @@ import Analysis.Type.*;
 public class IdentifierNode extends ExpressionNode {
     private final Token identifierToken;
     private final String name;
+    private final int symbol; // Interned name, see NameTable
+    private int slot; // VariableTable slot, resolved by Semantic
 
-    public IdentifierNode(Token identifierToken, String name) {
+    public IdentifierNode(Token identifierToken, String name, int symbol) {
         this.identifierToken = identifierToken;
         this.name = name;
+        this.symbol = symbol;
+        this.slot = -1;
     }
 
     public Token getIdentifierToken() {
@@ -21,4 +25,21 @@ public class IdentifierNode extends ExpressionNode {
     public String getName() {
         return name;
     }
+
+    public int getSymbol() {
+        return symbol;
+    }
+
+    public int getSlot() {
+        return slot;
+    }
+
+    public void setSlot(int slot) {
+        this.slot = slot;
+    }
+
+    @Override
+    public ExpressionNode specialize() {
+        return VariableNode.create(this);
+    }
 }
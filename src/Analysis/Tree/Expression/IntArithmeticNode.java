@@ -0,0 +1,94 @@
+package Analysis.Tree.Expression;
+
+import Analysis.Tree.Frame;
+
+// A BinaryNode of INT arithmetic, one subclass per operator so evaluating it does not switch
+public abstract class IntArithmeticNode extends BinaryNode {
+    private IntArithmeticNode(BinaryNode node, ExpressionNode left, ExpressionNode right) {
+        super(left, node.getTokenOperator(), right);
+        setDataType(node.getDataType());
+    }
+
+    static IntArithmeticNode create(BinaryNode node, ExpressionNode left, ExpressionNode right) {
+        switch (node.getTokenOperator().getTokenType()) {
+            case PLUS:
+                return new Add(node, left, right);
+            case MINUS:
+                return new Subtract(node, left, right);
+            case STAR:
+                return new Multiply(node, left, right);
+            case SLASH:
+                return new Divide(node, left, right);
+            case PERCENT:
+                return new Remainder(node, left, right);
+            default:
+                throw new RuntimeException("Unknown operator.");
+        }
+    }
+
+    @Override
+    public ExpressionNode specialize() {
+        return this;
+    }
+
+    // INT results are promoted where a FLOAT is expected
+    @Override
+    public double evaluateFloat(Frame frame) {
+        return evaluateInt(frame);
+    }
+
+    public static final class Add extends IntArithmeticNode {
+        private Add(BinaryNode node, ExpressionNode left, ExpressionNode right) {
+            super(node, left, right);
+        }
+
+        @Override
+        public int evaluateInt(Frame frame) {
+            return getLeft().evaluateInt(frame) + getRight().evaluateInt(frame);
+        }
+    }
+
+    public static final class Subtract extends IntArithmeticNode {
+        private Subtract(BinaryNode node, ExpressionNode left, ExpressionNode right) {
+            super(node, left, right);
+        }
+
+        @Override
+        public int evaluateInt(Frame frame) {
+            return getLeft().evaluateInt(frame) - getRight().evaluateInt(frame);
+        }
+    }
+
+    public static final class Multiply extends IntArithmeticNode {
+        private Multiply(BinaryNode node, ExpressionNode left, ExpressionNode right) {
+            super(node, left, right);
+        }
+
+        @Override
+        public int evaluateInt(Frame frame) {
+            return getLeft().evaluateInt(frame) * getRight().evaluateInt(frame);
+        }
+    }
+
+    public static final class Divide extends IntArithmeticNode {
+        private Divide(BinaryNode node, ExpressionNode left, ExpressionNode right) {
+            super(node, left, right);
+        }
+
+        @Override
+        public int evaluateInt(Frame frame) {
+            return getLeft().evaluateInt(frame) / getRight().evaluateInt(frame);
+        }
+    }
+
+    public static final class Remainder extends IntArithmeticNode {
+        private Remainder(BinaryNode node, ExpressionNode left, ExpressionNode right) {
+            super(node, left, right);
+        }
+
+        @Override
+        public int evaluateInt(Frame frame) {
+            return getLeft().evaluateInt(frame) % getRight().evaluateInt(frame);
+        }
+    }
+}
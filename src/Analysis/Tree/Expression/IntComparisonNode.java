@@ -0,0 +1,101 @@
+package Analysis.Tree.Expression;
+
+import Analysis.Tree.Frame;
+
+// A comparison of INT, CHAR or BOOL operands, see ExpressionNode.evaluateInt, one subclass per operator so evaluating it does not switch
+public abstract class IntComparisonNode extends BinaryNode {
+    private IntComparisonNode(BinaryNode node, ExpressionNode left, ExpressionNode right) {
+        super(left, node.getTokenOperator(), right);
+        setDataType(node.getDataType());
+    }
+
+    static IntComparisonNode create(BinaryNode node, ExpressionNode left, ExpressionNode right) {
+        switch (node.getTokenOperator().getTokenType()) {
+            case LESSTHAN:
+                return new LessThan(node, left, right);
+            case GREATERTHAN:
+                return new GreaterThan(node, left, right);
+            case LESSEQUAL:
+                return new LessEqual(node, left, right);
+            case GREATEREQUAL:
+                return new GreaterEqual(node, left, right);
+            case EQUALTO:
+                return new EqualTo(node, left, right);
+            case NOTEQUAL:
+                return new NotEqual(node, left, right);
+            default:
+                throw new RuntimeException("Unknown operator.");
+        }
+    }
+
+    @Override
+    public ExpressionNode specialize() {
+        return this;
+    }
+
+    public static final class LessThan extends IntComparisonNode {
+        private LessThan(BinaryNode node, ExpressionNode left, ExpressionNode right) {
+            super(node, left, right);
+        }
+
+        @Override
+        public boolean evaluateBool(Frame frame) {
+            return getLeft().evaluateInt(frame) < getRight().evaluateInt(frame);
+        }
+    }
+
+    public static final class GreaterThan extends IntComparisonNode {
+        private GreaterThan(BinaryNode node, ExpressionNode left, ExpressionNode right) {
+            super(node, left, right);
+        }
+
+        @Override
+        public boolean evaluateBool(Frame frame) {
+            return getLeft().evaluateInt(frame) > getRight().evaluateInt(frame);
+        }
+    }
+
+    public static final class LessEqual extends IntComparisonNode {
+        private LessEqual(BinaryNode node, ExpressionNode left, ExpressionNode right) {
+            super(node, left, right);
+        }
+
+        @Override
+        public boolean evaluateBool(Frame frame) {
+            return getLeft().evaluateInt(frame) <= getRight().evaluateInt(frame);
+        }
+    }
+
+    public static final class GreaterEqual extends IntComparisonNode {
+        private GreaterEqual(BinaryNode node, ExpressionNode left, ExpressionNode right) {
+            super(node, left, right);
+        }
+
+        @Override
+        public boolean evaluateBool(Frame frame) {
+            return getLeft().evaluateInt(frame) >= getRight().evaluateInt(frame);
+        }
+    }
+
+    public static final class EqualTo extends IntComparisonNode {
+        private EqualTo(BinaryNode node, ExpressionNode left, ExpressionNode right) {
+            super(node, left, right);
+        }
+
+        @Override
+        public boolean evaluateBool(Frame frame) {
+            return getLeft().evaluateInt(frame) == getRight().evaluateInt(frame);
+        }
+    }
+
+    public static final class NotEqual extends IntComparisonNode {
+        private NotEqual(BinaryNode node, ExpressionNode left, ExpressionNode right) {
+            super(node, left, right);
+        }
+
+        @Override
+        public boolean evaluateBool(Frame frame) {
+            return getLeft().evaluateInt(frame) != getRight().evaluateInt(frame);
+        }
+    }
+}
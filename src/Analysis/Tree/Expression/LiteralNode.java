@@ -3,14 +3,17 @@ package Analysis.Tree.Expression;
 
 
 import Analysis.Syntax.*;
+import java.nio.charset.StandardCharsets;
 
 public class LiteralNode extends ExpressionNode {
     private final Token literalToken;
     private final Object literal;
+    private final byte[] encodedLiteral; // UTF-8 bytes of a STRING literal, written by DISPLAY
 
     public LiteralNode(Token literalToken, Object literal) {
         this.literalToken = literalToken;
         this.literal = literal;
+        this.encodedLiteral = literal instanceof String ? ((String) literal).getBytes(StandardCharsets.UTF_8) : null;
     }
 
     public Token getLiteralToken() {
@@ -20,4 +23,13 @@ public class LiteralNode extends ExpressionNode {
     public Object getLiteral() {
         return literal;
     }
+
+    public byte[] getEncodedLiteral() {
+        return encodedLiteral;
+    }
+
+    @Override
+    public ExpressionNode specialize() {
+        return ConstantNode.create(this);
+    }
 }
@@ -0,0 +1,50 @@
+package Analysis.Tree.Expression;
+
+import Analysis.Tree.Frame;
+
+// AND / OR of BOOL operands. The right side is only evaluated when the left side
+// does not decide the result.
+public abstract class LogicalNode extends BinaryNode {
+    private LogicalNode(BinaryNode node, ExpressionNode left, ExpressionNode right) {
+        super(left, node.getTokenOperator(), right);
+        setDataType(node.getDataType());
+    }
+
+    static LogicalNode create(BinaryNode node, ExpressionNode left, ExpressionNode right) {
+        switch (node.getTokenOperator().getTokenType()) {
+            case AND:
+                return new And(node, left, right);
+            case OR:
+                return new Or(node, left, right);
+            default:
+                throw new RuntimeException("Unknown operator.");
+        }
+    }
+
+    @Override
+    public ExpressionNode specialize() {
+        return this;
+    }
+
+    public static final class And extends LogicalNode {
+        private And(BinaryNode node, ExpressionNode left, ExpressionNode right) {
+            super(node, left, right);
+        }
+
+        @Override
+        public boolean evaluateBool(Frame frame) {
+            return getLeft().evaluateBool(frame) && getRight().evaluateBool(frame);
+        }
+    }
+
+    public static final class Or extends LogicalNode {
+        private Or(BinaryNode node, ExpressionNode left, ExpressionNode right) {
+            super(node, left, right);
+        }
+
+        @Override
+        public boolean evaluateBool(Frame frame) {
+            return getLeft().evaluateBool(frame) || getRight().evaluateBool(frame);
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package Analysis.Tree.Expression;
+
+import Analysis.Tree.Frame;
+
+// A unary minus of an INT or FLOAT, or a NOT, specialized on its operand type
+public abstract class NegationNode extends UnaryNode {
+    private NegationNode(UnaryNode node, ExpressionNode operand) {
+        super(node.getTokenOperator(), operand);
+        setDataType(node.getDataType());
+    }
+
+    @Override
+    public ExpressionNode specialize() {
+        return this;
+    }
+
+    public static final class OfInt extends NegationNode {
+        OfInt(UnaryNode node, ExpressionNode operand) {
+            super(node, operand);
+        }
+
+        @Override
+        public int evaluateInt(Frame frame) {
+            return -getExpression().evaluateInt(frame);
+        }
+
+        @Override
+        public double evaluateFloat(Frame frame) {
+            return evaluateInt(frame);
+        }
+    }
+
+    public static final class OfFloat extends NegationNode {
+        OfFloat(UnaryNode node, ExpressionNode operand) {
+            super(node, operand);
+        }
+
+        @Override
+        public double evaluateFloat(Frame frame) {
+            return -getExpression().evaluateFloat(frame);
+        }
+    }
+
+    public static final class OfBool extends NegationNode {
+        OfBool(UnaryNode node, ExpressionNode operand) {
+            super(node, operand);
+        }
+
+        @Override
+        public boolean evaluateBool(Frame frame) {
+            return !getExpression().evaluateBool(frame);
+        }
+    }
+}
@@ -30,4 +30,10 @@ public class ParenthesisNode extends ExpressionNode {
     public Token getClose() {
         return close;
     }
+
+    // Parentheses only group, so the specialized tree leaves them out
+    @Override
+    public ExpressionNode specialize() {
+        return expression.specialize();
+    }
 }
@@ -3,6 +3,8 @@ package Analysis.Tree.Expression;
 
 
 import Analysis.Syntax.Token;
+import Analysis.Type.DataType;
+import Analysis.Type.TokenType;
 
 public class UnaryNode extends ExpressionNode {
     private final Token tokenOperator;
@@ -20,4 +22,23 @@ public class UnaryNode extends ExpressionNode {
     public ExpressionNode getExpression() {
         return expression;
     }
+
+    // A unary plus leaves its operand as it is and is dropped. Semantic only lets a
+    // unary minus through on INT or FLOAT, anything else has no node to become.
+    @Override
+    public ExpressionNode specialize() {
+        ExpressionNode operand = expression.specialize();
+        TokenType operator = tokenOperator.getTokenType();
+
+        if (operator == TokenType.NOT)
+            return new NegationNode.OfBool(this, operand);
+        if (operator != TokenType.MINUS)
+            return operand;
+        if (getDataType() == DataType.Int)
+            return new NegationNode.OfInt(this, operand);
+        if (getDataType() == DataType.Float)
+            return new NegationNode.OfFloat(this, operand);
+        throw new RuntimeException(String.format("(%d,%d): Operator '%s' cannot be applied to %s",
+                tokenOperator.getLine(), tokenOperator.getColumn(), tokenOperator.getCode(), getDataType()));
+    }
 }
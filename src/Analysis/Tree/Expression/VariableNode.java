@@ -0,0 +1,94 @@
+package Analysis.Tree.Expression;
+
+import Analysis.Table.VariableTable;
+import Analysis.Tree.Frame;
+
+// An IdentifierNode specialized on the type of its variable
+public abstract class VariableNode extends IdentifierNode {
+    private VariableNode(IdentifierNode node) {
+        super(node.getIdentifierToken(), node.getName(), node.getSymbol());
+        setSlot(node.getSlot());
+        setDataType(node.getDataType());
+    }
+
+    static VariableNode create(IdentifierNode node) {
+        switch (node.getDataType()) {
+            case Int:
+                return new OfInt(node);
+            case Float:
+                return new OfFloat(node);
+            case Bool:
+                return new OfBool(node);
+            case Char:
+                return new OfChar(node);
+            default:
+                throw new RuntimeException("Unknown expression.");
+        }
+    }
+
+    @Override
+    public ExpressionNode specialize() {
+        return this;
+    }
+
+    // Returns the slot of the variable, failing if it has no value yet
+    protected final int checkAssigned(VariableTable variableTable) {
+        int slot = getSlot();
+        if (!variableTable.isAssigned(slot))
+            throw new RuntimeException("(" + getIdentifierToken().getLine() + "," + getIdentifierToken().getColumn() + "): Variable '" + getName() + "' is null.");
+        return slot;
+    }
+
+    public static final class OfInt extends VariableNode {
+        private OfInt(IdentifierNode node) {
+            super(node);
+        }
+
+        @Override
+        public int evaluateInt(Frame frame) {
+            VariableTable variableTable = frame.getVariableTable();
+            return variableTable.getInt(checkAssigned(variableTable));
+        }
+
+        @Override
+        public double evaluateFloat(Frame frame) {
+            return evaluateInt(frame);
+        }
+    }
+
+    public static final class OfFloat extends VariableNode {
+        private OfFloat(IdentifierNode node) {
+            super(node);
+        }
+
+        @Override
+        public double evaluateFloat(Frame frame) {
+            VariableTable variableTable = frame.getVariableTable();
+            return variableTable.getFloat(checkAssigned(variableTable));
+        }
+    }
+
+    public static final class OfBool extends VariableNode {
+        private OfBool(IdentifierNode node) {
+            super(node);
+        }
+
+        @Override
+        public boolean evaluateBool(Frame frame) {
+            VariableTable variableTable = frame.getVariableTable();
+            return variableTable.getBool(checkAssigned(variableTable));
+        }
+    }
+
+    public static final class OfChar extends VariableNode {
+        private OfChar(IdentifierNode node) {
+            super(node);
+        }
+
+        @Override
+        public char evaluateChar(Frame frame) {
+            VariableTable variableTable = frame.getVariableTable();
+            return variableTable.getChar(checkAssigned(variableTable));
+        }
+    }
+}
@@ -0,0 +1,501 @@
+package Analysis.Tree;
+
+import Analysis.Syntax.LineMap;
+import Analysis.Syntax.Token;
+import Analysis.Table.Value;
+import Analysis.Tree.Expression.BinaryNode;
+import Analysis.Tree.Expression.ExpressionNode;
+import Analysis.Tree.Expression.IdentifierNode;
+import Analysis.Tree.Expression.LiteralNode;
+import Analysis.Tree.Expression.ParenthesisNode;
+import Analysis.Tree.Expression.UnaryNode;
+import Analysis.Tree.Statement.*;
+import Analysis.Type.DataType;
+import Analysis.Type.TokenType;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// A checked AST kept as parallel primitive arrays instead of node objects, so a
+// program held for running costs a few bytes per node and is walked in place by
+// the Interpreter. Nodes are addressed by index; the root is the block at index 0.
+//
+// Every node has a kind, the type of its token (a TokenType ordinal, which is the
+// operator of a UNARY or BINARY), its type (a DataType ordinal), the source offset
+// of its token, and two operands whose meaning depends on the kind, see the kind
+// constants. Lists, such as the statements of a block, live in one int pool as
+// their length followed by their elements. Literals are pooled in the Value
+// encoding of their type, STRING literals as UTF-8 bytes. Parentheses and unary
+// '+' leave no node behind.
+public final class FlatTree {
+    private static final TokenType[] TOKEN_TYPES = TokenType.values();
+    private static final DataType[] TYPES = DataType.values();
+
+    // Statements
+    public static final byte BLOCK = 0;       // first: list of statements
+    public static final byte DECLARATION = 1; // first: list of slot, expression or -1 pairs
+    public static final byte ASSIGNMENT = 2;  // first: expression, second: list of slot, '=' offset pairs
+    public static final byte DISPLAY = 3;     // first: list of expressions
+    public static final byte SCAN = 4;        // first: list of slots
+    public static final byte CONDITIONAL = 5; // first: list of condition or -1 for ELSE, block, offset triples
+    public static final byte LOOP = 6;        // first: condition, second: block
+
+    // Expressions. The operator and the operand types are part of the kind, so a
+    // walker does not look at either: arithmetic is done in the type of the node,
+    // comparisons in INT, or in FLOAT for the FLOAT_ kinds, which have a FLOAT operand.
+    public static final byte CONSTANT = 7;    // first: index into the constant pool
+    public static final byte TEXT = 8;        // first: index into the text pool
+    public static final byte VARIABLE = 9;    // first: slot
+    public static final byte NEGATE = 10;     // first: operand
+    public static final byte NOT = 11;        // first: operand
+    public static final byte ADD = 12;        // first: left, second: right, for every kind from here on
+    public static final byte SUBTRACT = 13;
+    public static final byte MULTIPLY = 14;
+    public static final byte DIVIDE = 15;
+    public static final byte REMAINDER = 16;
+    public static final byte AND = 17;
+    public static final byte OR = 18;
+    public static final byte LESS_THAN = 19;
+    public static final byte GREATER_THAN = 20;
+    public static final byte LESS_EQUAL = 21;
+    public static final byte GREATER_EQUAL = 22;
+    public static final byte EQUAL_TO = 23;
+    public static final byte NOT_EQUAL = 24;
+    public static final byte FLOAT_LESS_THAN = 25;
+    public static final byte FLOAT_GREATER_THAN = 26;
+    public static final byte FLOAT_LESS_EQUAL = 27;
+    public static final byte FLOAT_GREATER_EQUAL = 28;
+    public static final byte FLOAT_EQUAL_TO = 29;
+    public static final byte FLOAT_NOT_EQUAL = 30;
+
+    private byte[] kinds;
+    private byte[] tokenTypes;
+    private byte[] types;
+    private int[] firsts;
+    private int[] seconds;
+    private int[] offsets;
+    private int size;
+
+    private int[] lists;
+    private int listSize;
+
+    private long[] constants;
+    private int constantCount;
+    private byte[][] texts;
+    private int textCount;
+
+    private final LineMap lineMap;
+
+    // Encodes a program that Semantic has checked
+    public FlatTree(ProgramNode program, LineMap lineMap) {
+        this.lineMap = lineMap;
+        int capacity = 64;
+        kinds = new byte[capacity];
+        tokenTypes = new byte[capacity];
+        types = new byte[capacity];
+        firsts = new int[capacity];
+        seconds = new int[capacity];
+        offsets = new int[capacity];
+        lists = new int[capacity];
+        constants = new long[16];
+        texts = new byte[16][];
+
+        new Encoder().encodeBlock(program);
+        trim();
+    }
+
+    // Number of nodes
+    public int size() {
+        return size;
+    }
+
+    public byte getKind(int node) {
+        return kinds[node];
+    }
+
+    public TokenType getTokenType(int node) {
+        return TOKEN_TYPES[tokenTypes[node]];
+    }
+
+    public DataType getType(int node) {
+        return TYPES[types[node]];
+    }
+
+    public int getFirst(int node) {
+        return firsts[node];
+    }
+
+    public int getSecond(int node) {
+        return seconds[node];
+    }
+
+    public int getOffset(int node) {
+        return offsets[node];
+    }
+
+    public int getLine(int node) {
+        return lineMap == null ? 0 : lineMap.getLine(offsets[node]);
+    }
+
+    public int getColumn(int node) {
+        return lineMap == null ? 0 : lineMap.getColumn(offsets[node]);
+    }
+
+    // Number of ints in the list starting at list
+    public int getListLength(int list) {
+        return lists[list];
+    }
+
+    public int getListElement(int list, int index) {
+        return lists[list + 1 + index];
+    }
+
+    // The list pool, for callers that take a range of it such as InputSource.scan
+    public int[] getLists() {
+        return lists;
+    }
+
+    // Value of a CONSTANT node, in the Value encoding of its type
+    public long getConstant(int node) {
+        return constants[firsts[node]];
+    }
+
+    // UTF-8 bytes of a TEXT node
+    public byte[] getText(int node) {
+        return texts[firsts[node]];
+    }
+
+    // Rebuilds the nodes of the program, for passes that work on the AST such as the
+    // Lowering. slotNames names the identifiers.
+    public ProgramNode decode(String[] slotNames) {
+        return new Decoder(slotNames).decodeBlock(0);
+    }
+
+    // Rebuilds the nodes of the loop at node, see decode
+    public LoopNode decodeLoop(int node, String[] slotNames) {
+        return (LoopNode) new Decoder(slotNames).decodeStatement(node);
+    }
+
+    private int addNode(byte kind, TokenType tokenType, DataType type, int first, int second, int offset) {
+        if (size == kinds.length) {
+            int capacity = size * 2;
+            kinds = Arrays.copyOf(kinds, capacity);
+            tokenTypes = Arrays.copyOf(tokenTypes, capacity);
+            types = Arrays.copyOf(types, capacity);
+            firsts = Arrays.copyOf(firsts, capacity);
+            seconds = Arrays.copyOf(seconds, capacity);
+            offsets = Arrays.copyOf(offsets, capacity);
+        }
+        kinds[size] = kind;
+        tokenTypes[size] = (byte) tokenType.ordinal();
+        types[size] = (byte) (type == null ? 0 : type.ordinal());
+        firsts[size] = first;
+        seconds[size] = second;
+        offsets[size] = offset;
+        return size++;
+    }
+
+    private int addList(List<Integer> elements) {
+        if (listSize + elements.size() + 1 > lists.length)
+            lists = Arrays.copyOf(lists, Math.max(lists.length * 2, listSize + elements.size() + 1));
+        int list = listSize;
+        lists[listSize++] = elements.size();
+        for (int element : elements)
+            lists[listSize++] = element;
+        return list;
+    }
+
+    private void trim() {
+        kinds = Arrays.copyOf(kinds, size);
+        tokenTypes = Arrays.copyOf(tokenTypes, size);
+        types = Arrays.copyOf(types, size);
+        firsts = Arrays.copyOf(firsts, size);
+        seconds = Arrays.copyOf(seconds, size);
+        offsets = Arrays.copyOf(offsets, size);
+        lists = Arrays.copyOf(lists, listSize);
+        constants = Arrays.copyOf(constants, constantCount);
+        texts = Arrays.copyOf(texts, textCount);
+    }
+
+    private static int offset(Token token) {
+        return token == null ? 0 : token.getOffset();
+    }
+
+    private final class Encoder {
+        private final Map<Long, Integer> constantIndexes = new HashMap<>();
+
+        // A block's node is added before its statements, so the root block is node 0
+        int encodeBlock(ProgramNode block) {
+            int node = addNode(BLOCK, TokenType.BEGIN, null, 0, 0, 0);
+            List<Integer> statements = new ArrayList<>();
+            for (StatementNode statement : block.getStatements())
+                statements.add(encodeStatement(statement));
+            firsts[node] = addList(statements);
+            return node;
+        }
+
+        private int encodeStatement(StatementNode statement) {
+            List<Integer> elements = new ArrayList<>();
+            if (statement instanceof VariableDeclarationNode) {
+                VariableDeclarationNode declaration = (VariableDeclarationNode) statement;
+                for (Map.Entry<String, ExpressionNode> entry : declaration.getVariables().entrySet()) {
+                    elements.add(declaration.getSlot(entry.getKey()));
+                    elements.add(entry.getValue() == null ? -1 : encodeExpression(entry.getValue()));
+                }
+                Token token = declaration.getDataTypeToken();
+                return addNode(DECLARATION, token.getTokenType(), null, addList(elements), 0, offset(token));
+            } else if (statement instanceof AssignmentNode) {
+                AssignmentNode assignment = (AssignmentNode) statement;
+                int expression = encodeExpression(assignment.getExpression());
+                int[] slots = assignment.getSlots();
+                for (int i = 0; i < slots.length; i++) {
+                    elements.add(slots[i]);
+                    elements.add(offset(assignment.getEqualsTokens().get(i)));
+                }
+                return addNode(ASSIGNMENT, TokenType.EQUAL, null, expression, addList(elements), offset(assignment.getEqualsTokens().get(0)));
+            } else if (statement instanceof DisplayNode) {
+                DisplayNode display = (DisplayNode) statement;
+                for (ExpressionNode expression : display.getExpressions())
+                    elements.add(encodeExpression(expression));
+                return addNode(DISPLAY, TokenType.DISPLAY, null, addList(elements), 0, offset(display.getDisplayToken()));
+            } else if (statement instanceof ScanNode) {
+                ScanNode scan = (ScanNode) statement;
+                for (int slot : scan.getSlots())
+                    elements.add(slot);
+                return addNode(SCAN, TokenType.SCAN, null, addList(elements), 0, offset(scan.getScanToken()));
+            } else if (statement instanceof ConditionalNode) {
+                ConditionalNode conditional = (ConditionalNode) statement;
+                for (int index = 0; index < conditional.getExpressions().size(); index++) {
+                    ExpressionNode condition = conditional.getExpressions().get(index);
+                    elements.add(condition == null ? -1 : encodeExpression(condition));
+                    elements.add(encodeBlock(conditional.getStatements().get(index)));
+                    elements.add(offset(conditional.getTokens().get(index)));
+                }
+                return addNode(CONDITIONAL, TokenType.IF, null, addList(elements), 0, offset(conditional.getTokens().get(0)));
+            } else if (statement instanceof LoopNode) {
+                LoopNode loop = (LoopNode) statement;
+                int condition = encodeExpression(loop.getExpression());
+                return addNode(LOOP, TokenType.WHILE, null, condition, encodeBlock(loop.getStatement()), offset(loop.getWhileToken()));
+            }
+            throw new RuntimeException("Unknown statement.");
+        }
+
+        private int encodeExpression(ExpressionNode expression) {
+            while (expression instanceof ParenthesisNode)
+                expression = ((ParenthesisNode) expression).getExpression();
+
+            DataType type = expression.getDataType();
+            if (expression instanceof BinaryNode) {
+                BinaryNode binary = (BinaryNode) expression;
+                int left = encodeExpression(binary.getLeft());
+                int right = encodeExpression(binary.getRight());
+                Token operator = binary.getTokenOperator();
+                boolean floatOperands = binary.getLeft().getDataType() == DataType.Float || binary.getRight().getDataType() == DataType.Float;
+                byte kind = binaryKind(operator.getTokenType(), floatOperands);
+                return addNode(kind, operator.getTokenType(), type, left, right, offset(operator));
+            } else if (expression instanceof UnaryNode) {
+                UnaryNode unary = (UnaryNode) expression;
+                Token operator = unary.getTokenOperator();
+                int operand = encodeExpression(unary.getExpression());
+                if (operator.getTokenType() != TokenType.MINUS && operator.getTokenType() != TokenType.NOT)
+                    return operand;
+                byte kind = operator.getTokenType() == TokenType.NOT ? NOT : NEGATE;
+                return addNode(kind, operator.getTokenType(), type, operand, 0, offset(operator));
+            } else if (expression instanceof IdentifierNode) {
+                IdentifierNode identifier = (IdentifierNode) expression;
+                return addNode(VARIABLE, TokenType.IDENTIFIER, type, identifier.getSlot(), 0, offset(identifier.getIdentifierToken()));
+            } else if (expression instanceof LiteralNode) {
+                LiteralNode literal = (LiteralNode) expression;
+                int offset = offset(literal.getLiteralToken());
+                if (type == DataType.String)
+                    return addNode(TEXT, TokenType.STRINGLITERAL, type, addText(literal.getEncodedLiteral()), 0, offset);
+                return addNode(CONSTANT, literalType(type), type, addConstant(Value.encode(literal.getLiteral(), type)), 0, offset);
+            }
+            throw new RuntimeException("Unknown expression.");
+        }
+
+        private byte binaryKind(TokenType operator, boolean floatOperands) {
+            switch (operator) {
+                case PLUS:
+                    return ADD;
+                case MINUS:
+                    return SUBTRACT;
+                case STAR:
+                    return MULTIPLY;
+                case SLASH:
+                    return DIVIDE;
+                case PERCENT:
+                    return REMAINDER;
+                case AND:
+                    return AND;
+                case OR:
+                    return OR;
+                case LESSTHAN:
+                    return floatOperands ? FLOAT_LESS_THAN : LESS_THAN;
+                case GREATERTHAN:
+                    return floatOperands ? FLOAT_GREATER_THAN : GREATER_THAN;
+                case LESSEQUAL:
+                    return floatOperands ? FLOAT_LESS_EQUAL : LESS_EQUAL;
+                case GREATEREQUAL:
+                    return floatOperands ? FLOAT_GREATER_EQUAL : GREATER_EQUAL;
+                case EQUALTO:
+                    return floatOperands ? FLOAT_EQUAL_TO : EQUAL_TO;
+                case NOTEQUAL:
+                    return floatOperands ? FLOAT_NOT_EQUAL : NOT_EQUAL;
+                default:
+                    throw new RuntimeException("Unknown operator.");
+            }
+        }
+
+        private TokenType literalType(DataType type) {
+            switch (type) {
+                case Float:
+                    return TokenType.FLOATLITERAL;
+                case Char:
+                    return TokenType.CHARLITERAL;
+                case Bool:
+                    return TokenType.BOOLLITERAL;
+                default:
+                    return TokenType.INTLITERAL;
+            }
+        }
+
+        private int addConstant(long value) {
+            Integer index = constantIndexes.get(value);
+            if (index != null)
+                return index;
+            if (constantCount == constants.length)
+                constants = Arrays.copyOf(constants, constantCount * 2);
+            constants[constantCount] = value;
+            constantIndexes.put(value, constantCount);
+            return constantCount++;
+        }
+
+        private int addText(byte[] text) {
+            if (textCount == texts.length)
+                texts = Arrays.copyOf(texts, textCount * 2);
+            texts[textCount] = text;
+            return textCount++;
+        }
+    }
+
+    private final class Decoder {
+        private final String[] slotNames;
+
+        Decoder(String[] slotNames) {
+            this.slotNames = slotNames;
+        }
+
+        ProgramNode decodeBlock(int node) {
+            int list = firsts[node];
+            List<StatementNode> statements = new ArrayList<>();
+            for (int i = 0; i < getListLength(list); i++)
+                statements.add(decodeStatement(getListElement(list, i)));
+            return new ProgramNode(statements);
+        }
+
+        StatementNode decodeStatement(int node) {
+            int list = firsts[node];
+            switch (kinds[node]) {
+                case DECLARATION: {
+                    Map<String, ExpressionNode> variables = new LinkedHashMap<>();
+                    Map<String, Integer> symbols = new HashMap<>();
+                    for (int i = 0; i < getListLength(list); i += 2) {
+                        int expression = getListElement(list, i + 1);
+                        String name = slotNames[getListElement(list, i)];
+                        variables.put(name, expression < 0 ? null : decodeExpression(expression));
+                        symbols.put(name, -1);
+                    }
+                    VariableDeclarationNode declaration = new VariableDeclarationNode(token(node), variables, symbols);
+                    for (int i = 0; i < getListLength(list); i += 2)
+                        declaration.setSlot(slotNames[getListElement(list, i)], getListElement(list, i));
+                    return declaration;
+                }
+                case ASSIGNMENT: {
+                    list = seconds[node];
+                    int count = getListLength(list) / 2;
+                    List<String> identifiers = new ArrayList<>();
+                    List<Token> equalsTokens = new ArrayList<>();
+                    int[] symbols = new int[count];
+                    int[] slots = new int[count];
+                    for (int i = 0; i < count; i++) {
+                        slots[i] = getListElement(list, 2 * i);
+                        identifiers.add(slotNames[slots[i]]);
+                        equalsTokens.add(new Token(TokenType.EQUAL, "=", null, getListElement(list, 2 * i + 1), lineMap));
+                        symbols[i] = -1;
+                    }
+                    AssignmentNode assignment = new AssignmentNode(identifiers, symbols, equalsTokens, decodeExpression(firsts[node]));
+                    assignment.setSlots(slots);
+                    return assignment;
+                }
+                case DISPLAY: {
+                    List<ExpressionNode> expressions = new ArrayList<>();
+                    for (int i = 0; i < getListLength(list); i++)
+                        expressions.add(decodeExpression(getListElement(list, i)));
+                    return new DisplayNode(token(node), expressions);
+                }
+                case SCAN: {
+                    int[] slots = Arrays.copyOfRange(lists, list + 1, list + 1 + getListLength(list));
+                    List<String> identifiers = new ArrayList<>();
+                    for (int slot : slots)
+                        identifiers.add(slotNames[slot]);
+                    ScanNode scan = new ScanNode(token(node), identifiers, new int[slots.length]);
+                    scan.setSlots(slots);
+                    return scan;
+                }
+                case CONDITIONAL: {
+                    List<Token> tokens = new ArrayList<>();
+                    List<ExpressionNode> expressions = new ArrayList<>();
+                    List<ProgramNode> blocks = new ArrayList<>();
+                    for (int i = 0; i < getListLength(list); i += 3) {
+                        int condition = getListElement(list, i);
+                        expressions.add(condition < 0 ? null : decodeExpression(condition));
+                        blocks.add(decodeBlock(getListElement(list, i + 1)));
+                        tokens.add(new Token(condition < 0 ? TokenType.ELSE : TokenType.IF, null, null, getListElement(list, i + 2), lineMap));
+                    }
+                    return new ConditionalNode(tokens, expressions, blocks);
+                }
+                case LOOP:
+                    return new LoopNode(token(node), decodeExpression(firsts[node]), decodeBlock(seconds[node]));
+                default:
+                    throw new RuntimeException("Unknown statement.");
+            }
+        }
+
+        private ExpressionNode decodeExpression(int node) {
+            ExpressionNode expression;
+            switch (kinds[node]) {
+                case NEGATE:
+                case NOT:
+                    expression = new UnaryNode(token(node), decodeExpression(firsts[node]));
+                    break;
+                case VARIABLE: {
+                    IdentifierNode identifier = new IdentifierNode(token(node), slotNames[firsts[node]], -1);
+                    identifier.setSlot(firsts[node]);
+                    expression = identifier;
+                    break;
+                }
+                case CONSTANT:
+                    expression = new LiteralNode(token(node), Value.decode(getConstant(node), getType(node)));
+                    break;
+                case TEXT:
+                    expression = new LiteralNode(token(node), new String(getText(node), StandardCharsets.UTF_8));
+                    break;
+                default:
+                    expression = new BinaryNode(decodeExpression(firsts[node]), token(node), decodeExpression(seconds[node]));
+                    break;
+            }
+            expression.setDataType(getType(node));
+            return expression;
+        }
+
+        // Token of a node, its text is not kept and is only needed by errors the checks have ruled out
+        private Token token(int node) {
+            return new Token(TOKEN_TYPES[tokenTypes[node]], null, null, offsets[node], lineMap);
+        }
+    }
+}
@@ -0,0 +1,20 @@
+package Analysis.Tree;
+
+import Analysis.IO.InputSource;
+import Analysis.IO.OutputSink;
+import Analysis.Table.VariableTable;
+import Analysis.Tree.Statement.LoopNode;
+
+// What the nodes of a tree run against: the variables and I/O of one execution.
+// Implemented by the Interpreter, which also decides how a WHILE loop runs.
+public interface Frame {
+    VariableTable getVariableTable();
+
+    InputSource getInput();
+
+    OutputSink getOutput();
+
+    String[] getSlotNames();
+
+    void executeLoop(LoopNode loop);
+}
@@ -14,4 +14,14 @@ public class ProgramNode extends ASTNode {
     public List<StatementNode> getStatements() {
         return statements;
     }
+
+    public void specialize() {
+        for (StatementNode statement : statements)
+            statement.specialize();
+    }
+
+    public void execute(Frame frame) {
+        for (StatementNode statement : statements)
+            statement.execute(frame);
+    }
 }
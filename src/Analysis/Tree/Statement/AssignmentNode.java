@@ -3,16 +3,21 @@ package Analysis.Tree.Statement;
 
 
 import Analysis.Syntax.Token;
+import Analysis.Tree.Frame;
 import Analysis.Tree.Expression.ExpressionNode;
 import java.util.List;
 
 public class AssignmentNode extends StatementNode {
     private final List<String> identifiers;
+    private final int[] symbols; // Interned name of each identifier
     private final List<Token> equalsTokens;
-    private final ExpressionNode expression;
+    private ExpressionNode expression;
+    private int[] slots; // VariableTable slot of each identifier, resolved by Semantic
+    private boolean specialized;
 
-    public AssignmentNode(List<String> identifiers, List<Token> equalsToken, ExpressionNode expression) {
+    public AssignmentNode(List<String> identifiers, int[] symbols, List<Token> equalsToken, ExpressionNode expression) {
         this.identifiers = identifiers;
+        this.symbols = symbols;
         this.equalsTokens = equalsToken;
         this.expression = expression;
     }
@@ -21,6 +26,10 @@ public class AssignmentNode extends StatementNode {
         return identifiers;
     }
 
+    public int[] getSymbols() {
+        return symbols;
+    }
+
     public List<Token> getEqualsTokens() {
         return equalsTokens;
     }
@@ -28,4 +37,28 @@ public class AssignmentNode extends StatementNode {
     public ExpressionNode getExpression() {
         return expression;
     }
+
+    public int[] getSlots() {
+        return slots;
+    }
+
+    public void setSlots(int[] slots) {
+        this.slots = slots;
+    }
+
+    @Override
+    public void specialize() {
+        if (!specialized) {
+            expression = expression.specialize();
+            specialized = true;
+        }
+    }
+
+    @Override
+    public void execute(Frame frame) {
+        specialize();
+
+        for (int slot : slots)
+            assign(frame, slot, expression);
+    }
 }
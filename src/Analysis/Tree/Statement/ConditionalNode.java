@@ -11,6 +11,7 @@ public class ConditionalNode extends StatementNode {
     private final List<Token> tokens;
     private final List<ExpressionNode> expressions;
     private final List<ProgramNode> statements;
+    private boolean specialized;
 
     public ConditionalNode(List<Token> tokens, List<ExpressionNode> expressions, List<ProgramNode> statements) {
         this.tokens = tokens;
@@ -29,4 +30,28 @@ public class ConditionalNode extends StatementNode {
     public List<ProgramNode> getStatements() {
         return statements;
     }
+
+    @Override
+    public void specialize() {
+        if (!specialized) {
+            expressions.replaceAll(expression -> expression == null ? null : expression.specialize());
+            for (ProgramNode block : statements)
+                block.specialize();
+            specialized = true;
+        }
+    }
+
+    @Override
+    public void execute(Frame frame) {
+        specialize();
+
+        // Run the first block whose condition holds, a null condition is the ELSE block
+        for (int index = 0; index < expressions.size(); index++) {
+            ExpressionNode expression = expressions.get(index);
+            if (expression == null || expression.evaluateBool(frame)) {
+                statements.get(index).execute(frame);
+                return;
+            }
+        }
+    }
 }
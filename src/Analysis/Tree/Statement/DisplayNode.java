@@ -7,12 +7,15 @@ package Analysis.Tree.Statement;
 import Analysis.Syntax.Token;
 import Analysis.Syntax.*;
 import Analysis.Type.*;
+import Analysis.Tree.Frame;
 import Analysis.Tree.Expression.ExpressionNode;
+import Analysis.IO.OutputSink;
 import java.util.List;
 
 public class DisplayNode extends StatementNode {
     private final Token displayToken;
     private final List<ExpressionNode> expressions;
+    private boolean specialized;
 
     public DisplayNode(Token displayToken, List<ExpressionNode> expressions) {
         this.displayToken = displayToken;
@@ -26,4 +29,41 @@ public class DisplayNode extends StatementNode {
     public List<ExpressionNode> getExpressions() {
         return expressions;
     }
+
+    @Override
+    public void specialize() {
+        if (!specialized) {
+            expressions.replaceAll(ExpressionNode::specialize);
+            specialized = true;
+        }
+    }
+
+    @Override
+    public void execute(Frame frame) {
+        specialize();
+
+        OutputSink output = frame.getOutput();
+        for (ExpressionNode expression : expressions) {
+            // Values stay primitive until they are formatted here
+            switch (expression.getDataType()) {
+                case Int:
+                    output.write(expression.evaluateInt(frame));
+                    break;
+                case Float:
+                    output.write(expression.evaluateFloat(frame));
+                    break;
+                case Bool:
+                    output.write(expression.evaluateBool(frame));
+                    break;
+                case Char:
+                    output.write(expression.evaluateChar(frame));
+                    break;
+                default:
+                    output.write(expression.evaluateString(frame));
+                    break;
+            }
+        }
+
+        output.endDisplay();
+    }
 }
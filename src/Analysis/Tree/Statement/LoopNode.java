@@ -4,12 +4,14 @@ package Analysis.Tree.Statement;
 
 import Analysis.Syntax.Token;
 import Analysis.Tree.Expression.ExpressionNode;
+import Analysis.Tree.Frame;
 import Analysis.Tree.ProgramNode;
 
 public class LoopNode extends StatementNode {
     private final Token whileToken;
-    private final ExpressionNode expression;
+    private ExpressionNode expression;
     private final ProgramNode statement;
+    private boolean specialized;
 
     public LoopNode(Token whileToken, ExpressionNode expression, ProgramNode statement) {
         this.whileToken = whileToken;
@@ -28,4 +30,25 @@ public class LoopNode extends StatementNode {
     public ProgramNode getStatement() {
         return statement;
     }
+
+    // How the loop runs is up to the engine, which may compile it once it is hot
+    @Override
+    public void execute(Frame frame) {
+        frame.executeLoop(this);
+    }
+
+    @Override
+    public void specialize() {
+        if (!specialized) {
+            expression = expression.specialize();
+            statement.specialize();
+            specialized = true;
+        }
+    }
+
+    // Evaluates the condition for the next iteration
+    public boolean test(Frame frame) {
+        specialize();
+        return expression.evaluateBool(frame);
+    }
 }
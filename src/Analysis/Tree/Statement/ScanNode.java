@@ -3,15 +3,19 @@ package Analysis.Tree.Statement;
 
 
 import Analysis.Syntax.Token;
+import Analysis.Tree.Frame;
 import java.util.List;
 
 public class ScanNode extends StatementNode {
     private final Token scanToken;
     private final List<String> identifiers;
+    private final int[] symbols; // Interned name of each identifier
+    private int[] slots; // VariableTable slot of each identifier, resolved by Semantic
 
-    public ScanNode(Token scanToken, List<String> identifiers) {
+    public ScanNode(Token scanToken, List<String> identifiers, int[] symbols) {
         this.scanToken = scanToken;
         this.identifiers = identifiers;
+        this.symbols = symbols;
     }
 
     public Token getScanToken() {
@@ -21,4 +25,28 @@ public class ScanNode extends StatementNode {
     public List<String> getIdentifiers() {
         return identifiers;
     }
+
+    public int[] getSymbols() {
+        return symbols;
+    }
+
+    public int[] getSlots() {
+        return slots;
+    }
+
+    public void setSlots(int[] slots) {
+        this.slots = slots;
+    }
+
+    // SCAN has no expressions
+    @Override
+    public void specialize() {
+    }
+
+    @Override
+    public void execute(Frame frame) {
+        // Pending output, such as a prompt, has to be visible before waiting for input
+        frame.getOutput().flush();
+        frame.getInput().scan(frame.getVariableTable(), slots, 0, slots.length, frame.getSlotNames());
+    }
 }
@@ -2,7 +2,39 @@ package Analysis.Tree.Statement;
 
 
 
+import Analysis.Table.VariableTable;
 import Analysis.Tree.ASTNode;
+import Analysis.Tree.Frame;
+import Analysis.Tree.Expression.ExpressionNode;
 
+// Statements execute themselves. The first time a statement runs it replaces its
+// expressions with their specialized trees, see ExpressionNode. Replacing them is
+// not safe while another thread runs the statement, so statements that are shared
+// between executions are specialized before they are shared, see CompiledProgram.
 public abstract class StatementNode extends ASTNode {
+    public abstract void execute(Frame frame);
+
+    // Specializes the expressions of the statement and of the statements in its blocks
+    public abstract void specialize();
+
+    // Evaluates the expression unboxed, using the type of the target variable
+    protected static void assign(Frame frame, int slot, ExpressionNode expression) {
+        VariableTable variableTable = frame.getVariableTable();
+        switch (variableTable.getType(slot)) {
+            case Int:
+                variableTable.setInt(slot, expression.evaluateInt(frame));
+                break;
+            case Float:
+                variableTable.setFloat(slot, expression.evaluateFloat(frame));
+                break;
+            case Bool:
+                variableTable.setBool(slot, expression.evaluateBool(frame));
+                break;
+            case Char:
+                variableTable.setChar(slot, expression.evaluateChar(frame));
+                break;
+            default:
+                throw new RuntimeException("Unable to assign " + expression.getDataType() + ".");
+        }
+    }
 }
@@ -3,6 +3,7 @@ package Analysis.Tree.Statement;
 
 
 import Analysis.Syntax.Token;
+import Analysis.Tree.Frame;
 import Analysis.Tree.Expression.ExpressionNode;
 import java.util.Dictionary;
 import java.util.Map;
@@ -11,10 +12,15 @@ import java.util.HashMap;
 public class VariableDeclarationNode extends StatementNode {
     private Token dataTypeToken;
     private Map<String, ExpressionNode> variables;
+    private Map<String, Integer> symbols; // Interned name of each variable
+    private Map<String, Integer> slots; // VariableTable slot of each variable, resolved by Semantic
+    private boolean specialized;
 
-    public VariableDeclarationNode(Token dataTypeToken, Map<String, ExpressionNode> variables) {
+    public VariableDeclarationNode(Token dataTypeToken, Map<String, ExpressionNode> variables, Map<String, Integer> symbols) {
         this.dataTypeToken = dataTypeToken;
         this.variables = variables;
+        this.symbols = symbols;
+        this.slots = new HashMap<>();
     }
 
     public Token getDataTypeToken() {
@@ -25,6 +31,37 @@ public class VariableDeclarationNode extends StatementNode {
         return variables;
     }
 
+    public int getSymbol(String identifier) {
+        return symbols.get(identifier);
+    }
+
+    public int getSlot(String identifier) {
+        return slots.get(identifier);
+    }
+
+    public void setSlot(String identifier, int slot) {
+        slots.put(identifier, slot);
+    }
+
+    @Override
+    public void specialize() {
+        if (!specialized) {
+            variables.replaceAll((identifier, value) -> value == null ? null : value.specialize());
+            specialized = true;
+        }
+    }
+
+    @Override
+    public void execute(Frame frame) {
+        specialize();
+
+        // Only variables with a value, e.g. INT a = 5, are assigned
+        for (Map.Entry<String, ExpressionNode> entry : variables.entrySet()) {
+            if (entry.getValue() != null)
+                assign(frame, getSlot(entry.getKey()), entry.getValue());
+        }
+    }
+
 
     
 }
\ No newline at end of file
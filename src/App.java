@@ -1,7 +1,21 @@
 import java.io.IOException;
+import java.io.InputStreamReader;
 import java.nio.file.Files;
 import java.nio.file.Paths;
+import Analysis.CompiledProgram;
+import Analysis.Engine;
+import Analysis.Execution;
 import Analysis.Interpreter;
+import Analysis.IO.FileChannelOutputSink;
+import Analysis.IO.InputSource;
+import Analysis.IO.MappedInputSource;
+import Analysis.IO.OutputSink;
+import Analysis.IO.ReaderInputSource;
+import Analysis.IO.StreamOutputSink;
+import Analysis.Optimize.OptimizationLevel;
+import Analysis.Optimize.PassStatistics;
+import Analysis.Syntax.Lexer;
+import Analysis.Syntax.SourceText;
 // import Analysis.Syntax.Parser;
 // import Analysis.Syntax.Lexer;
 // import Analysis.Type.TokenType;
@@ -10,17 +24,65 @@ import Analysis.Interpreter;
 public class App {
     public static void main(String[] args) {
         String codeFilePath = "D:\\School\\3rd year\\2nd Sem\\Programming  Language\\interpreter V2\\interpreter(CODE language)\\src\\CODE.txt"; // Update this with the path to your text file
+        Engine engine = Engine.VM; // --tree runs the AST interpreter, --jvm generated JVM code, --tiered both, instead of the bytecode VM
+        String outputFilePath = null; // --out <file> writes DISPLAY output to a file instead of the console
+        String inputFilePath = null; // --in <file> reads SCAN input from a memory-mapped file instead of the console
+        boolean concurrentLexer = false; // --pipeline runs the Lexer on its own thread ahead of the Parser
+        boolean streaming = false; // --stream runs each statement as soon as it is parsed
+        boolean iterative = false; // --deep streams on explicit stacks, for deeply nested generated CODE
+        OptimizationLevel level = CompiledProgram.DEFAULT_LEVEL; // -O0, -O1 or -O2
+        boolean printPasses = false; // --passes reports what each optimization pass did
+
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("--tree"))
+                engine = Engine.TREE;
+            else if (args[i].equals("--jvm"))
+                engine = Engine.JVM;
+            else if (args[i].equals("--tiered"))
+                engine = Engine.TIERED;
+            else if (args[i].equals("--pipeline"))
+                concurrentLexer = true;
+            else if (args[i].equals("--stream"))
+                streaming = true;
+            else if (args[i].equals("--deep"))
+                streaming = iterative = true;
+            else if (args[i].equals("--passes"))
+                printPasses = true;
+            else if (args[i].startsWith("-O"))
+                level = OptimizationLevel.parse(args[i]);
+            else if (args[i].equals("--out") && i + 1 < args.length)
+                outputFilePath = args[++i];
+            else if (args[i].equals("--in") && i + 1 < args.length)
+                inputFilePath = args[++i];
+            else
+                codeFilePath = args[i];
+        }
         
         try {
-            // Read the code from the text file
-            String code = Files.readString(Paths.get(codeFilePath)).replace("\r", "");
-            System.out.println(code);
+            // Echo the code from the text file, the Lexer maps the file itself
+            Files.copy(Paths.get(codeFilePath), System.out);
+            System.out.println();
 
             // Execute the interpreter
           
         
-            Interpreter program = new Interpreter(code);
-            program.execute(null);
+            InputSource input = inputFilePath != null ? new MappedInputSource(Paths.get(inputFilePath)) : new ReaderInputSource(new InputStreamReader(System.in));
+            OutputSink output = outputFilePath != null ? FileChannelOutputSink.open(Paths.get(outputFilePath)) : StreamOutputSink.stdout();
+            try {
+                if (streaming) {
+                    Interpreter.executeStreaming(new Lexer(SourceText.map(Paths.get(codeFilePath))), input, output, iterative);
+                } else {
+                    CompiledProgram program = concurrentLexer ? CompiledProgram.compileConcurrently(Paths.get(codeFilePath), level)
+                            : CompiledProgram.compile(Paths.get(codeFilePath), level);
+                    if (printPasses) {
+                        for (PassStatistics pass : program.getPassStatistics())
+                            System.err.println(pass);
+                    }
+                    new Execution(program, input, output).run(engine);
+                }
+            } finally {
+                output.close();
+            }
         } catch (IOException e) {
             e.printStackTrace();
         } catch (Exception e) {